@@ -0,0 +1,94 @@
+package com.kirenpaul.foregroundservice;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * On-device microbenchmarks (androidx.benchmark)
+ *
+ * Run with: ./gradlew connectedAndroidTest -Pbenchmark
+ * Results are written as JSON by the benchmark library to the device's
+ * additional test output directory and pulled into build/outputs.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotificationHelperMicrobenchmark {
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void buildNotification_typical() {
+        Context context = ApplicationProvider.getApplicationContext();
+        NotificationHelper helper = NotificationHelper.getInstance(context);
+        Bundle config = typicalConfig();
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            helper.buildNotification(context, config);
+        }
+    }
+
+    @Test
+    public void buildNotification_worstCase() {
+        Context context = ApplicationProvider.getApplicationContext();
+        NotificationHelper helper = NotificationHelper.getInstance(context);
+        Bundle config = worstCaseConfig();
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            helper.buildNotification(context, config);
+        }
+    }
+
+    @Test
+    public void argumentsToBundle() {
+        JavaOnlyMap map = JavaOnlyMap.of(
+            "id", 1.0,
+            "title", "Upload in progress",
+            "message", "Uploading 3 files",
+            "serviceType", "dataSync"
+        );
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Arguments.toBundle(map);
+        }
+    }
+
+    private static Bundle typicalConfig() {
+        Bundle bundle = new Bundle();
+        bundle.putDouble("id", 1);
+        bundle.putString("title", "Upload in progress");
+        bundle.putString("message", "Uploading 3 files");
+        bundle.putString("serviceType", "dataSync");
+        return bundle;
+    }
+
+    private static Bundle worstCaseConfig() {
+        Bundle bundle = typicalConfig();
+        bundle.putString("importance", "max");
+        bundle.putString("largeIcon", "ic_launcher");
+        bundle.putString("number", "12");
+        bundle.putBoolean("button", true);
+        bundle.putString("buttonText", "Pause");
+        bundle.putBoolean("button2", true);
+        bundle.putString("button2Text", "Stop");
+        bundle.putBoolean("progressBar", true);
+        bundle.putDouble("progressBarMax", 100);
+        bundle.putDouble("progressBarCurr", 42);
+        bundle.putString("color", "#FF5722");
+        return bundle;
+    }
+}
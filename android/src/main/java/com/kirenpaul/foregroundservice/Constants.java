@@ -7,6 +7,12 @@ class Constants {
     // Bundle keys
     static final String NOTIFICATION_CONFIG = "com.kirenpaul.foregroundservice.notif_config";
     static final String TASK_CONFIG = "com.kirenpaul.foregroundservice.task_config";
+    static final String START_REQUESTED_AT = "com.kirenpaul.foregroundservice.start_requested_at";
+    static final String TRACE_COOKIE = "com.kirenpaul.foregroundservice.trace_cookie";
+    static final String LEASE_ID = "com.kirenpaul.foregroundservice.lease_id";
+    static final String SERVICE_TYPE = "com.kirenpaul.foregroundservice.service_type";
+    static final String SESSION = "com.kirenpaul.foregroundservice.session";
+    static final String DISPATCHED_AT = "com.kirenpaul.foregroundservice.dispatched_at";
 
     // Service actions
     static final String ACTION_FOREGROUND_SERVICE_START = "com.kirenpaul.foregroundservice.service_start";
@@ -14,12 +20,16 @@ class Constants {
     static final String ACTION_FOREGROUND_SERVICE_STOP_ALL = "com.kirenpaul.foregroundservice.service_stop_all";
     static final String ACTION_FOREGROUND_RUN_TASK = "com.kirenpaul.foregroundservice.service_run_task";
     static final String ACTION_UPDATE_NOTIFICATION = "com.kirenpaul.foregroundservice.service_update_notification";
+    static final String ACTION_UPDATE_SERVICE_TYPE = "com.kirenpaul.foregroundservice.service_update_service_type";
+    static final String ACTION_STOP_SESSION = "com.kirenpaul.foregroundservice.service_stop_session";
+    static final String ACTION_TASK_ALARM = "com.kirenpaul.foregroundservice.service_task_alarm";
 
     // Error codes
     static final String ERROR_INVALID_CONFIG = "ERROR_INVALID_CONFIG";
     static final String ERROR_SERVICE_ERROR = "ERROR_SERVICE_ERROR";
     static final String ERROR_ANDROID_VERSION = "ERROR_ANDROID_VERSION";
     static final String ERROR_PERMISSION_DENIED = "ERROR_PERMISSION_DENIED";
+    static final String ERROR_START_NOT_ALLOWED = "ERROR_START_NOT_ALLOWED";
 
     // Notification channel
     static final String NOTIFICATION_CHANNEL_ID = "com.kirenpaul.foregroundservice.channel";
@@ -11,7 +11,13 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
-import android.util.Log;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import static com.kirenpaul.foregroundservice.Constants.NOTIFICATION_CONFIG;
 import static com.kirenpaul.foregroundservice.Constants.TASK_CONFIG;
@@ -21,78 +27,207 @@ import static com.kirenpaul.foregroundservice.Constants.TASK_CONFIG;
  *
  * Features:
  * - Singleton pattern for easy access
- * - Internal start counter for multiple start/stop calls
- * - Android 14+ foreground service type handling
- * - Headless task execution support
+ * - Lock-free lifecycle state machine with start counter (ServiceStateMachine)
+ * - Start leases with idempotent release and optional timeouts (LeaseRegistry)
+ * - Two-phase cold start: a placeholder notification meets the
+ *   startForeground deadline, the full notification replaces it right after
+ * - Optional stop grace period that keeps the service in the foreground
+ *   after the last stop, so a quick restart reuses it
+ * - Android 14+ foreground service type handling, including combined type
+ *   masks and switching types at runtime without a restart
+ * - Named sessions multiplexed onto the one service, each with its own
+ *   notification and task loop, running with the OR of their type masks
+ * - State snapshot (sessions, start count, task loops, scheduled tasks)
+ *   saved after every change and restored in one read after process death
+ *   (StateStore)
+ * - Long-period tasks run by Doze-aware alarms, with overlapping windows
+ *   batched into one wakeup (TaskAlarms)
+ * - Task loops that sleep until the next task is due instead of ticking at
+ *   a fixed rate, rescheduled when tasks are added or removed
+ * - Thermal throttling: stretched task periods, paused low-priority tasks
+ *   and fewer notification updates while the device is hot (ThermalThrottle)
+ * - Elastic task periods chosen from battery saver, battery level and
+ *   charge state (PowerPolicy)
+ * - Tiered load shedding on onTrimMemory, reported to JS (MemoryPressure)
+ * - Global and per-group limits on scheduled task runs in flight (TaskSemaphore)
+ * - Headless task execution support, with an opt-in React context
+ *   prewarm ahead of the first tick (ReactContextWarmer)
  * - Proper lifecycle management and cleanup
+ * - Lifecycle and task telemetry events (see ServiceEvents)
  */
 public class ForegroundService extends Service {
 
     private static final String TAG = "ForegroundService";
-    private static ForegroundService mInstance = null;
-    private static Bundle lastNotificationConfig = null;
+    private static final ServiceStateMachine stateMachine = new ServiceStateMachine();
+    private static final LeaseRegistry leases = new LeaseRegistry();
+    private static final ServiceSessions sessions = new ServiceSessions();
+    private static final TaskSchedule taskSchedule = new TaskSchedule();
+    private static volatile ForegroundService mInstance = null;
+    private static volatile Bundle lastNotificationConfig = null;
 
-    private int running = 0;
     private Handler handler;
     private Context context;
-    private Runnable runnableCode;
-    private Bundle taskConfig;
+    private final Map<String, TaskLoop> loops = new LinkedHashMap<>();
+    private int lastStartId = 0;
+    private int foregroundNotificationId;
+    private int foregroundTypeMask;
+    private Runnable graceStop;
+    private StateStore stateStore;
+    private ReactContextWarmer reactContextWarmer;
+    private TaskAlarms taskAlarms;
+    private ThermalThrottle thermalThrottle;
+    private PowerPolicy powerPolicy;
+    private final Runnable memoryRecovery = this::recoverFromMemoryPressure;
+    private final Map<String, Bundle> throttledUpdates = new HashMap<>();
+    private final Map<String, Long> lastNotifyUptime = new HashMap<>();
+    private boolean restoredState;
 
     /**
-     * Check if service instance exists and is running
+     * Check if service instance exists
      */
     public static boolean isServiceCreated() {
-        try {
-            return mInstance != null && mInstance.ping();
-        } catch (NullPointerException e) {
-            return false;
-        }
+        return mInstance != null;
     }
 
     /**
      * Get singleton instance of the service
      */
     public static ForegroundService getInstance() {
-        if (isServiceCreated()) {
-            return mInstance;
-        }
-        return null;
+        return mInstance;
     }
 
     /**
-     * Get running counter value
+     * Lifecycle state shared by the service and the module (safe from any thread)
      */
-    public int isRunning() {
-        return running;
+    static ServiceStateMachine getStateMachine() {
+        return stateMachine;
     }
 
     /**
-     * Simple ping method to check if service is alive
+     * Start leases shared by the service and the module (safe from any thread)
      */
-    private boolean ping() {
-        return true;
+    static LeaseRegistry getLeaseRegistry() {
+        return leases;
+    }
+
+    /**
+     * Foreground sessions of the running service (safe from any thread)
+     */
+    static ServiceSessions getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Native schedule of the JS tasks (safe from any thread)
+     */
+    static TaskSchedule getTaskSchedule() {
+        return taskSchedule;
+    }
+
+    /**
+     * Reset the state shared across service instances, so each test starts
+     * from a fresh process (tests only)
+     */
+    static void resetForTest() {
+        stateMachine.reset();
+        leases.clear();
+        sessions.clear();
+        taskSchedule.reset();
+        mInstance = null;
+        lastNotificationConfig = null;
+    }
+
+    /**
+     * Get running counter value
+     */
+    public int isRunning() {
+        return stateMachine.getStartCount();
     }
 
     @Override
     public void onCreate() {
         super.onCreate();
-        Log.d(TAG, "onCreate called");
-        running = 0;
+        Logger.init(this);
+        Logger.d(TAG, "onCreate called");
+        stateMachine.onCreate();
         mInstance = this;
         context = this;
         handler = new Handler(Looper.getMainLooper());
+        stateStore = StateStore.getInstance(this);
+        reactContextWarmer = new ReactContextWarmer(this);
+        taskAlarms = new TaskAlarms(this);
+        taskSchedule.setListener(() -> handler.post(this::onTaskScheduleChanged));
+        thermalThrottle = new ThermalThrottle(this, this::onThrottleLevelChanged);
+        thermalThrottle.start();
+        powerPolicy = new PowerPolicy(this, this::onElasticPercentChanged);
+        powerPolicy.start();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        int tier = MemoryPressure.tierFor(level);
+        if (tier == MemoryPressure.TIER_NONE) {
+            return;
+        }
+        Logger.d(TAG, "Shedding load for trim memory level: ", level);
+
+        NotificationHelper.getInstance(this).trimMemory();
+        if (tier >= MemoryPressure.TIER_LOW) {
+            taskSchedule.setLowPriorityShed(true);
+            reactContextWarmer.trim();
+            handler.removeCallbacks(memoryRecovery);
+            handler.postDelayed(memoryRecovery, MemoryPressure.RECOVERY_MS);
+        }
+        if (tier >= MemoryPressure.TIER_CRITICAL) {
+            ServiceEventEmitter.getInstance().setLowMemory(true);
+        }
+
+        switch (tier) {
+            case MemoryPressure.TIER_MODERATE:
+                MetricsRegistry.MEMORY_TRIMS_MODERATE.incrementAndGet();
+                break;
+            case MemoryPressure.TIER_LOW:
+                MetricsRegistry.MEMORY_TRIMS_LOW.incrementAndGet();
+                break;
+            default:
+                MetricsRegistry.MEMORY_TRIMS_CRITICAL.incrementAndGet();
+                break;
+        }
+        ServiceEvents.memoryTrim(MemoryPressure.nameOf(tier), level);
+    }
+
+    /**
+     * No trim for RECOVERY_MS: resume low-priority tasks and restore the event queue
+     */
+    private void recoverFromMemoryPressure() {
+        Logger.d(TAG, "Memory pressure over, resuming shed load");
+        taskSchedule.setLowPriorityShed(false);
+        ServiceEventEmitter.getInstance().setLowMemory(false);
     }
 
     @Override
     public void onDestroy() {
-        Log.d(TAG, "onDestroy called");
+        Logger.d(TAG, "onDestroy called");
 
         // Clean up handler callbacks
         if (handler != null) {
             handler.removeCallbacksAndMessages(null);
         }
 
-        running = 0;
+        stateMachine.onDestroy();
+        if (stateMachine.getState() == ServiceStateMachine.State.DESTROYED) {
+            // Keep the lease of a start that will create the next instance
+            leases.clear();
+        }
+        sessions.clear();
+        reactContextWarmer.release();
+        taskSchedule.setListener(null);
+        MetricsRegistry.TICK_INTERVAL_MS.set(0);
+        // The schedule and the event queue outlive the service
+        recoverFromMemoryPressure();
+        thermalThrottle.stop();
+        powerPolicy.stop();
         mInstance = null;
         lastNotificationConfig = null;
 
@@ -111,86 +246,586 @@ public class ForegroundService extends Service {
      * @return true if service started successfully, false otherwise
      */
     private boolean startService(Bundle notificationConfig) {
+        return startService(notificationConfig, null);
+    }
+
+    /**
+     * Start the foreground service with notification
+     *
+     * The config's session (the default session if it has none) is added or
+     * updated. The first session backs startForeground; later sessions post
+     * their own notification and widen the type mask.
+     *
+     * @param notificationConfig Bundle containing notification configuration
+     * @param leaseId Lease of this start, held by a new session
+     * @return true if service started successfully, false otherwise
+     */
+    private boolean startService(Bundle notificationConfig, String leaseId) {
+        Tracing.begin(Tracing.START_SERVICE);
+        stateMachine.joinStart();
+        if (cancelStopGrace()) {
+            MetricsRegistry.STOP_GRACE_REUSES.incrementAndGet();
+            Logger.d(TAG, "Start during stop grace period, reusing foreground state");
+        }
+        boolean started = false;
         try {
-            int id = (int) notificationConfig.getDouble("id");
+            started = startSession(notificationConfig, leaseId);
+            return started;
+        } finally {
+            int count = stateMachine.completeStart(started);
+            if (started) {
+                persistState();
+                updateTaskAlarm();
+                MetricsRegistry.SERVICE_STARTS.incrementAndGet();
+                ServiceEvents.started(
+                    (int) notificationConfig.getDouble("id"),
+                    notificationConfig.getString("serviceType", "dataSync"),
+                    count
+                );
+                Logger.d(TAG, "Foreground service started successfully. Running count: ", count);
+            } else {
+                MetricsRegistry.SERVICE_START_FAILURES.incrementAndGet();
+            }
+            Tracing.end();
+        }
+    }
 
-            Notification notification = NotificationHelper
-                .getInstance(context)
-                .buildNotification(context, notificationConfig);
+    /**
+     * Add or update the config's session and put it in the foreground,
+     * without counting a start
+     *
+     * @return true if the session is in the foreground; on failure the
+     *     previous session (if any) is put back
+     */
+    private boolean startSession(Bundle notificationConfig, String leaseId) {
+        String sessionName = ServiceSessions.nameOf(notificationConfig);
+        ServiceSessions.Session previous = sessions.get(sessionName);
+        boolean started = false;
+        try {
+            Notification notification;
+            boolean placeholder = false;
+            if (previous != null
+                && NotificationHelper.isSameNotification(notificationConfig, previous.config)) {
+                notification = previous.notification;
+                MetricsRegistry.NOTIFICATION_REUSES.incrementAndGet();
+            } else if (foregroundNotificationId == 0) {
+                // Cold start: meet the startForeground deadline first, the full notification follows
+                notification = NotificationHelper
+                    .getInstance(context)
+                    .buildPlaceholderNotification(notificationConfig);
+                placeholder = true;
+            } else {
+                notification = NotificationHelper
+                    .getInstance(context)
+                    .buildNotification(context, notificationConfig);
+            }
 
             if (notification == null) {
-                Log.e(TAG, "Failed to build notification");
+                Logger.e(TAG, "Failed to build notification");
                 return false;
             }
 
-            // Android 14+ requires explicit service type
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
-                String serviceType = notificationConfig.getString("serviceType", "dataSync");
-                int serviceTypeFlag = ServiceTypeManager.getServiceTypeFlag(serviceType);
-
-                Log.d(TAG, String.format(
-                    "Starting foreground service with type: %s (flag: %d)",
-                    serviceType, serviceTypeFlag
-                ));
+            ServiceSessions.Session session = previous != null
+                ? previous.withNotification(notificationConfig, notification)
+                : new ServiceSessions.Session(sessionName, notificationConfig, notification, leaseId);
+            sessions.put(session);
 
-                startForeground(id, notification, serviceTypeFlag);
+            ServiceSessions.Session foreground = sessions.getForeground();
+            if (foreground == null || foreground.name.equals(sessionName)) {
+                sessions.setForeground(sessionName);
+                startForegroundSession(session);
             } else {
-                startForeground(id, notification);
+                // Another session backs startForeground; widen its type mask if needed
+                notifySession(session);
+                if (isTypeMaskChanged()) {
+                    startForegroundSession(foreground);
+                }
             }
 
-            running += 1;
+            started = true;
             lastNotificationConfig = notificationConfig;
-
-            Log.d(TAG, "Foreground service started successfully. Running count: " + running);
+            if (placeholder) {
+                MetricsRegistry.PLACEHOLDER_NOTIFICATIONS.incrementAndGet();
+                final Notification shown = notification;
+                handler.post(() -> replacePlaceholder(sessionName, shown));
+            }
             return true;
 
         } catch (Exception e) {
-            Log.e(TAG, "Failed to start foreground service", e);
+            Logger.e(TAG, "Failed to start foreground service", e);
             return false;
+        } finally {
+            if (!started) {
+                if (previous != null) {
+                    sessions.put(previous);
+                } else {
+                    sessions.remove(sessionName);
+                }
+            }
         }
     }
 
     /**
-     * Initialize the looping task runner
+     * Replace a cold start's placeholder with the full notification
      */
-    private void initializeTaskRunner() {
-        runnableCode = new Runnable() {
-            @Override
-            public void run() {
-                if (!isServiceCreated() || running <= 0) {
-                    Log.d(TAG, "Task runner stopped - service not running");
-                    return;
+    private void replacePlaceholder(String sessionName, Notification placeholder) {
+        ServiceSessions.Session session = sessions.get(sessionName);
+        if (session == null || session.notification != placeholder) {
+            // Stopped or updated in the meantime
+            return;
+        }
+
+        Notification notification = NotificationHelper
+            .getInstance(context)
+            .buildNotification(context, session.config);
+        if (notification == null) {
+            Logger.e(TAG, "Failed to build notification, keeping the placeholder");
+            return;
+        }
+
+        ServiceSessions.Session updated = session.withNotification(session.config, notification);
+        sessions.put(updated);
+        notifySession(updated);
+    }
+
+    /**
+     * Put a session's notification in the foreground, with the type mask of all sessions
+     */
+    private void startForegroundSession(ServiceSessions.Session session) {
+        int previousId = foregroundNotificationId;
+        int id = session.getNotificationId();
+
+        // Android 14+ requires explicit service type
+        Tracing.begin(Tracing.START_FOREGROUND);
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+                String serviceTypes = sessions.getServiceTypes();
+                int serviceTypeFlag = ServiceTypeManager.getServiceTypeMask(serviceTypes);
+
+                if (Logger.isEnabled(Logger.DEBUG)) {
+                    Logger.d(TAG, String.format(
+                        "Starting foreground service with type: %s (flag: %d)",
+                        serviceTypes, serviceTypeFlag
+                    ));
                 }
 
-                try {
-                    final Intent service = new Intent(context, ForegroundServiceTask.class);
-                    service.putExtras(taskConfig);
-                    context.startService(service);
+                startForeground(id, session.notification, serviceTypeFlag);
+                foregroundTypeMask = serviceTypeFlag;
+            } else {
+                startForeground(id, session.notification);
+            }
+        } finally {
+            Tracing.end();
+        }
+
+        foregroundNotificationId = id;
+        if (previousId != 0 && previousId != id && !sessions.usesNotificationId(previousId)) {
+            // The old foreground notification stays posted once detached
+            cancelNotification(previousId);
+        }
+    }
+
+    /**
+     * @return true if the sessions need a different type mask than the service runs with
+     */
+    private boolean isTypeMaskChanged() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE
+            && ServiceTypeManager.getServiceTypeMask(sessions.getServiceTypes()) != foregroundTypeMask;
+    }
+
+    /**
+     * Post the notification of a session that does not back startForeground
+     */
+    private void notifySession(ServiceSessions.Session session) {
+        NotificationManager mNotificationManager =
+            (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (mNotificationManager != null) {
+            mNotificationManager.notify(session.getNotificationId(), session.notification);
+            MetricsRegistry.NOTIFY_CALLS.incrementAndGet();
+        }
+    }
+
+    private void cancelNotification(int id) {
+        NotificationManager mNotificationManager =
+            (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (mNotificationManager != null) {
+            mNotificationManager.cancel(id);
+        }
+    }
+
+    /**
+     * Looping task runner of a session
+     *
+     * A batching loop (batchTasks) sends the ids of the session's due tasks
+     * (TaskSchedule) in one headless invocation, then sleeps until the next
+     * task is due, keeping at least loopDelay between ticks so tasks due close
+     * together share one; with nothing to run it sleeps until tasks change.
+     * Other loops start the headless task every loopDelay.
+     */
+    private final class TaskLoop implements Runnable {
+        final Bundle taskConfig;
+        private final String sessionName;
+        final boolean batchTasks;
+        private long nextTickUptime = 0;
+        private long lastTickUptime = 0;
+        /** Sleep before the pending tick (-1 if none is pending) */
+        long delayMs = -1;
+
+        /**
+         * @param taskConfig Task configuration of the loop
+         */
+        TaskLoop(Bundle taskConfig) {
+            this.taskConfig = taskConfig;
+            this.sessionName = ServiceSessions.nameOf(taskConfig);
+            this.batchTasks = taskConfig.getBoolean("batchTasks", false);
+        }
+
+        @Override
+        public void run() {
+            if (!isServiceCreated() || stateMachine.getStartCount() <= 0) {
+                Logger.d(TAG, "Task runner stopped - service not running");
+                return;
+            }
+
+            Tracing.begin(Tracing.LOOP_TICK);
+            try {
+                if (!batchTasks) {
+                    dispatchHeadlessTask(taskConfig, null);
+                } else {
+                    String[] taskIds = taskSchedule.collectDue(
+                        sessionName,
+                        SystemClock.elapsedRealtime(),
+                        ForegroundServiceTask.getActiveTaskCount() > 0
+                    );
+                    if (taskIds.length > 0) {
+                        try {
+                            dispatchHeadlessTask(taskConfig, taskIds);
+                        } catch (RuntimeException e) {
+                            // The tasks never ran: give their concurrency permits back
+                            taskSchedule.release(taskIds);
+                            throw e;
+                        }
+                        MetricsRegistry.BATCHED_DISPATCHES.incrementAndGet();
+                        MetricsRegistry.BATCHED_TASKS.addAndGet(taskIds.length);
+                        // Save the advanced due times (one-shot tasks are gone)
+                        persistState();
+                    } else {
+                        MetricsRegistry.IDLE_TICKS.incrementAndGet();
+                    }
+                }
+
+                long now = SystemClock.uptimeMillis();
+                MetricsRegistry.TICKS.incrementAndGet();
+                if (nextTickUptime > 0) {
+                    long lateness = now - nextTickUptime;
+                    MetricsRegistry.TICK_LATENESS.recordMillis(lateness);
+                    ServiceEvents.tick(taskConfig.getString("taskName"), lateness);
+                }
+
+                lastTickUptime = now;
+                scheduleNextTick();
+            } catch (Exception e) {
+                Logger.e(TAG, "Error in task runner", e);
+            } finally {
+                Tracing.end();
+            }
+        }
 
-                    int loopDelay = (int) taskConfig.getDouble("loopDelay", 5000);
-                    handler.postDelayed(this, loopDelay);
-                } catch (Exception e) {
-                    Log.e(TAG, "Error in task runner", e);
+        /**
+         * Post the next tick, replacing a pending one
+         */
+        void scheduleNextTick() {
+            handler.removeCallbacks(this);
+            long now = SystemClock.uptimeMillis();
+            long loopDelay = TaskSchedule.elasticPeriodMs(
+                (long) taskConfig.getDouble("loopDelay", 5000),
+                (long) taskConfig.getDouble("maxLoopDelay", 0),
+                taskSchedule.getElasticPercent()
+            );
+            long delay = loopDelay * ThermalThrottle.stretchFactor(taskSchedule.getThrottleLevel());
+            if (batchTasks) {
+                long dueIn = taskSchedule.nextDueDelay(sessionName, SystemClock.elapsedRealtime());
+                if (dueIn < 0) {
+                    // Nothing to run; onTaskScheduleChanged wakes the loop
+                    nextTickUptime = 0;
+                    delayMs = -1;
+                    updateTickInterval();
+                    return;
                 }
+                long minDelay = lastTickUptime > 0 ? lastTickUptime + loopDelay - now : 0;
+                delay = Math.max(dueIn, Math.max(0, minDelay));
+            }
+            nextTickUptime = now + delay;
+            delayMs = delay;
+            handler.postDelayed(this, delay);
+            updateTickInterval();
+        }
+    }
+
+    /**
+     * Report the shortest sleep before the pending tick of any task loop as
+     * the tickIntervalMs gauge (0 if no loop has a tick pending)
+     */
+    private void updateTickInterval() {
+        long interval = -1;
+        for (TaskLoop loop : loops.values()) {
+            if (loop.delayMs >= 0 && (interval < 0 || loop.delayMs < interval)) {
+                interval = loop.delayMs;
+            }
+        }
+        MetricsRegistry.TICK_INTERVAL_MS.set(Math.max(0, interval));
+    }
+
+    /**
+     * Start the headless task of a loop
+     *
+     * @param taskConfig Task configuration of the loop
+     * @param taskIds Ids of the due tasks, or null to let JS find them
+     */
+    private void dispatchHeadlessTask(Bundle taskConfig, String[] taskIds) {
+        final Intent service = new Intent(context, ForegroundServiceTask.class);
+        service.putExtras(taskConfig);
+        if (taskIds != null) {
+            service.putExtra("taskIds", taskIds);
+        }
+        service.putExtra(Constants.DISPATCHED_AT, SystemClock.elapsedRealtimeNanos());
+        context.startService(service);
+    }
+
+    /**
+     * Tasks were added or removed: move the next tick of the batching loops
+     * and the task alarm to the new next due time
+     */
+    private void onTaskScheduleChanged() {
+        updateTaskAlarm();
+        if (mInstance != this || stateMachine.getStartCount() <= 0) {
+            // Paused loops stay paused
+            return;
+        }
+        persistState();
+        for (TaskLoop loop : loops.values()) {
+            if (loop.batchTasks) {
+                loop.scheduleNextTick();
             }
-        };
+        }
+    }
+
+    /**
+     * Thermal throttle level changed: apply it to the task schedule (which
+     * reschedules the loops) and report it to JS
+     */
+    private void onThrottleLevelChanged(int level, int thermalStatus) {
+        taskSchedule.setThrottleLevel(level);
+        MetricsRegistry.THERMAL_THROTTLE_CHANGES.incrementAndGet();
+        ServiceEvents.throttleChanged(level, thermalStatus);
+    }
+
+    /**
+     * Power state changed: move elastic tasks within their period range
+     * (the schedule listener reschedules the loops)
+     */
+    private void onElasticPercentChanged(int percent) {
+        taskSchedule.setElasticPercent(percent);
+        MetricsRegistry.POWER_POLICY_CHANGES.incrementAndGet();
+    }
+
+    /**
+     * Set the alarm for the next long-period task wakeup, or cancel it when
+     * the service is not running, no task uses alarms or no task loop can
+     * run them
+     */
+    private void updateTaskAlarm() {
+        if (mInstance != this) {
+            return;
+        }
+        if (stateMachine.getStartCount() <= 0 || findBatchingLoop() == null) {
+            taskAlarms.cancel();
+            return;
+        }
+        try {
+            taskAlarms.update(taskSchedule.nextAlarmWindow());
+        } catch (RuntimeException e) {
+            // e.g. SecurityException from an exact alarm after the permission was revoked
+            Logger.e(TAG, "Failed to set task alarm", e);
+        }
+    }
+
+    /**
+     * Start the task loop of a session
+     */
+    private void startLoop(String sessionName, Bundle taskConfig) {
+        TaskLoop loop = new TaskLoop(taskConfig);
+        loops.put(sessionName, loop);
+        prewarmReactContext();
+        handler.post(loop);
+        if (loop.batchTasks) {
+            // Alarm tasks left due without a loop run now
+            updateTaskAlarm();
+        }
+    }
+
+    /**
+     * Start creating the React context ahead of the first tick, if enabled
+     * by the start config (prewarmReactContext) or the manifest meta-data
+     */
+    private void prewarmReactContext() {
+        Bundle config = lastNotificationConfig;
+        boolean enabled = config != null && config.containsKey("prewarmReactContext")
+            ? config.getBoolean("prewarmReactContext")
+            : new NotificationConfig(this).isPrewarmReactContext();
+        if (enabled) {
+            reactContextWarmer.prewarm();
+        }
+    }
+
+    /**
+     * Stop the task loop of a session
+     */
+    private void stopLoop(String sessionName) {
+        Runnable loop = loops.remove(sessionName);
+        if (loop != null) {
+            handler.removeCallbacks(loop);
+            updateTickInterval();
+        }
+    }
+
+    /**
+     * Pause all task loops (they stay registered)
+     */
+    private void pauseLoops() {
+        for (TaskLoop loop : loops.values()) {
+            handler.removeCallbacks(loop);
+            loop.delayMs = -1;
+        }
+        updateTickInterval();
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         if (intent == null) {
-            Log.w(TAG, "onStartCommand called with null intent");
+            Logger.w(TAG, "onStartCommand called with null intent");
             return START_NOT_STICKY;
         }
 
+        // The async slice the module began for this command ends on every path
+        try {
+            return handleCommand(intent, flags, startId);
+        } finally {
+            Tracing.endCommand(intent.getIntExtra(Constants.TRACE_COOKIE, 0));
+        }
+    }
+
+    /**
+     * Handle a start command with an intent (see onStartCommand)
+     */
+    private int handleCommand(Intent intent, int flags, int startId) {
         String action = intent.getAction();
         if (action == null) {
-            Log.w(TAG, "onStartCommand called with null action");
+            Logger.w(TAG, "onStartCommand called with null action");
             return START_NOT_STICKY;
         }
 
-        Log.d(TAG, "onStartCommand called with action: " + action);
+        Logger.d(TAG, "onStartCommand called with action: ", action);
+        lastStartId = startId;
 
+        if ((flags & (START_FLAG_REDELIVERY | START_FLAG_RETRY)) != 0) {
+            MetricsRegistry.SERVICE_RESTARTS.incrementAndGet();
+            ServiceEvents.restarted(action, (flags & START_FLAG_REDELIVERY) != 0);
+        }
+
+        boolean redelivered = (flags & START_FLAG_REDELIVERY) != 0;
+        if (redelivered && !restoredState && stateMachine.getStartCount() == 0 && sessions.isEmpty()) {
+            // Recreated after process death: one read instead of replaying every command
+            restoredState = restoreState();
+        }
+        if (redelivered && restoredState) {
+            // The restored state already includes what this command did
+            Logger.d(TAG, "Skipping redelivered command, state was restored: ", action);
+            return START_REDELIVER_INTENT;
+        }
+
+        Tracing.begin(Tracing.sectionForAction(action));
+        try {
+            return dispatchAction(intent, action);
+        } finally {
+            Tracing.end();
+        }
+    }
+
+    /**
+     * Restore the saved state after the OS recreated the service in a new process
+     *
+     * Restarts the sessions (oldest first, so the same session backs
+     * startForeground), the scheduled tasks of those sessions and the task
+     * loops, and sets the start count in one step. No start metrics or started events are recorded for the replayed
+     * state; JS gets a single restored event. Leases are not restored; their
+     * holders died with the process.
+     *
+     * @return true if the service runs with the restored state
+     */
+    private boolean restoreState() {
+        StateStore.Snapshot snapshot = stateStore.restore();
+        if (snapshot == null) {
+            return false;
+        }
+
+        Logger.d(TAG, "Restoring service state, start count: ", snapshot.startCount);
+        int restoredSessions = 0;
+        for (Bundle config : snapshot.sessionConfigs) {
+            if (startSession(config, null)) {
+                restoredSessions++;
+            }
+        }
+        if (restoredSessions == 0) {
+            Logger.e(TAG, "Failed to restore service state");
+            stateStore.clear();
+            return false;
+        }
+
+        // Starts beyond one per session were stacked on the oldest session
+        int count = Math.max(snapshot.startCount, restoredSessions);
+        stateMachine.restore(count);
+        List<TaskSchedule.Entry> tasks = new ArrayList<>();
+        for (TaskSchedule.Entry task : snapshot.tasks) {
+            if (sessions.get(task.session) != null) {
+                tasks.add(task);
+            }
+        }
+        taskSchedule.restore(tasks, SystemClock.elapsedRealtime());
+        for (Map.Entry<String, Bundle> loop : snapshot.loopConfigs.entrySet()) {
+            if (sessions.get(loop.getKey()) != null) {
+                startLoop(loop.getKey(), loop.getValue());
+            }
+        }
+        persistState();
+        updateTaskAlarm();
+        MetricsRegistry.STATE_RESTORES.incrementAndGet();
+        ServiceEvents.restored(count, restoredSessions);
+        return true;
+    }
+
+    /**
+     * Save the running state for recovery after process death (write-behind)
+     */
+    private void persistState() {
+        Map<String, Bundle> loopConfigs = new LinkedHashMap<>();
+        for (Map.Entry<String, TaskLoop> loop : loops.entrySet()) {
+            loopConfigs.put(loop.getKey(), loop.getValue().taskConfig);
+        }
+        stateStore.save(new StateStore.Snapshot(
+            stateMachine.getStartCount(),
+            sessions.getConfigs(),
+            loopConfigs,
+            taskSchedule.getEntries()
+        ));
+    }
+
+    /**
+     * Dispatch an onStartCommand action to its handler
+     *
+     * @return Restart mode for onStartCommand
+     */
+    private int dispatchAction(Intent intent, String action) {
         switch (action) {
             case Constants.ACTION_FOREGROUND_SERVICE_START:
                 handleStartService(intent);
@@ -204,8 +839,20 @@ public class ForegroundService extends Service {
                 handleRunTask(intent);
                 break;
 
+            case Constants.ACTION_UPDATE_SERVICE_TYPE:
+                handleUpdateServiceType(intent);
+                break;
+
             case Constants.ACTION_FOREGROUND_SERVICE_STOP:
-                handleStopService();
+                handleStopService(intent);
+                return START_NOT_STICKY;
+
+            case Constants.ACTION_STOP_SESSION:
+                handleStopSession(intent);
+                return START_NOT_STICKY;
+
+            case Constants.ACTION_TASK_ALARM:
+                handleTaskAlarm();
                 return START_NOT_STICKY;
 
             case Constants.ACTION_FOREGROUND_SERVICE_STOP_ALL:
@@ -213,7 +860,7 @@ public class ForegroundService extends Service {
                 return START_NOT_STICKY;
 
             default:
-                Log.w(TAG, "Unknown action: " + action);
+                Logger.w(TAG, "Unknown action: ", action);
         }
 
         // Service should restart automatically if it's killed
@@ -225,13 +872,69 @@ public class ForegroundService extends Service {
      */
     private void handleStartService(Intent intent) {
         if (intent.getExtras() != null && intent.getExtras().containsKey(NOTIFICATION_CONFIG)) {
+            String leaseId = intent.getStringExtra(Constants.LEASE_ID);
+            boolean coldStart = foregroundNotificationId == 0;
             Bundle notificationConfig = intent.getExtras().getBundle(NOTIFICATION_CONFIG);
-            if (notificationConfig != null) {
-                startService(notificationConfig);
+            if (notificationConfig == null) {
+                // Release a start the module may have marked as pending
+                stateMachine.completeStart(false);
+                leases.release(leaseId);
+            } else if (isRepeatedSessionStart(notificationConfig)) {
+                // A named session holds one start; starting it again only updates it
+                stateMachine.completeStart(false);
+                leases.release(leaseId);
+                updateNotification(notificationConfig);
+            } else if (startService(notificationConfig, leaseId)) {
+                long requestedAt = intent.getLongExtra(Constants.START_REQUESTED_AT, 0);
+                if (requestedAt > 0) {
+                    long latency = SystemClock.elapsedRealtimeNanos() - requestedAt;
+                    MetricsRegistry.START_TO_FOREGROUND.recordNanos(latency);
+                    if (coldStart) {
+                        MetricsRegistry.COLD_START_TO_FOREGROUND.recordNanos(latency);
+                    }
+                }
+                scheduleLeaseTimeout(leaseId);
+            } else {
+                // The start never counted, so its lease must not keep anything alive
+                leases.release(leaseId);
             }
         }
     }
 
+    /**
+     * @return true if the config starts a named session that is already running
+     */
+    private boolean isRepeatedSessionStart(Bundle notificationConfig) {
+        return notificationConfig.getString("session") != null
+            && stateMachine.getStartCount() > 0
+            && sessions.get(ServiceSessions.nameOf(notificationConfig)) != null;
+    }
+
+    /**
+     * Schedule the expiry check for a lease with a timeout
+     */
+    private void scheduleLeaseTimeout(String leaseId) {
+        LeaseRegistry.Lease lease = leases.get(leaseId);
+        if (lease == null || !lease.hasTimeout()) {
+            return;
+        }
+        long remaining = lease.remainingMs(SystemClock.elapsedRealtime());
+        handler.postDelayed(this::releaseExpiredLeases, remaining);
+    }
+
+    /**
+     * Release leases whose holder did not release them before their timeout
+     */
+    private void releaseExpiredLeases() {
+        long now = SystemClock.elapsedRealtime();
+        for (LeaseRegistry.Lease lease : leases.releaseExpired(now)) {
+            Logger.w(TAG, "Lease expired without release: ", lease.name != null ? lease.name : lease.id);
+            MetricsRegistry.LEASES_EXPIRED.incrementAndGet();
+            ServiceEvents.leaseExpired(lease.id, lease.name, now - lease.acquiredAt);
+            releaseStart();
+        }
+    }
+
     /**
      * Handle ACTION_UPDATE_NOTIFICATION
      */
@@ -244,30 +947,120 @@ public class ForegroundService extends Service {
         if (notificationConfig == null) {
             return;
         }
+        MetricsRegistry.NOTIFICATION_UPDATE_REQUESTS.incrementAndGet();
 
-        if (running <= 0) {
-            Log.d(TAG, "Update notification called without running service, trying to restart");
+        if (stateMachine.getStartCount() <= 0) {
+            Logger.d(TAG, "Update notification called without running service, trying to restart");
             startService(notificationConfig);
-        } else {
-            try {
-                int id = (int) notificationConfig.getDouble("id");
+        } else if (!deferThrottledUpdate(notificationConfig)) {
+            updateNotification(notificationConfig);
+        }
+    }
 
-                Notification notification = NotificationHelper
-                    .getInstance(context)
-                    .buildNotification(context, notificationConfig);
+    /**
+     * While thermally throttled, hold back a notification update that comes
+     * too soon after the previous one of its session; only the newest held
+     * update is posted, once the interval has passed
+     *
+     * @return true if the update was deferred
+     */
+    private boolean deferThrottledUpdate(Bundle notificationConfig) {
+        long intervalMs = thermalThrottle.getNotificationIntervalMs();
+        String sessionName = ServiceSessions.nameOf(notificationConfig);
+        Long last = lastNotifyUptime.get(sessionName);
+        long now = SystemClock.uptimeMillis();
+        if (intervalMs <= 0 || last == null || now - last >= intervalMs) {
+            return false;
+        }
+        if (throttledUpdates.put(sessionName, notificationConfig) == null) {
+            handler.postDelayed(() -> {
+                Bundle pending = throttledUpdates.remove(sessionName);
+                if (pending != null && stateMachine.getStartCount() > 0) {
+                    updateNotification(pending);
+                }
+            }, last + intervalMs - now);
+        }
+        MetricsRegistry.THROTTLED_NOTIFICATION_UPDATES.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Rebuild and post the notification of a running session
+     */
+    private void updateNotification(Bundle notificationConfig) {
+        try {
+            Notification notification = NotificationHelper
+                .getInstance(context)
+                .buildNotification(context, notificationConfig);
 
-                if (notification != null) {
-                    NotificationManager mNotificationManager =
-                        (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-                    if (mNotificationManager != null) {
-                        mNotificationManager.notify(id, notification);
-                        lastNotificationConfig = notificationConfig;
-                        Log.d(TAG, "Notification updated successfully");
+            if (notification != null) {
+                NotificationManager mNotificationManager =
+                    (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+                if (mNotificationManager != null) {
+                    mNotificationManager.notify((int) notificationConfig.getDouble("id"), notification);
+                    MetricsRegistry.NOTIFY_CALLS.incrementAndGet();
+                    String sessionName = ServiceSessions.nameOf(notificationConfig);
+                    lastNotifyUptime.put(sessionName, SystemClock.uptimeMillis());
+                    ServiceSessions.Session session = sessions.get(sessionName);
+                    if (session != null) {
+                        sessions.put(session.withNotification(notificationConfig, notification));
                     }
+                    lastNotificationConfig = notificationConfig;
+                    persistState();
+                    Logger.d(TAG, "Notification updated successfully");
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to update notification", e);
             }
+        } catch (Exception e) {
+            Logger.e(TAG, "Failed to update notification", e);
+        }
+    }
+
+    /**
+     * Handle ACTION_UPDATE_SERVICE_TYPE
+     *
+     * Changes the type of one session (the foreground session if none is
+     * named) and calls startForeground again with the new combined type mask
+     * and the current notification, so the notification is not rebuilt or
+     * removed.
+     */
+    private void handleUpdateServiceType(Intent intent) {
+        String serviceType = intent.getStringExtra(Constants.SERVICE_TYPE);
+        String sessionName = intent.getStringExtra(Constants.SESSION);
+        ServiceSessions.Session foreground = sessions.getForeground();
+        ServiceSessions.Session session = sessionName != null ? sessions.get(sessionName) : foreground;
+        if (serviceType == null || stateMachine.getStartCount() <= 0 || session == null || foreground == null) {
+            Logger.w(TAG, "Service type update ignored, session is not running: ", serviceType);
+            return;
+        }
+
+        // Restarts (update, runTask, redelivery) use the new type from here on
+        ServiceSessions.Session updated = session.withServiceType(serviceType);
+        sessions.put(updated);
+        if (session == foreground) {
+            lastNotificationConfig = updated.config;
+        }
+
+        // Types come from the manifest before Android 14
+        if (!isTypeMaskChanged()) {
+            persistState();
+            return;
+        }
+
+        try {
+            startForegroundSession(sessions.getForeground());
+            String serviceTypes = sessions.getServiceTypes();
+            persistState();
+            MetricsRegistry.SERVICE_TYPE_CHANGES.incrementAndGet();
+            ServiceEvents.serviceTypeChanged(serviceTypes);
+            Logger.d(TAG, "Foreground service type changed to: ", serviceTypes);
+        } catch (Exception e) {
+            // e.g. location from the background without a while-in-use exemption
+            sessions.put(session);
+            if (session == foreground) {
+                lastNotificationConfig = session.config;
+            }
+            MetricsRegistry.SERVICE_TYPE_CHANGE_FAILURES.incrementAndGet();
+            Logger.e(TAG, "Failed to change foreground service type to " + serviceType, e);
         }
     }
 
@@ -276,29 +1069,35 @@ public class ForegroundService extends Service {
      */
     private void handleRunTask(Intent intent) {
         if (intent.getExtras() == null || !intent.getExtras().containsKey(TASK_CONFIG)) {
-            Log.w(TAG, "Run task called without task config");
+            Logger.w(TAG, "Run task called without task config");
             return;
         }
 
         // Check if service is running
-        if (running <= 0 && lastNotificationConfig == null) {
-            Log.e(TAG, "Service is not running to execute tasks");
-            stopSelf();
+        boolean running = stateMachine.getStartCount() > 0;
+        if (!running && graceStop != null) {
+            // Stopped by JS; the grace period only waits for a new start
+            Logger.w(TAG, "Run task called during stop grace period, ignoring");
+            return;
+        }
+        if (!running && lastNotificationConfig == null) {
+            Logger.e(TAG, "Service is not running to execute tasks");
+            stopSelf(lastStartId);
             return;
         }
 
         // Try to restart service if it was killed
-        if (running <= 0) {
-            Log.d(TAG, "Run task called without running service, trying to restart");
+        if (!running) {
+            Logger.d(TAG, "Run task called without running service, trying to restart");
             if (!startService(lastNotificationConfig)) {
-                Log.e(TAG, "Failed to restart service for task execution");
+                Logger.e(TAG, "Failed to restart service for task execution");
                 return;
             }
         }
 
-        taskConfig = intent.getExtras().getBundle(TASK_CONFIG);
+        Bundle taskConfig = intent.getExtras().getBundle(TASK_CONFIG);
         if (taskConfig == null) {
-            Log.w(TAG, "Task config bundle is null");
+            Logger.w(TAG, "Task config bundle is null");
             return;
         }
 
@@ -306,54 +1105,240 @@ public class ForegroundService extends Service {
             boolean onLoop = taskConfig.getBoolean("onLoop", false);
 
             if (onLoop) {
-                // Start looping task runner
-                initializeTaskRunner();
-                if (runnableCode != null) {
-                    handler.post(runnableCode);
-                    Log.d(TAG, "Started looping task runner");
-                }
+                // Replace the session's running loop instead of running two
+                String sessionName = ServiceSessions.nameOf(taskConfig);
+                stopLoop(sessionName);
+                startLoop(sessionName, taskConfig);
+                persistState();
+                Logger.d(TAG, "Started looping task runner for session: ", sessionName);
             } else {
                 // Execute one-time task
                 runHeadlessTask(taskConfig);
-                Log.d(TAG, "Executed one-time headless task");
+                Logger.d(TAG, "Executed one-time headless task");
             }
         } catch (Exception e) {
-            Log.e(TAG, "Failed to start task", e);
+            Logger.e(TAG, "Failed to start task", e);
+        }
+    }
+
+    /**
+     * Handle ACTION_TASK_ALARM
+     *
+     * Runs every long-period task that is due in one headless invocation,
+     * then sets the alarm for the next wakeup.
+     */
+    private void handleTaskAlarm() {
+        taskAlarms.onFired();
+        if (stateMachine.getStartCount() <= 0) {
+            Logger.d(TAG, "Task alarm ignored, service is not running");
+            if (graceStop == null) {
+                // Created only to handle this alarm
+                stopSelf(lastStartId);
+            }
+            return;
+        }
+
+        TaskLoop loop = findBatchingLoop();
+        if (loop == null) {
+            // Leave the due tasks in the schedule; starting a loop sets the alarm again
+            Logger.w(TAG, "Task alarm fired without a task loop to run it");
+            updateTaskAlarm();
+            return;
+        }
+
+        String[] taskIds = taskSchedule.collectDueAlarms(SystemClock.elapsedRealtime());
+        if (taskIds.length > 0) {
+            try {
+                dispatchHeadlessTask(loop.taskConfig, taskIds);
+                MetricsRegistry.TASK_ALARM_WAKEUPS.incrementAndGet();
+                MetricsRegistry.TASK_ALARM_TASKS.addAndGet(taskIds.length);
+            } catch (RuntimeException e) {
+                // The tasks never ran: give their concurrency permits back
+                taskSchedule.release(taskIds);
+                Logger.e(TAG, "Failed to run alarm tasks", e);
+            }
+            persistState();
+        }
+        updateTaskAlarm();
+    }
+
+    /**
+     * @return A task loop that sends task ids (started by the JS manager), or null
+     */
+    private TaskLoop findBatchingLoop() {
+        for (TaskLoop loop : loops.values()) {
+            if (loop.batchTasks) {
+                return loop;
+            }
         }
+        return null;
     }
 
     /**
      * Handle ACTION_FOREGROUND_SERVICE_STOP
+     *
+     * The module has already released the caller's lease (if any), so each
+     * stop intent releases exactly one start.
+     */
+    private void handleStopService(Intent intent) {
+        String leaseId = intent.getStringExtra(Constants.LEASE_ID);
+        // The module released the lease before sending the stop. Without one,
+        // only a start no lease accounts for (restored after process death) goes.
+        if (leaseId == null && stateMachine.getStartCount() <= leases.size()) {
+            Logger.d(TAG, "Stop ignored, it released no lease");
+            if (stateMachine.getStartCount() <= 0 && graceStop == null) {
+                // Created only to handle this command
+                stopSelf(lastStartId);
+            }
+            return;
+        }
+        Logger.d(TAG, "Stop requested for lease: ", leaseId);
+        releaseStart();
+    }
+
+    /**
+     * Handle ACTION_STOP_SESSION
+     *
+     * Removes the session's notification and task loop and releases its
+     * start. If the session backed startForeground, the oldest remaining
+     * session takes over; the type mask narrows to the remaining sessions.
      */
-    private void handleStopService() {
-        if (running > 0) {
-            running -= 1;
-            Log.d(TAG, "Service stop requested. Running count: " + running);
+    private void handleStopSession(Intent intent) {
+        String sessionName = intent.getStringExtra(Constants.SESSION);
+        ServiceSessions.Session session = sessionName != null ? sessions.remove(sessionName) : null;
+        if (session == null) {
+            Logger.d(TAG, "Stop session ignored, session is not running: ", sessionName);
+            if (stateMachine.getStartCount() <= 0 && graceStop == null) {
+                // Created only to handle this command
+                stopSelf(lastStartId);
+            }
+            return;
+        }
 
-            if (running == 0) {
-                Log.d(TAG, "Stopping foreground service");
-                cleanupResources();
-                stopSelf();
-                lastNotificationConfig = null;
+        stopLoop(sessionName);
+        if (!sessions.isEmpty()) {
+            try {
+                ServiceSessions.Session foreground = sessions.getForeground();
+                if (foreground == null) {
+                    startForegroundSession(sessions.promoteForeground());
+                } else {
+                    if (!sessions.usesNotificationId(session.getNotificationId())) {
+                        cancelNotification(session.getNotificationId());
+                    }
+                    if (isTypeMaskChanged()) {
+                        startForegroundSession(foreground);
+                    }
+                }
+            } catch (Exception e) {
+                Logger.e(TAG, "Failed to hand over foreground state from session " + sessionName, e);
             }
+        }
+
+        persistState();
+
+        // The start is already released if its lease was released or expired
+        if (session.leaseId == null || leases.release(session.leaseId) != null) {
+            releaseStart();
+        }
+    }
+
+    /**
+     * Release one start and stop the service when none are left
+     */
+    private void releaseStart() {
+        boolean wasRunning = stateMachine.getStartCount() > 0;
+        int count = stateMachine.release();
+        Logger.d(TAG, "Service stop requested. Running count: ", count);
+
+        if (count > 0) {
+            persistState();
         } else {
-            Log.d(TAG, "Service is not running, stopping anyway");
-            cleanupResources();
-            stopSelf();
-            lastNotificationConfig = null;
+            // Nothing to bring back if the process dies from here on
+            stateStore.clear();
+            if (graceStop != null) {
+                // Already waiting out the grace period
+                return;
+            }
+            int graceMs = wasRunning ? getStopGraceMs() : 0;
+            if (graceMs > 0) {
+                Logger.d(TAG, "Keeping foreground state after last stop for ms: ", graceMs);
+                pauseLoops();
+                graceStop = this::finishStopGrace;
+                handler.postDelayed(graceStop, graceMs);
+                return;
+            }
+            if (wasRunning) {
+                Logger.d(TAG, "Stopping foreground service");
+            } else {
+                Logger.d(TAG, "Service is not running, stopping anyway");
+            }
+            stopNow(wasRunning);
+        }
+    }
+
+    /**
+     * Stop grace period ended without a new start
+     */
+    private void finishStopGrace() {
+        graceStop = null;
+        if (stateMachine.getStartCount() > 0) {
+            return;
+        }
+        Logger.d(TAG, "Stop grace period ended, stopping foreground service");
+        stopNow(true);
+    }
+
+    /**
+     * Cancel a pending stop grace period
+     *
+     * @return true if the service was in its grace period
+     */
+    private boolean cancelStopGrace() {
+        if (graceStop == null) {
+            return false;
+        }
+        handler.removeCallbacks(graceStop);
+        graceStop = null;
+        return true;
+    }
+
+    /**
+     * Tear down and stop the service
+     */
+    private void stopNow(boolean wasRunning) {
+        cleanupResources();
+        lastNotificationConfig = null;
+        // Only stops if no newer start command is pending
+        stopSelf(lastStartId);
+        if (wasRunning) {
+            ServiceEvents.stopped(false);
+        }
+    }
+
+    /**
+     * Grace period after the last stop, from the last start config
+     * (stopGraceMs) or the manifest meta-data
+     */
+    private int getStopGraceMs() {
+        Bundle config = lastNotificationConfig;
+        if (config != null && config.containsKey("stopGraceMs")) {
+            return (int) Math.max(0, config.getDouble("stopGraceMs"));
         }
+        return new NotificationConfig(this).getStopGraceMs();
     }
 
     /**
      * Handle ACTION_FOREGROUND_SERVICE_STOP_ALL
      */
     private void handleStopServiceAll() {
-        Log.d(TAG, "Force stopping foreground service");
-        running = 0;
+        Logger.d(TAG, "Force stopping foreground service");
+        stateMachine.stopAll();
+        leases.clear();
         cleanupResources();
-        mInstance = null;
         lastNotificationConfig = null;
-        stopSelf();
+        stateStore.clear();
+        stopSelf(lastStartId);
+        ServiceEvents.stopped(true);
     }
 
     /**
@@ -362,12 +1347,18 @@ public class ForegroundService extends Service {
     private void cleanupResources() {
         if (handler != null) {
             handler.removeCallbacksAndMessages(null);
-            Log.d(TAG, "Handler callbacks cleared");
-        }
-        if (runnableCode != null) {
-            runnableCode = null;
+            Logger.d(TAG, "Handler callbacks cleared");
         }
-        taskConfig = null;
+        loops.clear();
+        updateTickInterval();
+        sessions.clear();
+        reactContextWarmer.release();
+        taskAlarms.cancel();
+        throttledUpdates.clear();
+        lastNotifyUptime.clear();
+        graceStop = null;
+        foregroundNotificationId = 0;
+        foregroundTypeMask = 0;
     }
 
     /**
@@ -383,20 +1374,25 @@ public class ForegroundService extends Service {
 
         if (delay <= 0) {
             // Execute immediately
+            service.putExtra(Constants.DISPATCHED_AT, SystemClock.elapsedRealtimeNanos());
             context.startService(service);
         } else {
             // Execute after delay
+            prewarmReactContext();
             new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
                 @Override
                 public void run() {
-                    if (running <= 0) {
-                        Log.d(TAG, "Service stopped before delayed task could execute");
+                    if (mInstance != ForegroundService.this || stateMachine.getStartCount() <= 0) {
+                        Logger.d(TAG, "Service stopped before delayed task could execute");
+                        MetricsRegistry.TASKS_DROPPED.incrementAndGet();
+                        ServiceEvents.taskDropped(bundle.getString("taskName"), "serviceStopped");
                         return;
                     }
                     try {
+                        service.putExtra(Constants.DISPATCHED_AT, SystemClock.elapsedRealtimeNanos());
                         context.startService(service);
                     } catch (Exception e) {
-                        Log.e(TAG, "Failed to start delayed headless task", e);
+                        Logger.e(TAG, "Failed to start delayed headless task", e);
                     }
                 }
             }, delay);
@@ -1,17 +1,24 @@
 package com.kirenpaul.foregroundservice;
 
 import android.Manifest;
+import android.content.ComponentCallbacks;
 import android.content.ComponentName;
 import android.content.Intent;
+import android.content.res.Configuration;
 import android.content.pm.PackageManager;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
 import androidx.core.content.ContextCompat;
 
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
 import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.module.annotations.ReactModule;
 
 import java.util.HashMap;
@@ -26,22 +33,75 @@ import java.util.Map;
  * Key features:
  * - Android 13+ POST_NOTIFICATIONS permission checking
  * - Android 14+ foreground service type validation
+ * - Cached permission snapshot, refreshed on host resume and configuration changes
+ * - Deferred retry of starts refused in the background (Android 12+)
  * - Full error handling and validation
  * - TurboModule architecture for React Native New Architecture
  */
 @ReactModule(name = ForegroundServiceModule.NAME)
-public class ForegroundServiceModule extends NativeForegroundServiceSpec {
+public class ForegroundServiceModule extends NativeForegroundServiceSpec
+    implements LifecycleEventListener {
 
     public static final String NAME = "ForegroundService";
     private static final String TAG = "ForegroundServiceModule";
 
     private final ReactApplicationContext reactContext;
     private final PermissionChecker permissionChecker;
+    private final ComponentCallbacks configurationCallbacks;
+    private final StartScheduler startScheduler;
 
     public ForegroundServiceModule(ReactApplicationContext reactContext) {
         super(reactContext);
         this.reactContext = reactContext;
         this.permissionChecker = new PermissionChecker(reactContext);
+        this.startScheduler = new StartScheduler(this::dispatchStart);
+        this.configurationCallbacks = new ComponentCallbacks() {
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+                permissionChecker.invalidate();
+            }
+
+            @Override
+            public void onLowMemory() {
+            }
+        };
+        Logger.init(reactContext);
+        ServiceEventEmitter.getInstance().attach(reactContext);
+        reactContext.addLifecycleEventListener(this);
+        reactContext.getApplicationContext().registerComponentCallbacks(configurationCallbacks);
+
+        // Resolve placeholder notification resources before the first cold start
+        reactContext.runOnNativeModulesQueueThread(() ->
+            NotificationHelper.getInstance(reactContext.getApplicationContext()).prewarm()
+        );
+    }
+
+    @Override
+    public void invalidate() {
+        ServiceEvents.setEnabled(false);
+        ServiceEventEmitter.getInstance().detach();
+        startScheduler.cancelAll("Module invalidated before the deferred start succeeded");
+        reactContext.removeLifecycleEventListener(this);
+        reactContext.getApplicationContext().unregisterComponentCallbacks(configurationCallbacks);
+        super.invalidate();
+    }
+
+    /**
+     * The user may have changed permissions while the app was in the
+     * background, and a foreground app may start deferred starts
+     */
+    @Override
+    public void onHostResume() {
+        permissionChecker.invalidate();
+        startScheduler.retryNow();
+    }
+
+    @Override
+    public void onHostPause() {
+    }
+
+    @Override
+    public void onHostDestroy() {
     }
 
     @Override
@@ -63,8 +123,25 @@ public class ForegroundServiceModule extends NativeForegroundServiceSpec {
     /**
      * Start the foreground service with notification
      *
+     * If the config contains reuseRunning: true and the service is already
+     * starting or running, no new start is dispatched and the promise resolves
+     * to null. The check and the start are one atomic state transition.
+     *
+     * Every dispatched start holds a lease until releaseLease (or stopService)
+     * releases it. The config may name the lease (leaseName) and give it a
+     * timeout (leaseTimeoutMs), after which the service releases it itself.
+     *
+     * If Android 12+ refuses the start because the app is in the background,
+     * the start is deferred: the promise stays pending until a retry succeeds
+     * (see StartScheduler) and rejects with ERROR_START_NOT_ALLOWED if it
+     * never does. Releasing the lease cancels a deferred start.
+     *
+     * A config with a session name starts that session next to the others.
+     * A named session holds one start: starting it again while it runs only
+     * updates its notification and resolves to null.
+     *
      * @param notificationConfig Notification configuration from JavaScript
-     * @param promise Promise to resolve/reject
+     * @param promise Promise that resolves to the lease id, or null if no start was dispatched
      */
     @ReactMethod
     public void startService(ReadableMap notificationConfig, Promise promise) {
@@ -106,20 +183,49 @@ public class ForegroundServiceModule extends NativeForegroundServiceSpec {
             }
         }
 
-        try {
-            Intent intent = new Intent(reactContext, ForegroundService.class);
-            intent.setAction(Constants.ACTION_FOREGROUND_SERVICE_START);
-            intent.putExtra(Constants.NOTIFICATION_CONFIG, Arguments.toBundle(notificationConfig));
+        ServiceStateMachine stateMachine = ForegroundService.getStateMachine();
+        if (hasValue(notificationConfig, "session")
+            && stateMachine.getStartCount() > 0
+            && ForegroundService.getSessions().get(notificationConfig.getString("session")) != null) {
+            // Resolves to null, like a start that was not dispatched
+            updateNotification(notificationConfig, promise);
+            return;
+        }
 
-            // Use startForegroundService for Android O+
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                reactContext.startForegroundService(intent);
-            } else {
-                reactContext.startService(intent);
+        boolean reuseRunning = notificationConfig.hasKey("reuseRunning")
+            && notificationConfig.getBoolean("reuseRunning");
+        if (reuseRunning) {
+            if (!stateMachine.tryBeginStart()) {
+                promise.resolve(null);
+                return;
             }
+        } else {
+            stateMachine.beginStart();
+        }
 
-            promise.resolve(null);
-        } catch (IllegalStateException | SecurityException e) {
+        LeaseRegistry leases = ForegroundService.getLeaseRegistry();
+        LeaseRegistry.Lease lease = leases.acquire(
+            hasValue(notificationConfig, "leaseName") ? notificationConfig.getString("leaseName") : null,
+            hasValue(notificationConfig, "leaseTimeoutMs") ? (long) notificationConfig.getDouble("leaseTimeoutMs") : 0
+        );
+
+        Intent intent = createServiceIntent(Constants.ACTION_FOREGROUND_SERVICE_START);
+        intent.putExtra(Constants.NOTIFICATION_CONFIG, Arguments.toBundle(notificationConfig));
+        intent.putExtra(Constants.START_REQUESTED_AT, SystemClock.elapsedRealtimeNanos());
+        intent.putExtra(Constants.LEASE_ID, lease.id);
+
+        try {
+            dispatchStart(intent);
+            promise.resolve(lease.id);
+        } catch (RuntimeException e) {
+            // Any failure must drop its pending start, or reuseRunning starts resolve null for good
+            stateMachine.cancelStart();
+            if (StartScheduler.isStartNotAllowed(e)) {
+                // Resolved by the scheduler once a retry gets through
+                startScheduler.defer(intent, lease.id, reuseRunning, promise);
+                return;
+            }
+            leases.release(lease.id);
             promise.reject(
                 Constants.ERROR_SERVICE_ERROR,
                 "Failed to start foreground service: " + e.getMessage(),
@@ -128,62 +234,153 @@ public class ForegroundServiceModule extends NativeForegroundServiceSpec {
         }
     }
 
+    /**
+     * Send a start intent (startForegroundService on Android O+)
+     */
+    private void dispatchStart(Intent intent) {
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                reactContext.startForegroundService(intent);
+            } else {
+                reactContext.startService(intent);
+            }
+        } catch (RuntimeException e) {
+            endTrace(intent);
+            throw e;
+        }
+    }
+
+    /**
+     * Send a command intent to the running (or a new) service
+     *
+     * @return Service component, or null if the service could not be started
+     */
+    private ComponentName sendCommand(Intent intent) {
+        try {
+            ComponentName componentName = reactContext.startService(intent);
+            if (componentName == null) {
+                endTrace(intent);
+            }
+            return componentName;
+        } catch (RuntimeException e) {
+            endTrace(intent);
+            throw e;
+        }
+    }
+
+    /**
+     * End the trace slice of an intent that did not reach the service
+     *
+     * The cookie is removed, so a retry of the intent does not end it twice.
+     */
+    private static void endTrace(Intent intent) {
+        Tracing.endCommand(intent.getIntExtra(Constants.TRACE_COOKIE, 0));
+        intent.removeExtra(Constants.TRACE_COOKIE);
+    }
+
+    /**
+     * Retry deferred starts now
+     *
+     * Call this when the app is allowed to start a foreground service from
+     * the background, e.g. from a high-priority FCM message or an exact alarm.
+     * Deferred starts are also retried with backoff and on host resume.
+     *
+     * @param promise Promise to resolve
+     */
+    @ReactMethod
+    public void retryDeferredStarts(Promise promise) {
+        startScheduler.retryNow();
+        promise.resolve(null);
+    }
+
     /**
      * Stop the foreground service (decrements internal counter)
      *
+     * Releases the most recently acquired lease. Callers holding a lease id
+     * should use releaseLease instead, which cannot release another caller's start.
+     *
      * @param promise Promise to resolve/reject
      */
     @ReactMethod
     public void stopService(Promise promise) {
-        Intent intent = new Intent(reactContext, ForegroundService.class);
-        intent.setAction(Constants.ACTION_FOREGROUND_SERVICE_STOP);
-
-        try {
-            // Send stop action via startService (service will handle decrement and stop if needed)
-            reactContext.startService(intent);
-            promise.resolve(null);
-        } catch (IllegalStateException e) {
-            // If startService fails, try stopService as fallback
-            try {
-                reactContext.stopService(intent);
+        Intent intent = createServiceIntent(Constants.ACTION_FOREGROUND_SERVICE_STOP);
+        LeaseRegistry.Lease lease = ForegroundService.getLeaseRegistry().releaseNewest();
+        if (lease != null) {
+            if (startScheduler.cancel(lease.id)) {
+                // Cancels the deferred start; nothing reached the service
                 promise.resolve(null);
-            } catch (Exception e2) {
-                promise.reject(
-                    Constants.ERROR_SERVICE_ERROR,
-                    "Service stop failed: " + e2.getMessage(),
-                    e2
-                );
+                return;
             }
+            intent.putExtra(Constants.LEASE_ID, lease.id);
         }
+
+        // Send stop action via startService (service will handle decrement and stop if needed)
+        dispatchStop(intent, null, "Service stop failed: ", promise);
     }
 
     /**
-     * Force stop the foreground service regardless of start counter
+     * Release a start lease
      *
-     * @param promise Promise to resolve/reject
+     * Idempotent: releasing a lease that was already released (or expired)
+     * does nothing and resolves to false.
+     *
+     * @param leaseId Lease id returned by startService
+     * @param promise Promise that resolves to true if the lease was held
      */
     @ReactMethod
-    public void stopServiceAll(Promise promise) {
-        Intent intent = new Intent(reactContext, ForegroundService.class);
-        intent.setAction(Constants.ACTION_FOREGROUND_SERVICE_STOP_ALL);
+    public void releaseLease(String leaseId, Promise promise) {
+        if (ForegroundService.getLeaseRegistry().release(leaseId) == null) {
+            MetricsRegistry.LEASE_DUPLICATE_RELEASES.incrementAndGet();
+            Logger.d(TAG, "Lease not held, ignoring release: ", leaseId);
+            promise.resolve(false);
+            return;
+        }
+        if (startScheduler.cancel(leaseId)) {
+            // Cancels the deferred start; nothing reached the service
+            promise.resolve(true);
+            return;
+        }
+
+        Intent intent = createServiceIntent(Constants.ACTION_FOREGROUND_SERVICE_STOP);
+        intent.putExtra(Constants.LEASE_ID, leaseId);
+        dispatchStop(intent, true, "Lease release failed: ", promise);
+    }
 
+    /**
+     * Get the leases currently keeping the service alive
+     *
+     * @param promise Promise that resolves to an array of leases, oldest first
+     */
+    @ReactMethod
+    public void getLeases(Promise promise) {
         try {
-            reactContext.startService(intent);
-            promise.resolve(null);
-        } catch (IllegalStateException e) {
-            try {
-                reactContext.stopService(intent);
-                promise.resolve(null);
-            } catch (Exception e2) {
-                promise.reject(
-                    Constants.ERROR_SERVICE_ERROR,
-                    "Service stop all failed: " + e2.getMessage(),
-                    e2
-                );
+            long now = SystemClock.elapsedRealtime();
+            WritableArray result = Arguments.createArray();
+            for (LeaseRegistry.Lease lease : ForegroundService.getLeaseRegistry().snapshot()) {
+                result.pushMap(Arguments.fromBundle(lease.toBundle(now)));
             }
+            promise.resolve(result);
+        } catch (Exception e) {
+            promise.reject(
+                Constants.ERROR_SERVICE_ERROR,
+                "Failed to get leases: " + e.getMessage(),
+                e
+            );
         }
     }
 
+    /**
+     * Force stop the foreground service regardless of start counter
+     *
+     * @param promise Promise to resolve/reject
+     */
+    @ReactMethod
+    public void stopServiceAll(Promise promise) {
+        startScheduler.cancelAll("Service stopped before the deferred start succeeded");
+        Intent intent = createServiceIntent(Constants.ACTION_FOREGROUND_SERVICE_STOP_ALL);
+        dispatchStop(intent, null, "Service stop all failed: ", promise);
+    }
+
     /**
      * Update notification of running service
      *
@@ -197,11 +394,10 @@ public class ForegroundServiceModule extends NativeForegroundServiceSpec {
         }
 
         try {
-            Intent intent = new Intent(reactContext, ForegroundService.class);
-            intent.setAction(Constants.ACTION_UPDATE_NOTIFICATION);
+            Intent intent = createServiceIntent(Constants.ACTION_UPDATE_NOTIFICATION);
             intent.putExtra(Constants.NOTIFICATION_CONFIG, Arguments.toBundle(notificationConfig));
 
-            ComponentName componentName = reactContext.startService(intent);
+            ComponentName componentName = sendCommand(intent);
             if (componentName != null) {
                 promise.resolve(null);
             } else {
@@ -219,19 +415,112 @@ public class ForegroundServiceModule extends NativeForegroundServiceSpec {
         }
     }
 
+    /**
+     * Stop a named session
+     *
+     * Removes the session's notification and task loop and releases its
+     * start. The service keeps running while other sessions or starts remain.
+     *
+     * @param session Session name given to startService
+     * @param promise Promise to resolve/reject
+     */
+    @ReactMethod
+    public void stopSession(String session, Promise promise) {
+        if (session == null || session.isEmpty()) {
+            promise.reject(Constants.ERROR_INVALID_CONFIG, "session is required");
+            return;
+        }
+
+        Intent intent = createServiceIntent(Constants.ACTION_STOP_SESSION);
+        intent.putExtra(Constants.SESSION, session);
+        dispatchStop(intent, null, "Session stop failed: ", promise);
+    }
+
+    /**
+     * Get the sessions of the running service
+     *
+     * @param promise Promise that resolves to an array of sessions, oldest first
+     */
+    @ReactMethod
+    public void getSessions(Promise promise) {
+        try {
+            WritableArray result = Arguments.createArray();
+            for (Bundle session : ForegroundService.getSessions().snapshot()) {
+                result.pushMap(Arguments.fromBundle(session));
+            }
+            promise.resolve(result);
+        } catch (Exception e) {
+            promise.reject(
+                Constants.ERROR_SERVICE_ERROR,
+                "Failed to get sessions: " + e.getMessage(),
+                e
+            );
+        }
+    }
+
+    /**
+     * Change the foreground service type of the running service
+     *
+     * The service calls startForeground again with the new type mask, keeping
+     * its notification, so there is no stop/start and no notification flicker.
+     * With several sessions, the service runs with the OR of their types.
+     *
+     * @param serviceType One or more service types, combined as 'dataSync|location'
+     * @param session Session to change (null for the session backing the notification)
+     * @param promise Promise to resolve/reject
+     */
+    @ReactMethod
+    public void setServiceType(String serviceType, String session, Promise promise) {
+        if (serviceType == null || serviceType.trim().isEmpty()) {
+            promise.reject(Constants.ERROR_INVALID_CONFIG, "serviceType is required");
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE
+            && !permissionChecker.hasForegroundServicePermission(serviceType)) {
+            promise.reject(
+                Constants.ERROR_PERMISSION_DENIED,
+                permissionChecker.getPermissionErrorMessage(serviceType)
+            );
+            return;
+        }
+
+        if (ForegroundService.getStateMachine().getStartCount() <= 0) {
+            promise.reject(
+                Constants.ERROR_SERVICE_ERROR,
+                "Service type can only be changed while the service is running"
+            );
+            return;
+        }
+
+        try {
+            Intent intent = createServiceIntent(Constants.ACTION_UPDATE_SERVICE_TYPE);
+            intent.putExtra(Constants.SERVICE_TYPE, serviceType);
+            if (session != null) {
+                intent.putExtra(Constants.SESSION, session);
+            }
+            sendCommand(intent);
+            promise.resolve(null);
+        } catch (IllegalStateException | SecurityException e) {
+            promise.reject(
+                Constants.ERROR_SERVICE_ERROR,
+                "Failed to change service type: " + e.getMessage(),
+                e
+            );
+        }
+    }
+
     /**
      * Check if service is running
      *
+     * Reads the service state machine directly, so it is safe from the JS
+     * thread and does not need a service instance.
+     *
      * @param promise Promise that resolves to running counter value
      */
     @ReactMethod
     public void isRunning(Promise promise) {
-        ForegroundService instance = ForegroundService.getInstance();
-        int res = 0;
-        if (instance != null) {
-            res = instance.isRunning();
-        }
-        promise.resolve(res);
+        promise.resolve(ForegroundService.getStateMachine().getStartCount());
     }
 
     /**
@@ -253,11 +542,10 @@ public class ForegroundServiceModule extends NativeForegroundServiceSpec {
         }
 
         try {
-            Intent intent = new Intent(reactContext, ForegroundService.class);
-            intent.setAction(Constants.ACTION_FOREGROUND_RUN_TASK);
+            Intent intent = createServiceIntent(Constants.ACTION_FOREGROUND_RUN_TASK);
             intent.putExtra(Constants.TASK_CONFIG, Arguments.toBundle(taskConfig));
 
-            ComponentName componentName = reactContext.startService(intent);
+            ComponentName componentName = sendCommand(intent);
             if (componentName != null) {
                 promise.resolve(null);
             } else {
@@ -275,6 +563,89 @@ public class ForegroundServiceModule extends NativeForegroundServiceSpec {
         }
     }
 
+    /**
+     * Add or replace a JS task in the native task schedule
+     *
+     * Batching task loops send the ids of due tasks to JS, so JS does not
+     * scan its tasks on every tick.
+     *
+     * @param config Task schedule (taskId, delay, maxDelay, onLoop, session, throttle, priority, group)
+     */
+    @ReactMethod
+    public void scheduleTask(ReadableMap config) {
+        if (!config.hasKey("taskId") || !config.hasKey("delay")) {
+            Logger.w(TAG, "scheduleTask ignored, taskId and delay are required");
+            return;
+        }
+        ForegroundService.getTaskSchedule().schedule(
+            config.getString("taskId"),
+            config.hasKey("session") ? config.getString("session") : null,
+            (long) config.getDouble("delay"),
+            config.hasKey("maxDelay") ? (long) config.getDouble("maxDelay") : 0,
+            !config.hasKey("onLoop") || config.getBoolean("onLoop"),
+            TaskSchedule.throttleRuleOf(config.hasKey("throttle") ? config.getString("throttle") : null),
+            TaskSchedule.priorityOf(config.hasKey("priority") ? config.getString("priority") : null),
+            config.hasKey("group") ? config.getString("group") : null,
+            SystemClock.elapsedRealtime()
+        );
+    }
+
+    /**
+     * Remove a JS task from the native task schedule
+     *
+     * @param taskId Task id
+     */
+    @ReactMethod
+    public void cancelTask(String taskId) {
+        ForegroundService.getTaskSchedule().cancel(taskId);
+    }
+
+    /**
+     * Remove the JS tasks of a session from the native task schedule
+     *
+     * @param session Session name, or null for all tasks
+     */
+    @ReactMethod
+    public void cancelTasks(String session) {
+        ForegroundService.getTaskSchedule().cancelSession(session);
+    }
+
+    /**
+     * Set how many due tasks of each priority class one tick dispatches
+     *
+     * Tasks over the limit stay due for the next tick.
+     *
+     * @param critical Limit for critical tasks (0 = no limit)
+     * @param normal Limit for normal tasks (0 = no limit)
+     * @param background Limit for background tasks (0 = no limit)
+     */
+    @ReactMethod
+    public void setTaskClassLimits(double critical, double normal, double background) {
+        ForegroundService.getTaskSchedule().setClassLimits((int) critical, (int) normal, (int) background);
+    }
+
+    /**
+     * Set the limits on scheduled task runs in flight at the same time
+     *
+     * Due tasks over a limit stay due and are dispatched, oldest first,
+     * when the headless invocation holding a permit finishes.
+     *
+     * @param maxConcurrent Limit across all tasks (0 = no limit)
+     * @param groupLimits Limit per task group name
+     */
+    @ReactMethod
+    public void setConcurrencyLimits(double maxConcurrent, ReadableMap groupLimits) {
+        Map<String, Integer> groups = new HashMap<>();
+        if (groupLimits != null) {
+            ReadableMapKeySetIterator iterator = groupLimits.keySetIterator();
+            while (iterator.hasNextKey()) {
+                String group = iterator.nextKey();
+                groups.put(group, (int) groupLimits.getDouble(group));
+            }
+        }
+        ForegroundService.getTaskSchedule().setConcurrencyLimits((int) maxConcurrent, groups);
+    }
+
     /**
      * Cancel a specific notification by ID
      *
@@ -311,14 +682,124 @@ public class ForegroundServiceModule extends NativeForegroundServiceSpec {
     /**
      * Check if POST_NOTIFICATIONS permission is granted (Android 13+)
      *
+     * Always reads fresh state (apps call this right after a permission
+     * request) and refreshes the cached snapshot.
+     *
      * @param promise Promise that resolves to boolean
      */
     @ReactMethod
     public void checkPostNotificationsPermission(Promise promise) {
+        permissionChecker.invalidate();
         boolean hasPermission = permissionChecker.hasPostNotificationsPermission();
         promise.resolve(hasPermission);
     }
 
+    /**
+     * Get a snapshot of the module's metrics (counters and latency histograms)
+     *
+     * @param reset Whether to reset all metrics after taking the snapshot
+     * @param promise Promise that resolves to the metrics snapshot
+     */
+    @ReactMethod
+    public void getMetrics(boolean reset, Promise promise) {
+        try {
+            promise.resolve(Arguments.fromBundle(MetricsRegistry.snapshot(reset)));
+        } catch (Exception e) {
+            promise.reject(
+                Constants.ERROR_SERVICE_ERROR,
+                "Failed to get metrics: " + e.getMessage(),
+                e
+            );
+        }
+    }
+
+    /**
+     * Set the native log level
+     *
+     * @param level 'verbose', 'debug', 'info', 'warn', 'error' or 'none'
+     */
+    @ReactMethod
+    public void setLogLevel(String level) {
+        Logger.setLevel(Logger.parseLevel(level, Logger.getLevel()));
+    }
+
+    /**
+     * Register a JS event listener (required by NativeEventEmitter)
+     *
+     * @param eventName Name of the event being listened to
+     */
+    @ReactMethod
+    public void addListener(String eventName) {
+        ServiceEventEmitter.getInstance().addListener(eventName);
+    }
+
+    /**
+     * Unregister JS event listeners (required by NativeEventEmitter)
+     *
+     * @param count Number of listeners removed
+     */
+    @ReactMethod
+    public void removeListeners(double count) {
+        ServiceEventEmitter.getInstance().removeListeners((int) count);
+    }
+
+    /**
+     * Enable or disable service lifecycle and task telemetry events
+     *
+     * @param enabled true to emit foregroundServiceEvent batches to JS
+     */
+    @ReactMethod
+    public void setServiceEventsEnabled(boolean enabled) {
+        ServiceEvents.setEnabled(enabled);
+    }
+
+    /**
+     * Create an intent for ForegroundService carrying the given action
+     *
+     * When tracing is enabled, an async trace slice is opened here and closed
+     * by the service once it has executed the command.
+     */
+    private Intent createServiceIntent(String action) {
+        Intent intent = new Intent(reactContext, ForegroundService.class);
+        intent.setAction(action);
+        int traceCookie = Tracing.beginCommand();
+        if (traceCookie != 0) {
+            intent.putExtra(Constants.TRACE_COOKIE, traceCookie);
+        }
+        return intent;
+    }
+
+    /**
+     * Deliver a stop intent, falling back to stopService if startService is not allowed
+     *
+     * @param intent Stop intent
+     * @param result Value to resolve the promise with
+     * @param errorPrefix Prefix for the rejection message
+     * @param promise Promise to resolve/reject
+     */
+    private void dispatchStop(Intent intent, Object result, String errorPrefix, Promise promise) {
+        try {
+            sendCommand(intent);
+            promise.resolve(result);
+        } catch (IllegalStateException e) {
+            // If startService fails, try stopService as fallback
+            try {
+                reactContext.stopService(intent);
+                promise.resolve(result);
+            } catch (Exception e2) {
+                promise.reject(
+                    Constants.ERROR_SERVICE_ERROR,
+                    errorPrefix + e2.getMessage(),
+                    e2
+                );
+            }
+        }
+    }
+
+    private static boolean hasValue(ReadableMap map, String key) {
+        return map.hasKey(key) && !map.isNull(key);
+    }
+
     /**
      * Validate notification configuration
      *
@@ -2,11 +2,21 @@ package com.kirenpaul.foregroundservice;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
+import android.os.SystemClock;
+import android.util.SparseArray;
 
 import com.facebook.react.HeadlessJsTaskService;
+import com.facebook.react.ReactInstanceEventListener;
+import com.facebook.react.ReactInstanceManager;
 import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.UiThreadUtil;
 import com.facebook.react.jstasks.HeadlessJsTaskConfig;
+import com.facebook.react.jstasks.HeadlessJsTaskContext;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
 
@@ -17,12 +27,59 @@ import javax.annotation.Nullable;
  * JavaScript tasks in the background without requiring UI.
  *
  * Tasks are registered via AppRegistry.registerHeadlessTask() in JavaScript.
+ *
+ * Dispatch latency (from the service dispatching the task to the task
+ * starting in JS) is recorded separately for cold dispatches, which wait for
+ * the React context to be created, and warm ones.
+ *
+ * When an invocation carrying scheduled task ids finishes, their
+ * concurrency permits go back to the task schedule.
+ *
+ * The service starts its tasks on the task context itself (see startTask),
+ * so it knows the headless task id of each dispatch from the return value
+ * of HeadlessJsTaskContext.startTask. Finish callbacks for task ids it did
+ * not start belong to other services and are ignored.
  */
 public class ForegroundServiceTask extends HeadlessJsTaskService {
 
     private static final String TAG = "ForegroundServiceTask";
     private static final int DEFAULT_TIMEOUT = 60000; // 60 seconds
 
+    // Headless tasks of this service started and not finished, across service instances
+    private static final AtomicInteger activeTasks = new AtomicInteger();
+
+    // Dispatch per config returned by getTaskConfig and not started yet (main thread only)
+    private final Map<HeadlessJsTaskConfig, Dispatch> pendingDispatches = new IdentityHashMap<>();
+
+    // Dispatch per running headless task id (main thread only)
+    private final SparseArray<Dispatch> runningDispatches = new SparseArray<>();
+
+    /**
+     * Dispatch of one headless task config
+     */
+    private static final class Dispatch {
+        final long dispatchedAt;
+        final boolean cold;
+        @Nullable
+        final String[] taskIds;
+        long startedAt;
+
+        Dispatch(long dispatchedAt, boolean cold, @Nullable String[] taskIds) {
+            this.dispatchedAt = dispatchedAt;
+            this.cold = cold;
+            this.taskIds = taskIds;
+        }
+
+        /**
+         * Give the concurrency permits of the scheduled task ids back
+         */
+        void releaseTasks() {
+            if (taskIds != null) {
+                ForegroundService.getTaskSchedule().release(taskIds);
+            }
+        }
+    }
+
     /**
      * Configure the headless JS task from intent extras
      *
@@ -32,34 +89,172 @@ public class ForegroundServiceTask extends HeadlessJsTaskService {
     @Nullable
     @Override
     protected HeadlessJsTaskConfig getTaskConfig(Intent intent) {
+        Tracing.begin(Tracing.GET_TASK_CONFIG);
+        try {
+            return createTaskConfig(intent);
+        } finally {
+            Tracing.end();
+        }
+    }
+
+    @Nullable
+    private HeadlessJsTaskConfig createTaskConfig(Intent intent) {
         Bundle extras = intent.getExtras();
         if (extras == null) {
-            Log.e(TAG, "getTaskConfig: extras bundle is null");
+            Logger.e(TAG, "getTaskConfig: extras bundle is null");
             return null;
         }
 
         String taskName = extras.getString("taskName");
         if (taskName == null || taskName.isEmpty()) {
-            Log.e(TAG, "getTaskConfig: taskName is null or empty");
+            Logger.e(TAG, "getTaskConfig: taskName is null or empty");
             return null;
         }
 
+        long dispatchedAt = extras.getLong(Constants.DISPATCHED_AT, 0);
+        extras.remove(Constants.DISPATCHED_AT);
+        boolean cold = !ReactContextWarmer.isReady(this);
+        if (dispatchedAt > 0) {
+            if (cold) {
+                MetricsRegistry.HEADLESS_COLD_DISPATCHES.incrementAndGet();
+            } else {
+                MetricsRegistry.HEADLESS_WARM_DISPATCHES.incrementAndGet();
+            }
+        }
+        String[] taskIds = extras.getStringArray("taskIds");
+
         // Get timeout from extras or use default
         int timeout = extras.getInt("timeout", DEFAULT_TIMEOUT);
 
         // Get allowedInForeground flag (default true for foreground service tasks)
         boolean allowedInForeground = extras.getBoolean("allowedInForeground", true);
 
-        Log.d(TAG, String.format(
-            "Creating HeadlessJsTaskConfig - taskName: %s, timeout: %d, allowedInForeground: %b",
-            taskName, timeout, allowedInForeground
-        ));
+        if (Logger.isEnabled(Logger.DEBUG)) {
+            Logger.d(TAG, String.format(
+                "Creating HeadlessJsTaskConfig - taskName: %s, timeout: %d, allowedInForeground: %b",
+                taskName, timeout, allowedInForeground
+            ));
+        }
 
-        return new HeadlessJsTaskConfig(
+        HeadlessJsTaskConfig taskConfig = new HeadlessJsTaskConfig(
             taskName,
             Arguments.fromBundle(extras),
             timeout,
             allowedInForeground
         );
+        pendingDispatches.put(taskConfig, new Dispatch(dispatchedAt, cold, taskIds));
+        return taskConfig;
+    }
+
+    /**
+     * Start a task config returned by getTaskConfig once the React context
+     * is ready, keeping its dispatch under the headless task id
+     */
+    @Override
+    protected void startTask(final HeadlessJsTaskConfig taskConfig) {
+        final Dispatch dispatch = pendingDispatches.remove(taskConfig);
+        if (dispatch == null) {
+            super.startTask(taskConfig);
+            return;
+        }
+
+        try {
+            UiThreadUtil.assertOnUiThread();
+            acquireWakeLockNow(this);
+            final ReactInstanceManager manager = getReactNativeHost().getReactInstanceManager();
+            ReactContext reactContext = manager.getCurrentReactContext();
+            if (reactContext != null) {
+                invokeStartTask(reactContext, taskConfig, dispatch);
+                return;
+            }
+            manager.addReactInstanceEventListener(new ReactInstanceEventListener() {
+                @Override
+                public void onReactContextInitialized(ReactContext context) {
+                    manager.removeReactInstanceEventListener(this);
+                    invokeStartTask(context, taskConfig, dispatch);
+                }
+            });
+            if (!manager.hasStartedCreatingInitialContext()) {
+                manager.createReactContextInBackground();
+            }
+        } catch (RuntimeException e) {
+            Logger.e(TAG, "Failed to start headless task", e);
+            dispatch.releaseTasks();
+            stopIfIdle();
+        }
+    }
+
+    private void invokeStartTask(ReactContext reactContext, final HeadlessJsTaskConfig taskConfig,
+                                 final Dispatch dispatch) {
+        final HeadlessJsTaskContext taskContext = HeadlessJsTaskContext.getInstance(reactContext);
+        taskContext.addTaskEventListener(this);
+        UiThreadUtil.runOnUiThread(() -> {
+            int taskId;
+            try {
+                taskId = taskContext.startTask(taskConfig);
+            } catch (RuntimeException e) {
+                // e.g. a task not allowed while the app is in the foreground
+                Logger.e(TAG, "Failed to start headless task", e);
+                dispatch.releaseTasks();
+                stopIfIdle();
+                return;
+            }
+            onDispatchStarted(taskId, dispatch);
+        });
+    }
+
+    private void onDispatchStarted(int taskId, Dispatch dispatch) {
+        activeTasks.incrementAndGet();
+        dispatch.startedAt = SystemClock.elapsedRealtimeNanos();
+        runningDispatches.put(taskId, dispatch);
+        if (dispatch.dispatchedAt > 0) {
+            LatencyHistogram histogram = dispatch.cold
+                ? MetricsRegistry.HEADLESS_COLD_DISPATCH
+                : MetricsRegistry.HEADLESS_WARM_DISPATCH;
+            histogram.recordNanos(dispatch.startedAt - dispatch.dispatchedAt);
+        }
+    }
+
+    /**
+     * Stop the service once none of its headless tasks is running
+     */
+    private void stopIfIdle() {
+        if (runningDispatches.size() == 0) {
+            stopSelf();
+        }
+    }
+
+    /**
+     * @return Number of headless tasks dispatched by this service that are
+     *     running (started and not finished)
+     */
+    static int getActiveTaskCount() {
+        return activeTasks.get();
+    }
+
+    @Override
+    public void onHeadlessJsTaskFinish(int taskId) {
+        Dispatch dispatch = runningDispatches.get(taskId);
+        if (dispatch == null) {
+            // Not started by this service
+            return;
+        }
+        runningDispatches.delete(taskId);
+        activeTasks.decrementAndGet();
+        MetricsRegistry.HEADLESS_TASK_DURATION.recordNanos(SystemClock.elapsedRealtimeNanos() - dispatch.startedAt);
+        dispatch.releaseTasks();
+        stopIfIdle();
+    }
+
+    @Override
+    public void onDestroy() {
+        // Finish callbacks stop with the service: tasks still running never return their permits otherwise
+        for (int i = 0; i < runningDispatches.size(); i++) {
+            runningDispatches.valueAt(i).releaseTasks();
+        }
+        activeTasks.addAndGet(-runningDispatches.size());
+        runningDispatches.clear();
+        pendingDispatches.clear();
+        super.onDestroy();
     }
 }
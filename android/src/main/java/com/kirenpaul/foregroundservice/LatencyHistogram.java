@@ -0,0 +1,99 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.Bundle;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, allocation-free latency histogram
+ *
+ * Values are recorded in microseconds into fixed power-of-two buckets:
+ * bucket i holds values in [2^(i-1), 2^i) µs, bucket 0 holds 0 µs.
+ * 40 buckets cover everything up to ~6 days, which is far beyond any
+ * latency this module measures.
+ *
+ * Percentiles are reported as the upper bound of the bucket they fall in
+ * (capped at the observed max), so they are accurate to within 2x.
+ */
+class LatencyHistogram {
+
+    private static final int BUCKET_COUNT = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        recordMicros(nanos / 1000L);
+    }
+
+    void recordMillis(long millis) {
+        recordMicros(millis * 1000L);
+    }
+
+    void recordMicros(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sumMicros.addAndGet(micros);
+
+        long currentMax = maxMicros.get();
+        while (micros > currentMax && !maxMicros.compareAndSet(currentMax, micros)) {
+            currentMax = maxMicros.get();
+        }
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Snapshot the histogram into a bundle (all durations in milliseconds)
+     *
+     * @param reset Whether to reset the histogram after reading it
+     * @return Bundle with count, mean, max, p50, p90 and p99
+     */
+    Bundle snapshot(boolean reset) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = reset ? buckets.getAndSet(i, 0) : buckets.get(i);
+            total += counts[i];
+        }
+        long sum = reset ? sumMicros.getAndSet(0) : sumMicros.get();
+        long max = reset ? maxMicros.getAndSet(0) : maxMicros.get();
+        if (reset) {
+            count.set(0);
+        }
+
+        Bundle bundle = new Bundle();
+        bundle.putDouble("count", total);
+        bundle.putDouble("meanMs", total > 0 ? (sum / (double) total) / 1000.0 : 0);
+        bundle.putDouble("maxMs", max / 1000.0);
+        bundle.putDouble("p50Ms", percentile(counts, total, max, 0.50) / 1000.0);
+        bundle.putDouble("p90Ms", percentile(counts, total, max, 0.90) / 1000.0);
+        bundle.putDouble("p99Ms", percentile(counts, total, max, 0.99) / 1000.0);
+        return bundle;
+    }
+
+    private static long percentile(long[] counts, long total, long max, double fraction) {
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                long upperBound = i == 0 ? 0 : (1L << i) - 1;
+                return Math.min(upperBound, max);
+            }
+        }
+        return max;
+    }
+}
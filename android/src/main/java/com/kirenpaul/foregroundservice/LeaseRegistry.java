@@ -0,0 +1,168 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Start leases held on the foreground service
+ *
+ * Every dispatched start acquires a lease with an opaque id. Releasing a
+ * lease is idempotent: only the first release of an id stops anything, so
+ * a caller that stops twice cannot release another caller's start.
+ *
+ * Features:
+ * - Optional lease name, to see who is keeping the service alive
+ * - Optional timeout, after which the service releases a leaked lease
+ * - Leases kept in acquisition order (legacy stopService releases the newest)
+ */
+final class LeaseRegistry {
+
+    /**
+     * A single start lease
+     */
+    static final class Lease {
+        final String id;
+        final String name;
+        final long acquiredAt;
+        final long timeoutMs;
+
+        Lease(String id, String name, long acquiredAt, long timeoutMs) {
+            this.id = id;
+            this.name = name;
+            this.acquiredAt = acquiredAt;
+            this.timeoutMs = timeoutMs;
+        }
+
+        boolean hasTimeout() {
+            return timeoutMs > 0;
+        }
+
+        /**
+         * @return Milliseconds until the lease expires (0 if expired, -1 without timeout)
+         */
+        long remainingMs(long now) {
+            if (!hasTimeout()) {
+                return -1;
+            }
+            return Math.max(0, acquiredAt + timeoutMs - now);
+        }
+
+        Bundle toBundle(long now) {
+            Bundle bundle = new Bundle();
+            bundle.putString("id", id);
+            bundle.putString("name", name);
+            bundle.putDouble("heldMs", now - acquiredAt);
+            bundle.putDouble("timeoutMs", timeoutMs);
+            bundle.putDouble("remainingMs", remainingMs(now));
+            return bundle;
+        }
+    }
+
+    private final AtomicLong nextId = new AtomicLong();
+    private final LinkedHashMap<String, Lease> leases = new LinkedHashMap<>();
+
+    /**
+     * Acquire a new lease
+     *
+     * @param name Optional holder name
+     * @param timeoutMs Timeout in milliseconds (0 or less for none)
+     */
+    Lease acquire(String name, long timeoutMs) {
+        Lease lease = new Lease(
+            "lease-" + nextId.incrementAndGet(),
+            name,
+            SystemClock.elapsedRealtime(),
+            Math.max(0, timeoutMs)
+        );
+        synchronized (leases) {
+            leases.put(lease.id, lease);
+        }
+        return lease;
+    }
+
+    Lease get(String id) {
+        if (id == null) {
+            return null;
+        }
+        synchronized (leases) {
+            return leases.get(id);
+        }
+    }
+
+    /**
+     * Release a lease
+     *
+     * @return The released lease, or null if it was not held (already released or unknown)
+     */
+    Lease release(String id) {
+        if (id == null) {
+            return null;
+        }
+        synchronized (leases) {
+            return leases.remove(id);
+        }
+    }
+
+    /**
+     * Release the most recently acquired lease
+     *
+     * @return The released lease, or null if none is held
+     */
+    Lease releaseNewest() {
+        synchronized (leases) {
+            Lease newest = null;
+            for (Lease lease : leases.values()) {
+                newest = lease;
+            }
+            if (newest != null) {
+                leases.remove(newest.id);
+            }
+            return newest;
+        }
+    }
+
+    int size() {
+        synchronized (leases) {
+            return leases.size();
+        }
+    }
+
+    void clear() {
+        synchronized (leases) {
+            leases.clear();
+        }
+    }
+
+    /**
+     * Remove and return all leases whose timeout has passed
+     */
+    List<Lease> releaseExpired(long now) {
+        List<Lease> expired = new ArrayList<>();
+        synchronized (leases) {
+            Iterator<Lease> iterator = leases.values().iterator();
+            while (iterator.hasNext()) {
+                Lease lease = iterator.next();
+                if (lease.hasTimeout() && lease.remainingMs(now) == 0) {
+                    expired.add(lease);
+                    iterator.remove();
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Copy of the held leases, oldest first
+     */
+    List<Lease> snapshot() {
+        synchronized (leases) {
+            return new ArrayList<>(leases.values());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.kirenpaul.foregroundservice;
+
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Level-gated logging for the foreground service module
+ *
+ * Messages below the configured level are dropped before any string is
+ * built: the overloads taking a prefix and a value only concatenate after
+ * the level check, so hot paths never pay for formatting in release builds.
+ *
+ * The level is read from the manifest meta-data
+ * com.kirenpaul.foregroundservice.log_level ("verbose", "debug", "info",
+ * "warn", "error" or "none") and can be changed at runtime from JavaScript.
+ * Default: "warn".
+ */
+final class Logger {
+
+    static final int VERBOSE = Log.VERBOSE;
+    static final int DEBUG = Log.DEBUG;
+    static final int INFO = Log.INFO;
+    static final int WARN = Log.WARN;
+    static final int ERROR = Log.ERROR;
+    static final int NONE = Integer.MAX_VALUE;
+
+    private static volatile int level = WARN;
+    private static volatile boolean initialized = false;
+
+    private Logger() {
+    }
+
+    /**
+     * Load the log level from manifest meta-data (first call only)
+     */
+    static void init(Context context) {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+        String configured = new NotificationConfig(context).getLogLevel();
+        if (configured != null) {
+            level = parseLevel(configured, level);
+        }
+    }
+
+    static void setLevel(int value) {
+        level = value;
+        initialized = true;
+    }
+
+    static int getLevel() {
+        return level;
+    }
+
+    static boolean isEnabled(int value) {
+        return value >= level;
+    }
+
+    /**
+     * Parse a level name
+     *
+     * @param name Level name (case-insensitive)
+     * @param fallback Level returned for unknown names
+     */
+    static int parseLevel(String name, int fallback) {
+        if (name == null) {
+            return fallback;
+        }
+        switch (name.toLowerCase()) {
+            case "verbose":
+                return VERBOSE;
+            case "debug":
+                return DEBUG;
+            case "info":
+                return INFO;
+            case "warn":
+                return WARN;
+            case "error":
+                return ERROR;
+            case "none":
+                return NONE;
+            default:
+                return fallback;
+        }
+    }
+
+    static void d(String tag, String message) {
+        if (DEBUG >= level) {
+            Log.d(tag, message);
+        }
+    }
+
+    static void d(String tag, String prefix, String value) {
+        if (DEBUG >= level) {
+            Log.d(tag, prefix + value);
+        }
+    }
+
+    static void d(String tag, String prefix, long value) {
+        if (DEBUG >= level) {
+            Log.d(tag, prefix + value);
+        }
+    }
+
+    static void i(String tag, String message) {
+        if (INFO >= level) {
+            Log.i(tag, message);
+        }
+    }
+
+    static void w(String tag, String message) {
+        if (WARN >= level) {
+            Log.w(tag, message);
+        }
+    }
+
+    static void w(String tag, String prefix, String value) {
+        if (WARN >= level) {
+            Log.w(tag, prefix + value);
+        }
+    }
+
+    static void e(String tag, String message) {
+        if (ERROR >= level) {
+            Log.e(tag, message);
+        }
+    }
+
+    static void e(String tag, String message, Throwable throwable) {
+        if (ERROR >= level) {
+            Log.e(tag, message, throwable);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.kirenpaul.foregroundservice;
+
+import android.content.ComponentCallbacks2;
+
+/**
+ * Load shedding tiers for onTrimMemory levels
+ *
+ * Each tier includes the ones below it:
+ * - TIER_MODERATE (RUNNING_MODERATE, BACKGROUND): drop notification caches
+ * - TIER_LOW (RUNNING_LOW, MODERATE): pause low-priority tasks and release
+ *   an idle prewarmed React context
+ * - TIER_CRITICAL (RUNNING_CRITICAL, COMPLETE): shrink the event queue
+ *
+ * The tiers above TIER_MODERATE are lifted after RECOVERY_MS without another
+ * trim at that tier, as the system does not report when memory recovers.
+ */
+final class MemoryPressure {
+
+    static final int TIER_NONE = 0;
+    static final int TIER_MODERATE = 1;
+    static final int TIER_LOW = 2;
+    static final int TIER_CRITICAL = 3;
+
+    /** Time after the last trim before shed load comes back */
+    static final long RECOVERY_MS = 60_000;
+
+    private MemoryPressure() {
+    }
+
+    /**
+     * @return Shedding tier for a ComponentCallbacks2.TRIM_MEMORY_* level
+     */
+    @SuppressWarnings("deprecation")
+    static int tierFor(int trimLevel) {
+        switch (trimLevel) {
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE:
+            case ComponentCallbacks2.TRIM_MEMORY_BACKGROUND:
+                return TIER_MODERATE;
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW:
+            case ComponentCallbacks2.TRIM_MEMORY_MODERATE:
+                return TIER_LOW;
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL:
+            case ComponentCallbacks2.TRIM_MEMORY_COMPLETE:
+                return TIER_CRITICAL;
+            default:
+                // UI_HIDDEN only means the app went to the background
+                return TIER_NONE;
+        }
+    }
+
+    /**
+     * @return JS name of a tier
+     */
+    static String nameOf(int tier) {
+        switch (tier) {
+            case TIER_MODERATE:
+                return "moderate";
+            case TIER_LOW:
+                return "low";
+            case TIER_CRITICAL:
+                return "critical";
+            default:
+                return "none";
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.Bundle;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide metrics for the foreground service module
+ *
+ * Counters are atomics and histograms are LatencyHistogram instances, so
+ * recording never locks or allocates. Call sites reference the static
+ * fields directly.
+ *
+ * A snapshot is exposed to JavaScript through ForegroundServiceModule.getMetrics().
+ */
+final class MetricsRegistry {
+
+    // Latency histograms
+    static final LatencyHistogram START_TO_FOREGROUND = new LatencyHistogram();
+    static final LatencyHistogram COLD_START_TO_FOREGROUND = new LatencyHistogram();
+    static final LatencyHistogram BUILD_NOTIFICATION = new LatencyHistogram();
+    static final LatencyHistogram TICK_LATENESS = new LatencyHistogram();
+    static final LatencyHistogram HEADLESS_TASK_DURATION = new LatencyHistogram();
+    static final LatencyHistogram HEADLESS_COLD_DISPATCH = new LatencyHistogram();
+    static final LatencyHistogram HEADLESS_WARM_DISPATCH = new LatencyHistogram();
+    static final LatencyHistogram TASK_DELAY_CRITICAL = new LatencyHistogram();
+    static final LatencyHistogram TASK_DELAY_NORMAL = new LatencyHistogram();
+    static final LatencyHistogram TASK_DELAY_BACKGROUND = new LatencyHistogram();
+    static final LatencyHistogram CONCURRENCY_WAIT = new LatencyHistogram();
+
+    // Counters
+    static final AtomicLong SERVICE_STARTS = new AtomicLong();
+    static final AtomicLong SERVICE_START_FAILURES = new AtomicLong();
+    static final AtomicLong NOTIFICATION_UPDATE_REQUESTS = new AtomicLong();
+    static final AtomicLong NOTIFY_CALLS = new AtomicLong();
+    static final AtomicLong TICKS = new AtomicLong();
+    static final AtomicLong TASKS_DROPPED = new AtomicLong();
+    static final AtomicLong SERVICE_RESTARTS = new AtomicLong();
+    static final AtomicLong LEASES_EXPIRED = new AtomicLong();
+    static final AtomicLong LEASE_DUPLICATE_RELEASES = new AtomicLong();
+    static final AtomicLong STOP_GRACE_REUSES = new AtomicLong();
+    static final AtomicLong NOTIFICATION_REUSES = new AtomicLong();
+    static final AtomicLong SERVICE_TYPE_CHANGES = new AtomicLong();
+    static final AtomicLong SERVICE_TYPE_CHANGE_FAILURES = new AtomicLong();
+    static final AtomicLong PERMISSION_CHECKS = new AtomicLong();
+    static final AtomicLong DEFERRED_STARTS = new AtomicLong();
+    static final AtomicLong DEFERRED_START_RETRIES = new AtomicLong();
+    static final AtomicLong DEFERRED_START_SUCCESSES = new AtomicLong();
+    static final AtomicLong DEFERRED_START_FAILURES = new AtomicLong();
+    static final AtomicLong PLACEHOLDER_NOTIFICATIONS = new AtomicLong();
+    static final AtomicLong STATE_WRITES = new AtomicLong();
+    static final AtomicLong STATE_RESTORES = new AtomicLong();
+    static final AtomicLong HEADLESS_COLD_DISPATCHES = new AtomicLong();
+    static final AtomicLong HEADLESS_WARM_DISPATCHES = new AtomicLong();
+    static final AtomicLong REACT_CONTEXT_PREWARMS = new AtomicLong();
+    static final AtomicLong REACT_CONTEXT_RELEASES = new AtomicLong();
+    static final AtomicLong BATCHED_DISPATCHES = new AtomicLong();
+    static final AtomicLong BATCHED_TASKS = new AtomicLong();
+    static final AtomicLong IDLE_TICKS = new AtomicLong();
+    static final AtomicLong TASK_ALARMS_SET = new AtomicLong();
+    static final AtomicLong TASK_ALARM_WAKEUPS = new AtomicLong();
+    static final AtomicLong TASK_ALARM_TASKS = new AtomicLong();
+    static final AtomicLong THERMAL_THROTTLE_CHANGES = new AtomicLong();
+    static final AtomicLong THROTTLED_NOTIFICATION_UPDATES = new AtomicLong();
+    static final AtomicLong POWER_POLICY_CHANGES = new AtomicLong();
+    static final AtomicLong MEMORY_TRIMS_MODERATE = new AtomicLong();
+    static final AtomicLong MEMORY_TRIMS_LOW = new AtomicLong();
+    static final AtomicLong MEMORY_TRIMS_CRITICAL = new AtomicLong();
+    static final AtomicLong TASKS_QUEUED = new AtomicLong();
+    static final AtomicLong BACKGROUND_DEFERRALS = new AtomicLong();
+    static final AtomicLong CONCURRENCY_HELD = new AtomicLong();
+    static final AtomicLong PERMITS_EXPIRED = new AtomicLong();
+
+    // Gauges
+    static final AtomicLong TICK_INTERVAL_MS = new AtomicLong();
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Snapshot all metrics into a bundle
+     *
+     * @param reset Whether to reset all metrics after reading them
+     * @return Bundle with "counters" and "histograms" sub-bundles
+     */
+    static Bundle snapshot(boolean reset) {
+        Bundle counters = new Bundle();
+        long updateRequests = read(NOTIFICATION_UPDATE_REQUESTS, reset);
+        long notifyCalls = read(NOTIFY_CALLS, reset);
+        counters.putDouble("serviceStarts", read(SERVICE_STARTS, reset));
+        counters.putDouble("serviceStartFailures", read(SERVICE_START_FAILURES, reset));
+        counters.putDouble("notificationUpdateRequests", updateRequests);
+        counters.putDouble("notifyCalls", notifyCalls);
+        counters.putDouble("ticks", read(TICKS, reset));
+        counters.putDouble("tasksDropped", read(TASKS_DROPPED, reset));
+        counters.putDouble("serviceRestarts", read(SERVICE_RESTARTS, reset));
+        counters.putDouble("leasesExpired", read(LEASES_EXPIRED, reset));
+        counters.putDouble("leaseDuplicateReleases", read(LEASE_DUPLICATE_RELEASES, reset));
+        counters.putDouble("leasesHeld", ForegroundService.getLeaseRegistry().size());
+        counters.putDouble("stopGraceReuses", read(STOP_GRACE_REUSES, reset));
+        counters.putDouble("notificationReuses", read(NOTIFICATION_REUSES, reset));
+        counters.putDouble("serviceTypeChanges", read(SERVICE_TYPE_CHANGES, reset));
+        counters.putDouble("serviceTypeChangeFailures", read(SERVICE_TYPE_CHANGE_FAILURES, reset));
+        counters.putDouble("permissionChecks", read(PERMISSION_CHECKS, reset));
+        counters.putDouble("deferredStarts", read(DEFERRED_STARTS, reset));
+        counters.putDouble("deferredStartRetries", read(DEFERRED_START_RETRIES, reset));
+        counters.putDouble("deferredStartSuccesses", read(DEFERRED_START_SUCCESSES, reset));
+        counters.putDouble("deferredStartFailures", read(DEFERRED_START_FAILURES, reset));
+        counters.putDouble("placeholderNotifications", read(PLACEHOLDER_NOTIFICATIONS, reset));
+        counters.putDouble("stateWrites", read(STATE_WRITES, reset));
+        counters.putDouble("stateRestores", read(STATE_RESTORES, reset));
+        counters.putDouble("headlessColdDispatches", read(HEADLESS_COLD_DISPATCHES, reset));
+        counters.putDouble("headlessWarmDispatches", read(HEADLESS_WARM_DISPATCHES, reset));
+        counters.putDouble("reactContextPrewarms", read(REACT_CONTEXT_PREWARMS, reset));
+        counters.putDouble("reactContextReleases", read(REACT_CONTEXT_RELEASES, reset));
+        counters.putDouble("batchedDispatches", read(BATCHED_DISPATCHES, reset));
+        counters.putDouble("batchedTasks", read(BATCHED_TASKS, reset));
+        counters.putDouble("idleTicks", read(IDLE_TICKS, reset));
+        counters.putDouble("taskAlarmsSet", read(TASK_ALARMS_SET, reset));
+        counters.putDouble("taskAlarmWakeups", read(TASK_ALARM_WAKEUPS, reset));
+        counters.putDouble("taskAlarmTasks", read(TASK_ALARM_TASKS, reset));
+        counters.putDouble("tickIntervalMs", TICK_INTERVAL_MS.get());
+        counters.putDouble("thermalThrottleChanges", read(THERMAL_THROTTLE_CHANGES, reset));
+        counters.putDouble("throttledNotificationUpdates", read(THROTTLED_NOTIFICATION_UPDATES, reset));
+        counters.putDouble("thermalThrottleLevel", ForegroundService.getTaskSchedule().getThrottleLevel());
+        counters.putDouble("powerPolicyChanges", read(POWER_POLICY_CHANGES, reset));
+        counters.putDouble("elasticPercent", ForegroundService.getTaskSchedule().getElasticPercent());
+        counters.putDouble("memoryTrimsModerate", read(MEMORY_TRIMS_MODERATE, reset));
+        counters.putDouble("memoryTrimsLow", read(MEMORY_TRIMS_LOW, reset));
+        counters.putDouble("memoryTrimsCritical", read(MEMORY_TRIMS_CRITICAL, reset));
+        counters.putDouble("tasksQueued", read(TASKS_QUEUED, reset));
+        counters.putDouble("backgroundDeferrals", read(BACKGROUND_DEFERRALS, reset));
+        counters.putDouble("concurrencyHeld", read(CONCURRENCY_HELD, reset));
+        counters.putDouble("permitsExpired", read(PERMITS_EXPIRED, reset));
+        counters.putDouble("tasksInFlight", ForegroundService.getTaskSchedule().getTasksInFlight());
+        counters.putDouble("concurrencyQueueDepth", ForegroundService.getTaskSchedule().getConcurrencyQueueDepth());
+
+        // Share of update requests that did not result in a notify() call
+        double coalescingRate = updateRequests > 0
+            ? Math.max(0, 1.0 - (notifyCalls / (double) updateRequests))
+            : 0;
+        counters.putDouble("notifyCoalescingRate", coalescingRate);
+
+        Bundle histograms = new Bundle();
+        histograms.putBundle("startToForeground", START_TO_FOREGROUND.snapshot(reset));
+        histograms.putBundle("coldStartToForeground", COLD_START_TO_FOREGROUND.snapshot(reset));
+        histograms.putBundle("buildNotification", BUILD_NOTIFICATION.snapshot(reset));
+        histograms.putBundle("tickLateness", TICK_LATENESS.snapshot(reset));
+        histograms.putBundle("headlessTaskDuration", HEADLESS_TASK_DURATION.snapshot(reset));
+        histograms.putBundle("headlessColdDispatch", HEADLESS_COLD_DISPATCH.snapshot(reset));
+        histograms.putBundle("headlessWarmDispatch", HEADLESS_WARM_DISPATCH.snapshot(reset));
+        histograms.putBundle("taskDelayCritical", TASK_DELAY_CRITICAL.snapshot(reset));
+        histograms.putBundle("taskDelayNormal", TASK_DELAY_NORMAL.snapshot(reset));
+        histograms.putBundle("taskDelayBackground", TASK_DELAY_BACKGROUND.snapshot(reset));
+        histograms.putBundle("concurrencyWait", CONCURRENCY_WAIT.snapshot(reset));
+
+        Bundle snapshot = new Bundle();
+        snapshot.putBundle("counters", counters);
+        snapshot.putBundle("histograms", histograms);
+        return snapshot;
+    }
+
+    private static long read(AtomicLong counter, boolean reset) {
+        return reset ? counter.getAndSet(0) : counter.get();
+    }
+}
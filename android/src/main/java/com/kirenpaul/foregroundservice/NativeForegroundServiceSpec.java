@@ -43,7 +43,7 @@ public abstract class NativeForegroundServiceSpec extends ReactContextBaseJavaMo
      * Start the foreground service
      *
      * @param config Notification configuration
-     * @param promise Promise to resolve/reject
+     * @param promise Promise that resolves to the start's lease id, or null if no start was dispatched
      */
     @ReactMethod
     public abstract void startService(ReadableMap config, Promise promise);
@@ -56,6 +56,48 @@ public abstract class NativeForegroundServiceSpec extends ReactContextBaseJavaMo
     @ReactMethod
     public abstract void stopService(Promise promise);
 
+    /**
+     * Release a start lease (idempotent)
+     *
+     * @param leaseId Lease id returned by startService
+     * @param promise Promise that resolves to true if the lease was held
+     */
+    @ReactMethod
+    public abstract void releaseLease(String leaseId, Promise promise);
+
+    /**
+     * Get the leases currently keeping the service alive
+     *
+     * @param promise Promise that resolves to an array of leases
+     */
+    @ReactMethod
+    public abstract void getLeases(Promise promise);
+
+    /**
+     * Retry starts deferred because the app was in the background
+     *
+     * @param promise Promise to resolve
+     */
+    @ReactMethod
+    public abstract void retryDeferredStarts(Promise promise);
+
+    /**
+     * Stop a named session
+     *
+     * @param session Session name given to startService
+     * @param promise Promise to resolve/reject
+     */
+    @ReactMethod
+    public abstract void stopSession(String session, Promise promise);
+
+    /**
+     * Get the sessions of the running service
+     *
+     * @param promise Promise that resolves to an array of sessions
+     */
+    @ReactMethod
+    public abstract void getSessions(Promise promise);
+
     /**
      * Force stop the foreground service
      *
@@ -81,6 +123,16 @@ public abstract class NativeForegroundServiceSpec extends ReactContextBaseJavaMo
     @ReactMethod
     public abstract void isRunning(Promise promise);
 
+    /**
+     * Change the foreground service type of the running service
+     *
+     * @param serviceType One or more service types, combined as 'dataSync|location'
+     * @param session Session to change (null for the session backing the notification)
+     * @param promise Promise to resolve/reject
+     */
+    @ReactMethod
+    public abstract void setServiceType(String serviceType, String session, Promise promise);
+
     /**
      * Run a headless task
      *
@@ -90,6 +142,49 @@ public abstract class NativeForegroundServiceSpec extends ReactContextBaseJavaMo
     @ReactMethod
     public abstract void runTask(ReadableMap config, Promise promise);
 
+    /**
+     * Add or replace a JS task in the native task schedule
+     *
+     * @param config Task schedule
+     */
+    @ReactMethod
+    public abstract void scheduleTask(ReadableMap config);
+
+    /**
+     * Remove a JS task from the native task schedule
+     *
+     * @param taskId Task id
+     */
+    @ReactMethod
+    public abstract void cancelTask(String taskId);
+
+    /**
+     * Remove the JS tasks of a session from the native task schedule
+     *
+     * @param session Session name, or null for all tasks
+     */
+    @ReactMethod
+    public abstract void cancelTasks(String session);
+
+    /**
+     * Set how many due tasks of each priority class one tick dispatches
+     *
+     * @param critical Limit for critical tasks (0 = no limit)
+     * @param normal Limit for normal tasks (0 = no limit)
+     * @param background Limit for background tasks (0 = no limit)
+     */
+    @ReactMethod
+    public abstract void setTaskClassLimits(double critical, double normal, double background);
+
+    /**
+     * Set the limits on scheduled task runs in flight at the same time
+     *
+     * @param maxConcurrent Limit across all tasks (0 = no limit)
+     * @param groupLimits Limit per task group name
+     */
+    @ReactMethod
+    public abstract void setConcurrencyLimits(double maxConcurrent, ReadableMap groupLimits);
+
     /**
      * Cancel a notification by ID
      *
@@ -106,4 +201,45 @@ public abstract class NativeForegroundServiceSpec extends ReactContextBaseJavaMo
      */
     @ReactMethod
     public abstract void checkPostNotificationsPermission(Promise promise);
+
+    /**
+     * Register a JS event listener
+     *
+     * @param eventName Event name
+     */
+    @ReactMethod
+    public abstract void addListener(String eventName);
+
+    /**
+     * Unregister JS event listeners
+     *
+     * @param count Number of listeners removed
+     */
+    @ReactMethod
+    public abstract void removeListeners(double count);
+
+    /**
+     * Enable or disable service lifecycle telemetry events
+     *
+     * @param enabled Whether events are emitted
+     */
+    @ReactMethod
+    public abstract void setServiceEventsEnabled(boolean enabled);
+
+    /**
+     * Get a metrics snapshot
+     *
+     * @param reset Whether to reset metrics after reading
+     * @param promise Promise that resolves to the snapshot
+     */
+    @ReactMethod
+    public abstract void getMetrics(boolean reset, Promise promise);
+
+    /**
+     * Set the native log level
+     *
+     * @param level Level name
+     */
+    @ReactMethod
+    public abstract void setLogLevel(String level);
 }
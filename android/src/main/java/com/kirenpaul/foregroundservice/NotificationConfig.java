@@ -14,6 +14,9 @@ import android.util.Log;
  * - com.kirenpaul.foregroundservice.notification_channel_name
  * - com.kirenpaul.foregroundservice.notification_channel_description
  * - com.kirenpaul.foregroundservice.notification_color
+ * - com.kirenpaul.foregroundservice.log_level
+ * - com.kirenpaul.foregroundservice.stop_grace_ms
+ * - com.kirenpaul.foregroundservice.prewarm_react_context
  */
 class NotificationConfig {
 
@@ -21,7 +24,11 @@ class NotificationConfig {
     private static final String KEY_CHANNEL_NAME = "com.kirenpaul.foregroundservice.notification_channel_name";
     private static final String KEY_CHANNEL_DESCRIPTION = "com.kirenpaul.foregroundservice.notification_channel_description";
     private static final String KEY_NOTIFICATION_COLOR = "com.kirenpaul.foregroundservice.notification_color";
+    private static final String KEY_LOG_LEVEL = "com.kirenpaul.foregroundservice.log_level";
+    private static final String KEY_STOP_GRACE_MS = "com.kirenpaul.foregroundservice.stop_grace_ms";
+    private static final String KEY_PREWARM_REACT_CONTEXT = "com.kirenpaul.foregroundservice.prewarm_react_context";
 
+    // Application meta-data, read once (Bundle.EMPTY if the manifest has none)
     private static Bundle metadata;
     private final Context context;
 
@@ -31,14 +38,21 @@ class NotificationConfig {
             try {
                 ApplicationInfo applicationInfo = context.getPackageManager()
                     .getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA);
-                metadata = applicationInfo.metaData;
+                metadata = applicationInfo.metaData != null ? applicationInfo.metaData : Bundle.EMPTY;
             } catch (PackageManager.NameNotFoundException e) {
                 Log.e(TAG, "Error reading application meta-data, falling back to defaults", e);
-                metadata = new Bundle();
+                metadata = Bundle.EMPTY;
             }
         }
     }
 
+    /**
+     * Forget the cached meta-data (tests only)
+     */
+    static void resetForTest() {
+        metadata = null;
+    }
+
     public String getChannelName() {
         try {
             String name = metadata.getString(KEY_CHANNEL_NAME);
@@ -77,4 +91,29 @@ class NotificationConfig {
         // Default: return -1 to indicate no color set
         return -1;
     }
+
+    /**
+     * Log level name from the manifest, or null if not set
+     */
+    public String getLogLevel() {
+        String logLevel = metadata.getString(KEY_LOG_LEVEL);
+        if (logLevel != null && !logLevel.isEmpty()) {
+            return logLevel;
+        }
+        return null;
+    }
+
+    /**
+     * How long the service stays in the foreground after the last stop (default: 0)
+     */
+    public int getStopGraceMs() {
+        return Math.max(0, metadata.getInt(KEY_STOP_GRACE_MS, 0));
+    }
+
+    /**
+     * Whether task loops prewarm the React context for headless tasks (default: false)
+     */
+    public boolean isPrewarmReactContext() {
+        return metadata.getBoolean(KEY_PREWARM_REACT_CONTEXT, false);
+    }
 }
@@ -3,20 +3,14 @@ package com.kirenpaul.foregroundservice;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.util.Log;
-
-import com.facebook.react.ReactApplication;
-import com.facebook.react.ReactInstanceManager;
-import com.facebook.react.bridge.ReactContext;
-import com.facebook.react.bridge.WritableMap;
-import com.facebook.react.bridge.Arguments;
-import com.facebook.react.modules.core.DeviceEventManagerModule;
+import android.os.Bundle;
 
 /**
  * Broadcast receiver for handling notification button clicks
  *
  * This receiver captures notification interactions and sends them
- * to React Native via DeviceEventEmitter
+ * to React Native via ServiceEventEmitter. A click that arrives before
+ * JavaScript listens is held and delivered once a listener attaches.
  */
 public class NotificationEventReceiver extends BroadcastReceiver {
 
@@ -28,6 +22,8 @@ public class NotificationEventReceiver extends BroadcastReceiver {
     public static final String EXTRA_EVENT_TYPE = "eventType";
     public static final String EXTRA_EVENT_DATA = "eventData";
 
+    static final String EVENT_NOTIFICATION_CLICK = "notificationClickHandle";
+
     @Override
     public void onReceive(Context context, Intent intent) {
         if (intent == null || intent.getAction() == null) {
@@ -35,10 +31,10 @@ public class NotificationEventReceiver extends BroadcastReceiver {
         }
 
         String action = intent.getAction();
-        Log.d(TAG, "Notification event received: " + action);
+        Logger.d(TAG, "Notification event received: ", action);
 
         try {
-            WritableMap eventData = Arguments.createMap();
+            Bundle eventData = new Bundle();
 
             if (ACTION_NOTIFICATION_BUTTON.equals(action)) {
                 String buttonPress = intent.getStringExtra("buttonOnPress");
@@ -57,32 +53,9 @@ public class NotificationEventReceiver extends BroadcastReceiver {
                 }
             }
 
-            sendEventToReactNative(context, eventData);
-        } catch (Exception e) {
-            Log.e(TAG, "Error handling notification event", e);
-        }
-    }
-
-    /**
-     * Send event to React Native via DeviceEventEmitter
-     */
-    private void sendEventToReactNative(Context context, WritableMap eventData) {
-        try {
-            ReactApplication reactApplication = (ReactApplication) context.getApplicationContext();
-            ReactInstanceManager reactInstanceManager = reactApplication.getReactNativeHost().getReactInstanceManager();
-            ReactContext reactContext = reactInstanceManager.getCurrentReactContext();
-
-            if (reactContext != null && reactContext.hasActiveReactInstance()) {
-                reactContext
-                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                    .emit("notificationClickHandle", eventData);
-
-                Log.d(TAG, "Event sent to React Native: " + eventData.toString());
-            } else {
-                Log.w(TAG, "React Native context not available, event not sent");
-            }
+            ServiceEventEmitter.getInstance().emitOrHold(EVENT_NOTIFICATION_CLICK, eventData);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to send event to React Native", e);
+            Logger.e(TAG, "Error handling notification event", e);
         }
     }
 }
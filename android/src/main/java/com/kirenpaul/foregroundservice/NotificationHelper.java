@@ -11,8 +11,16 @@ import android.graphics.BitmapFactory;
 import android.graphics.Color;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
 import androidx.core.app.NotificationCompat;
-import android.util.Log;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Helper class for building and managing notifications for foreground service
@@ -20,11 +28,21 @@ import android.util.Log;
  * Handles Android 12+ PendingIntent flag requirements:
  * - Main intent uses FLAG_IMMUTABLE (security best practice)
  * - Button intents use FLAG_MUTABLE (required for user interaction)
+ *
+ * For cold starts it also builds a minimal placeholder notification from
+ * resources resolved ahead of time (see prewarm), so the service can call
+ * startForeground well within its deadline and post the full notification
+ * right after.
  */
 class NotificationHelper {
     private static final String TAG = "NotificationHelper";
     private static final String NOTIFICATION_CHANNEL_ID = Constants.NOTIFICATION_CHANNEL_ID;
 
+    // Start options carried in the config bundle that do not change the notification
+    private static final List<String> NON_NOTIFICATION_KEYS = Arrays.asList(
+        "reuseRunning", "leaseName", "leaseTimeoutMs", "stopGraceMs", "prewarmReactContext"
+    );
+
     private static NotificationHelper instance = null;
     private final NotificationManager mNotificationManager;
     private final Context context;
@@ -33,6 +51,10 @@ class NotificationHelper {
     private PendingIntent pendingBtnIntent;
     private PendingIntent pendingBtn2Intent;
 
+    // Resolved ahead of time for placeholder notifications
+    private final Map<String, Integer> smallIconIds = new ConcurrentHashMap<>();
+    private volatile boolean channelReady;
+
     public static synchronized NotificationHelper getInstance(Context context) {
         if (instance == null) {
             instance = new NotificationHelper(context);
@@ -41,7 +63,8 @@ class NotificationHelper {
     }
 
     private NotificationHelper(Context context) {
-        this.context = context;
+        // Process-lifetime singleton: never hold on to a service or activity
+        this.context = context.getApplicationContext();
         this.mNotificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
         this.config = new NotificationConfig(context);
     }
@@ -54,78 +77,138 @@ class NotificationHelper {
      * @return Configured notification or null if configuration is invalid
      */
     Notification buildNotification(Context context, Bundle bundle) {
-        if (bundle == null) {
-            Log.e(TAG, "buildNotification: invalid config - bundle is null");
-            return null;
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        Tracing.begin(Tracing.BUILD_NOTIFICATION);
+        try {
+            return createNotification(context, bundle);
+        } finally {
+            Tracing.end();
+            MetricsRegistry.BUILD_NOTIFICATION.recordNanos(SystemClock.elapsedRealtimeNanos() - startNanos);
         }
+    }
 
-        Class<?> mainActivityClass = getMainActivityClass(context);
-        if (mainActivityClass == null) {
-            Log.e(TAG, "buildNotification: unable to find main activity class");
-            return null;
+    /**
+     * Resolve what a placeholder notification needs, off the start path
+     *
+     * Called from module init on a background thread: looks up the default
+     * small icon and whether the notification channel exists.
+     */
+    void prewarm() {
+        Tracing.begin(Tracing.PREWARM_NOTIFICATION);
+        try {
+            getSmallIconId(null);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && mNotificationManager != null) {
+                channelReady = mNotificationManager.getNotificationChannel(NOTIFICATION_CHANNEL_ID) != null;
+            }
+        } catch (Exception e) {
+            Logger.w(TAG, "Failed to prewarm notification resources: ", e.getMessage());
+        } finally {
+            Tracing.end();
         }
+    }
 
-        // Main notification intent - opens app and sends event
-        Intent notificationIntent = new Intent(context, mainActivityClass);
-        notificationIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
-        notificationIntent.putExtra("mainOnPress", bundle.getString("mainOnPress"));
-        int uniqueInt1 = (int) (System.currentTimeMillis() & 0xfffffff);
-
-        // Also create broadcast intent for event delivery
-        Intent broadcastIntent = new Intent(context, NotificationEventReceiver.class);
-        broadcastIntent.setAction(NotificationEventReceiver.ACTION_NOTIFICATION_MAIN);
-        broadcastIntent.putExtra("mainOnPress", bundle.getString("mainOnPress"));
-
-        // CRITICAL FIX: Use FLAG_IMMUTABLE for main intent (Android 12+ security requirement)
-        int mainIntentFlags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
-            ? PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
-            : PendingIntent.FLAG_UPDATE_CURRENT;
-
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-            context,
-            uniqueInt1,
-            notificationIntent,
-            mainIntentFlags
-        );
+    /**
+     * Build a minimal notification (title, text and small icon only)
+     *
+     * Skips the activity lookup, PendingIntents and bitmap decoding of
+     * buildNotification, so startForeground can be called right away on a
+     * cold start. Replace it with the full notification afterwards.
+     *
+     * @param bundle Configuration bundle from React Native
+     * @return Placeholder notification
+     */
+    Notification buildPlaceholderNotification(Bundle bundle) {
+        Tracing.begin(Tracing.BUILD_PLACEHOLDER);
+        try {
+            // The channel must exist before startForeground
+            ensureChannel(bundle);
+            return new NotificationCompat.Builder(context, NOTIFICATION_CHANNEL_ID)
+                .setContentTitle(bundle.getString("title", "Foreground Service"))
+                .setContentText(bundle.getString("message", "Running..."))
+                .setSmallIcon(getSmallIconId(bundle.getString("icon")))
+                .setOngoing(bundle.getBoolean("ongoing", false))
+                .setOnlyAlertOnce(true)
+                .build();
+        } finally {
+            Tracing.end();
+        }
+    }
 
-        // Button 1 intent - sends event via broadcast
-        if (bundle.getBoolean("button", false)) {
-            Intent notificationBtnIntent = new Intent(context, NotificationEventReceiver.class);
-            notificationBtnIntent.setAction(NotificationEventReceiver.ACTION_NOTIFICATION_BUTTON);
-            notificationBtnIntent.putExtra("buttonOnPress", bundle.getString("buttonOnPress"));
-            int uniqueInt = (int) (System.currentTimeMillis() & 0xfffffff);
+    /**
+     * Drop what is cached between builds under memory pressure
+     *
+     * The icon ids are looked up again and the button PendingIntents created
+     * again on the next build.
+     */
+    void trimMemory() {
+        smallIconIds.clear();
+        pendingBtnIntent = null;
+        pendingBtn2Intent = null;
+    }
 
-            // Button intents use FLAG_IMMUTABLE with broadcast
-            int buttonFlags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
-                ? PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
-                : PendingIntent.FLAG_UPDATE_CURRENT;
+    /**
+     * Small icon resource id for an icon name, cached per name
+     */
+    private int getSmallIconId(String iconName) {
+        if (iconName == null || iconName.isEmpty()) {
+            iconName = "ic_notification";
+        }
+        Integer cached = smallIconIds.get(iconName);
+        if (cached != null) {
+            return cached;
+        }
+        int iconResId = getResourceIdForResourceName(context, iconName);
+        if (iconResId == 0) {
+            // Fallback to app icon
+            iconResId = context.getApplicationInfo().icon;
+        }
+        smallIconIds.put(iconName, iconResId);
+        return iconResId;
+    }
 
-            pendingBtnIntent = PendingIntent.getBroadcast(
-                context,
-                uniqueInt,
-                notificationBtnIntent,
-                buttonFlags
-            );
+    /**
+     * Check whether two configuration bundles produce the same notification
+     *
+     * Used to reuse an already built notification instead of building it again.
+     */
+    static boolean isSameNotification(Bundle a, Bundle b) {
+        if (a == null || b == null) {
+            return false;
         }
+        Set<String> keys = new HashSet<>(a.keySet());
+        keys.addAll(b.keySet());
+        for (String key : keys) {
+            if (!NON_NOTIFICATION_KEYS.contains(key) && !Objects.equals(a.get(key), b.get(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        // Button 2 intent - sends event via broadcast
-        if (bundle.getBoolean("button2", false)) {
-            Intent notificationBtn2Intent = new Intent(context, NotificationEventReceiver.class);
-            notificationBtn2Intent.setAction(NotificationEventReceiver.ACTION_NOTIFICATION_BUTTON);
-            notificationBtn2Intent.putExtra("button2OnPress", bundle.getString("button2OnPress"));
-            int uniqueInt2 = (int) (System.currentTimeMillis() & 0xfffffff);
+    private Notification createNotification(Context context, Bundle bundle) {
+        if (bundle == null) {
+            Logger.e(TAG, "buildNotification: invalid config - bundle is null");
+            return null;
+        }
 
-            // Button intents use FLAG_IMMUTABLE with broadcast
-            int buttonFlags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
-                ? PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
-                : PendingIntent.FLAG_UPDATE_CURRENT;
+        Tracing.begin(Tracing.BUILD_ACTIVITY_LOOKUP);
+        Class<?> mainActivityClass;
+        try {
+            mainActivityClass = getMainActivityClass(context);
+        } finally {
+            Tracing.end();
+        }
+        if (mainActivityClass == null) {
+            Logger.e(TAG, "buildNotification: unable to find main activity class");
+            return null;
+        }
 
-            pendingBtn2Intent = PendingIntent.getBroadcast(
-                context,
-                uniqueInt2,
-                notificationBtn2Intent,
-                buttonFlags
-            );
+        Tracing.begin(Tracing.BUILD_PENDING_INTENTS);
+        PendingIntent pendingIntent;
+        try {
+            pendingIntent = createPendingIntents(context, bundle, mainActivityClass);
+        } finally {
+            Tracing.end();
         }
 
         // Parse notification priority
@@ -169,7 +252,12 @@ class NotificationHelper {
         }
 
         // Create or update notification channel
-        checkOrCreateChannel(mNotificationManager, bundle);
+        Tracing.begin(Tracing.BUILD_CHANNEL);
+        try {
+            ensureChannel(bundle);
+        } finally {
+            Tracing.end();
+        }
 
         // Build notification
         String title = bundle.getString("title", "Foreground Service");
@@ -211,7 +299,7 @@ class NotificationHelper {
             try {
                 notificationBuilder.setColor(Color.parseColor(color));
             } catch (IllegalArgumentException e) {
-                Log.w(TAG, "Invalid color format: " + color);
+                Logger.w(TAG, "Invalid color format: ", color);
             }
         }
 
@@ -219,16 +307,7 @@ class NotificationHelper {
         notificationBuilder.setStyle(new NotificationCompat.BigTextStyle().bigText(message));
 
         // Small icon
-        String iconName = bundle.getString("icon");
-        if (iconName == null || iconName.isEmpty()) {
-            iconName = "ic_notification";
-        }
-        int iconResId = getResourceIdForResourceName(context, iconName);
-        if (iconResId == 0) {
-            // Fallback to app icon
-            iconResId = context.getApplicationInfo().icon;
-        }
-        notificationBuilder.setSmallIcon(iconResId);
+        notificationBuilder.setSmallIcon(getSmallIconId(bundle.getString("icon")));
 
         // Large icon
         String largeIconName = bundle.getString("largeIcon");
@@ -237,13 +316,16 @@ class NotificationHelper {
         }
         int largeIconResId = getResourceIdForResourceName(context, largeIconName);
         if (largeIconResId != 0) {
+            Tracing.begin(Tracing.BUILD_BITMAP);
             try {
                 Bitmap largeIconBitmap = BitmapFactory.decodeResource(context.getResources(), largeIconResId);
                 if (largeIconBitmap != null) {
                     notificationBuilder.setLargeIcon(largeIconBitmap);
                 }
             } catch (Exception e) {
-                Log.w(TAG, "Failed to set large icon: " + e.getMessage());
+                Logger.w(TAG, "Failed to set large icon: ", e.getMessage());
+            } finally {
+                Tracing.end();
             }
         }
 
@@ -256,7 +338,7 @@ class NotificationHelper {
                     notificationBuilder.setNumber(numberInt);
                 }
             } catch (NumberFormatException e) {
-                Log.w(TAG, "Invalid number format: " + numberString);
+                Logger.w(TAG, "Invalid number format: ", numberString);
             }
         }
 
@@ -275,6 +357,78 @@ class NotificationHelper {
         return notificationBuilder.build();
     }
 
+    /**
+     * Create the main PendingIntent and the button PendingIntents
+     *
+     * @return PendingIntent for the main notification tap
+     */
+    private PendingIntent createPendingIntents(Context context, Bundle bundle, Class<?> mainActivityClass) {
+        // Main notification intent - opens app and sends event
+        Intent notificationIntent = new Intent(context, mainActivityClass);
+        notificationIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        notificationIntent.putExtra("mainOnPress", bundle.getString("mainOnPress"));
+        int uniqueInt1 = (int) (System.currentTimeMillis() & 0xfffffff);
+
+        // Also create broadcast intent for event delivery
+        Intent broadcastIntent = new Intent(context, NotificationEventReceiver.class);
+        broadcastIntent.setAction(NotificationEventReceiver.ACTION_NOTIFICATION_MAIN);
+        broadcastIntent.putExtra("mainOnPress", bundle.getString("mainOnPress"));
+
+        // CRITICAL FIX: Use FLAG_IMMUTABLE for main intent (Android 12+ security requirement)
+        int mainIntentFlags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+            ? PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
+            : PendingIntent.FLAG_UPDATE_CURRENT;
+
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+            context,
+            uniqueInt1,
+            notificationIntent,
+            mainIntentFlags
+        );
+
+        // Button 1 intent - sends event via broadcast
+        if (bundle.getBoolean("button", false)) {
+            Intent notificationBtnIntent = new Intent(context, NotificationEventReceiver.class);
+            notificationBtnIntent.setAction(NotificationEventReceiver.ACTION_NOTIFICATION_BUTTON);
+            notificationBtnIntent.putExtra("buttonOnPress", bundle.getString("buttonOnPress"));
+            int uniqueInt = (int) (System.currentTimeMillis() & 0xfffffff);
+
+            // Button intents use FLAG_IMMUTABLE with broadcast
+            int buttonFlags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+                ? PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
+                : PendingIntent.FLAG_UPDATE_CURRENT;
+
+            pendingBtnIntent = PendingIntent.getBroadcast(
+                context,
+                uniqueInt,
+                notificationBtnIntent,
+                buttonFlags
+            );
+        }
+
+        // Button 2 intent - sends event via broadcast
+        if (bundle.getBoolean("button2", false)) {
+            Intent notificationBtn2Intent = new Intent(context, NotificationEventReceiver.class);
+            notificationBtn2Intent.setAction(NotificationEventReceiver.ACTION_NOTIFICATION_BUTTON);
+            notificationBtn2Intent.putExtra("button2OnPress", bundle.getString("button2OnPress"));
+            int uniqueInt2 = (int) (System.currentTimeMillis() & 0xfffffff);
+
+            // Button intents use FLAG_IMMUTABLE with broadcast
+            int buttonFlags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+                ? PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
+                : PendingIntent.FLAG_UPDATE_CURRENT;
+
+            pendingBtn2Intent = PendingIntent.getBroadcast(
+                context,
+                uniqueInt2,
+                notificationBtn2Intent,
+                buttonFlags
+            );
+        }
+
+        return pendingIntent;
+    }
+
     /**
      * Get main activity class from package manager
      */
@@ -282,13 +436,13 @@ class NotificationHelper {
         String packageName = context.getPackageName();
         Intent launchIntent = context.getPackageManager().getLaunchIntentForPackage(packageName);
         if (launchIntent == null || launchIntent.getComponent() == null) {
-            Log.e(TAG, "Failed to get launch intent or component");
+            Logger.e(TAG, "Failed to get launch intent or component");
             return null;
         }
         try {
             return Class.forName(launchIntent.getComponent().getClassName());
         } catch (ClassNotFoundException e) {
-            Log.e(TAG, "Failed to get main activity class", e);
+            Logger.e(TAG, "Failed to get main activity class", e);
             return null;
         }
     }
@@ -307,6 +461,29 @@ class NotificationHelper {
     /**
      * Create or update notification channel (Android 8.0+)
      */
+    /**
+     * Create the notification channel unless it exists
+     *
+     * The app or the user may delete the channel while the process lives,
+     * so the cached channelReady is only trusted once the notification
+     * manager still has the channel.
+     */
+    private void ensureChannel(Bundle bundle) {
+        if (channelReady && channelExists()) {
+            return;
+        }
+        channelReady = false;
+        checkOrCreateChannel(mNotificationManager, bundle);
+        channelReady = true;
+    }
+
+    private boolean channelExists() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O || mNotificationManager == null) {
+            return true;
+        }
+        return mNotificationManager.getNotificationChannel(NOTIFICATION_CHANNEL_ID) != null;
+    }
+
     private void checkOrCreateChannel(NotificationManager manager, Bundle bundle) {
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
             return;
@@ -363,6 +540,6 @@ class NotificationHelper {
         channel.setShowBadge(true);
 
         manager.createNotificationChannel(channel);
-        Log.d(TAG, "Notification channel created: " + NOTIFICATION_CHANNEL_ID);
+        Logger.d(TAG, "Notification channel created: ", NOTIFICATION_CHANNEL_ID);
     }
 }
@@ -6,13 +6,23 @@ import android.content.pm.PackageManager;
 import android.os.Build;
 import androidx.core.content.ContextCompat;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Handles runtime permission checking for Android 13+ (POST_NOTIFICATIONS)
  * and Android 14+ (foreground service type permissions)
+ *
+ * Results are cached in a snapshot, so a start costs no permission IPC once
+ * the snapshot is warm. Runtime grants and revokes happen outside the app
+ * (settings or a permission dialog), so the module invalidates the snapshot
+ * when the host activity resumes and on configuration changes.
  */
 public class PermissionChecker {
 
     private final Context context;
+    private final Map<String, Boolean> serviceTypePermissions = new ConcurrentHashMap<>();
+    private volatile Boolean postNotificationsPermission;
 
     public PermissionChecker(Context context) {
         this.context = context;
@@ -25,27 +35,63 @@ public class PermissionChecker {
      */
     public boolean hasPostNotificationsPermission() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-            return ContextCompat.checkSelfPermission(
-                context,
-                Manifest.permission.POST_NOTIFICATIONS
-            ) == PackageManager.PERMISSION_GRANTED;
+            Boolean granted = postNotificationsPermission;
+            if (granted == null) {
+                granted = isGranted(Manifest.permission.POST_NOTIFICATIONS);
+                postNotificationsPermission = granted;
+            }
+            return granted;
         }
         // Permission not required for Android < 13
         return true;
     }
 
     /**
-     * Check if required foreground service type permission is granted (Android 14+)
+     * Drop the cached permission snapshot; the next check reads fresh state
+     */
+    public void invalidate() {
+        postNotificationsPermission = null;
+        serviceTypePermissions.clear();
+    }
+
+    /**
+     * Check if required foreground service type permissions are granted (Android 14+)
      *
-     * @param serviceType Service type string ('dataSync', 'location', 'mediaPlayback')
-     * @return true if permission is granted or not required, false otherwise
+     * @param serviceType Service type string ('dataSync', 'location', 'mediaPlayback'),
+     *     or several types combined as 'dataSync|location'
+     * @return true if all permissions are granted or not required, false otherwise
      */
     public boolean hasForegroundServicePermission(String serviceType) {
+        for (String type : ServiceTypeManager.splitTypes(serviceType)) {
+            Boolean granted = serviceTypePermissions.get(type);
+            if (granted == null) {
+                granted = checkForegroundServicePermission(type);
+                serviceTypePermissions.put(type, granted);
+            }
+            if (!granted) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * First service type in a combined type string that is missing its permission
+     *
+     * @return The missing type, or null if all are granted
+     */
+    public String getMissingServiceType(String serviceType) {
+        for (String type : ServiceTypeManager.splitTypes(serviceType)) {
+            if (!hasForegroundServicePermission(type)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private boolean checkForegroundServicePermission(String serviceType) {
         // Base FOREGROUND_SERVICE permission is always required
-        boolean hasBasePermission = ContextCompat.checkSelfPermission(
-            context,
-            Manifest.permission.FOREGROUND_SERVICE
-        ) == PackageManager.PERMISSION_GRANTED;
+        boolean hasBasePermission = isGranted(Manifest.permission.FOREGROUND_SERVICE);
 
         if (!hasBasePermission) {
             return false;
@@ -54,20 +100,23 @@ public class PermissionChecker {
         // For Android 14+, check type-specific permission if required
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
             if (ServiceTypeManager.requiresAdditionalPermissions(serviceType)) {
-                String typePermission = ServiceTypeManager.getRequiredPermission(serviceType);
-                return ContextCompat.checkSelfPermission(
-                    context,
-                    typePermission
-                ) == PackageManager.PERMISSION_GRANTED;
+                return isGranted(ServiceTypeManager.getRequiredPermission(serviceType));
             }
         }
 
         return true;
     }
 
+    private boolean isGranted(String permission) {
+        MetricsRegistry.PERMISSION_CHECKS.incrementAndGet();
+        return ContextCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED;
+    }
+
     /**
      * Get a user-friendly error message for missing permissions
      *
+     * Reads the same snapshot as the checks, so it adds no permission IPC.
+     *
      * @param serviceType Service type that requires permissions
      * @return Error message string
      */
@@ -80,10 +129,11 @@ public class PermissionChecker {
         }
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
-            if (!hasForegroundServicePermission(serviceType)) {
-                String permission = ServiceTypeManager.getRequiredPermission(serviceType);
+            String missingType = getMissingServiceType(serviceType);
+            if (missingType != null) {
+                String permission = ServiceTypeManager.getRequiredPermission(missingType);
                 return "Permission '" + permission + "' is required for service type '" +
-                    serviceType + "' on Android 14+. Please add this permission to your AndroidManifest.xml";
+                    missingType + "' on Android 14+. Please add this permission to your AndroidManifest.xml";
             }
         }
 
@@ -0,0 +1,130 @@
+package com.kirenpaul.foregroundservice;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+
+import androidx.core.content.ContextCompat;
+
+/**
+ * Chooses where elastic tasks run in their period range from the power state
+ *
+ * Fed by the sticky ACTION_BATTERY_CHANGED broadcast (read once on start,
+ * then on every change) and ACTION_POWER_SAVE_MODE_CHANGED.
+ *
+ * Policy (0 = shortest period, 100 = longest):
+ * - Charging: 0
+ * - Battery saver on, or battery at LOW_BATTERY_PERCENT or below: 100
+ * - Otherwise: scaled with the battery drained, rounded to steps of 10 so
+ *   each 1% drop does not reschedule the tasks
+ *
+ * Call from the main thread.
+ */
+final class PowerPolicy extends BroadcastReceiver {
+
+    private static final String TAG = "PowerPolicy";
+
+    static final int LOW_BATTERY_PERCENT = 15;
+
+    /**
+     * Receives elastic percent changes
+     */
+    interface Listener {
+        void onElasticPercentChanged(int percent);
+    }
+
+    private final Context context;
+    private final PowerManager powerManager;
+    private final Listener listener;
+    private Intent batteryStatus;
+    private boolean registered;
+    private int percent = -1;
+
+    PowerPolicy(Context context, Listener listener) {
+        this.context = context;
+        this.powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        this.listener = listener;
+    }
+
+    /**
+     * Start following the power state
+     */
+    void start() {
+        if (registered) {
+            return;
+        }
+        IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        // Returns the sticky battery status right away
+        batteryStatus = ContextCompat.registerReceiver(
+            context, this, filter, ContextCompat.RECEIVER_NOT_EXPORTED
+        );
+        registered = true;
+        update();
+    }
+
+    /**
+     * Stop following the power state
+     */
+    void stop() {
+        if (!registered) {
+            return;
+        }
+        registered = false;
+        try {
+            context.unregisterReceiver(this);
+        } catch (IllegalArgumentException e) {
+            Logger.w(TAG, "Power receiver was not registered");
+        }
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+            batteryStatus = intent;
+        }
+        update();
+    }
+
+    private void update() {
+        boolean charging = false;
+        int batteryPercent = 100;
+        if (batteryStatus != null) {
+            int status = batteryStatus.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+            charging = status == BatteryManager.BATTERY_STATUS_CHARGING
+                || status == BatteryManager.BATTERY_STATUS_FULL
+                || batteryStatus.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+            int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            if (level >= 0 && scale > 0) {
+                batteryPercent = level * 100 / scale;
+            }
+        }
+        boolean powerSave = powerManager != null && powerManager.isPowerSaveMode();
+
+        int newPercent = elasticPercent(charging, powerSave, batteryPercent);
+        if (newPercent == percent) {
+            return;
+        }
+        percent = newPercent;
+        Logger.d(TAG, "Elastic task period percent: ", newPercent);
+        listener.onElasticPercentChanged(newPercent);
+    }
+
+    /**
+     * @return Where elastic tasks run in their period range (0 = shortest, 100 = longest)
+     */
+    static int elasticPercent(boolean charging, boolean powerSave, int batteryPercent) {
+        if (charging) {
+            return 0;
+        }
+        if (powerSave || batteryPercent <= LOW_BATTERY_PERCENT) {
+            return 100;
+        }
+        int drained = (100 - batteryPercent) * 100 / (100 - LOW_BATTERY_PERCENT);
+        return Math.round(drained / 10f) * 10;
+    }
+}
@@ -0,0 +1,160 @@
+package com.kirenpaul.foregroundservice;
+
+import android.content.Context;
+
+import com.facebook.react.ReactApplication;
+import com.facebook.react.ReactInstanceEventListener;
+import com.facebook.react.ReactInstanceManager;
+import com.facebook.react.ReactNativeHost;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.jstasks.HeadlessJsTaskContext;
+
+/**
+ * Keeps a React context ready for headless task dispatch (opt-in)
+ *
+ * Without it, the first loop tick after the service started in a fresh
+ * process (or after the React instance was torn down) waits while
+ * HeadlessJsTaskService creates the React instance. The warmer starts
+ * creating it as soon as a task is scheduled, ahead of the first tick, and
+ * holds on to it until memory pressure or the service stops.
+ *
+ * Features:
+ * - Never creates a second instance; warms the app's ReactNativeHost
+ * - Under memory pressure, destroys the instance only if the warmer created
+ *   it and nothing uses it (no activity, no running headless task)
+ * - Cold vs warm dispatch counts and latencies (see ForegroundServiceTask)
+ *
+ * Call from the main thread.
+ */
+final class ReactContextWarmer implements ReactInstanceEventListener {
+
+    private static final String TAG = "ReactContextWarmer";
+
+    private final Context context;
+    private ReactContext warmContext;
+    private boolean listening;
+    private boolean createdByWarmer;
+
+    ReactContextWarmer(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * @return true if a React context is ready to run headless tasks
+     */
+    static boolean isReady(Context context) {
+        try {
+            ReactInstanceManager manager = getReactInstanceManager(context);
+            return manager != null && manager.getCurrentReactContext() != null;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Start creating the React context if there is none
+     */
+    void prewarm() {
+        if (warmContext != null) {
+            return;
+        }
+
+        ReactInstanceManager manager;
+        try {
+            manager = getReactInstanceManager(context);
+        } catch (RuntimeException e) {
+            Logger.e(TAG, "Unable to get the React instance manager", e);
+            return;
+        }
+        if (manager == null) {
+            Logger.w(TAG, "Application is not a ReactApplication, skipping prewarm");
+            return;
+        }
+
+        ReactContext current = manager.getCurrentReactContext();
+        if (current != null) {
+            warmContext = current;
+            return;
+        }
+
+        if (!listening) {
+            manager.addReactInstanceEventListener(this);
+            listening = true;
+        }
+        if (!manager.hasStartedCreatingInitialContext()) {
+            Logger.d(TAG, "Prewarming React context for headless tasks");
+            MetricsRegistry.REACT_CONTEXT_PREWARMS.incrementAndGet();
+            createdByWarmer = true;
+            manager.createReactContextInBackground();
+        }
+    }
+
+    @Override
+    public void onReactContextInitialized(ReactContext reactContext) {
+        warmContext = reactContext;
+        stopListening();
+        Logger.d(TAG, "React context ready for headless tasks");
+    }
+
+    /**
+     * Release the React context under memory pressure
+     *
+     * Destroys it only if the warmer created it and it is idle; a context
+     * shared with the UI or running a task is only let go.
+     */
+    void trim() {
+        ReactContext current = warmContext;
+        release();
+        if (current == null || !createdByWarmer) {
+            return;
+        }
+        createdByWarmer = false;
+        if (current.hasCurrentActivity()
+            || HeadlessJsTaskContext.getInstance(current).hasActiveTasks()) {
+            return;
+        }
+
+        ReactNativeHost host = getReactNativeHost(context);
+        if (host != null && host.hasInstance()) {
+            Logger.d(TAG, "Destroying idle prewarmed React context under memory pressure");
+            MetricsRegistry.REACT_CONTEXT_RELEASES.incrementAndGet();
+            host.clear();
+        }
+    }
+
+    /**
+     * Stop holding on to the React context
+     */
+    void release() {
+        warmContext = null;
+        stopListening();
+    }
+
+    private void stopListening() {
+        if (!listening) {
+            return;
+        }
+        listening = false;
+        try {
+            ReactInstanceManager manager = getReactInstanceManager(context);
+            if (manager != null) {
+                manager.removeReactInstanceEventListener(this);
+            }
+        } catch (RuntimeException e) {
+            Logger.e(TAG, "Unable to remove React instance listener", e);
+        }
+    }
+
+    private static ReactNativeHost getReactNativeHost(Context context) {
+        Context application = context.getApplicationContext();
+        if (!(application instanceof ReactApplication)) {
+            return null;
+        }
+        return ((ReactApplication) application).getReactNativeHost();
+    }
+
+    private static ReactInstanceManager getReactInstanceManager(Context context) {
+        ReactNativeHost host = getReactNativeHost(context);
+        return host != null ? host.getReactInstanceManager() : null;
+    }
+}
@@ -0,0 +1,279 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Listener-aware event emitter for native to JavaScript events
+ *
+ * Features:
+ * - Tracks JS listener count from addListener/removeListeners
+ * - Skips payload serialization entirely when nobody is listening
+ * - Coalesces queued events into one array emit per event name per frame
+ * - Holds user-facing events (notification clicks) that arrive before JS
+ *   listens, and delivers them once a listener attaches
+ */
+class ServiceEventEmitter {
+
+    private static final String TAG = "ServiceEventEmitter";
+    private static final long FRAME_INTERVAL_MS = 16;
+    private static final int MAX_QUEUED_EVENTS = 256;
+    private static final int LOW_MEMORY_MAX_QUEUED_EVENTS = 32;
+    private static final int MAX_HELD_EVENTS = 8;
+
+    private static ServiceEventEmitter instance = null;
+
+    private final AtomicInteger listenerCount = new AtomicInteger(0);
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Object queueLock = new Object();
+    private final Runnable flushRunnable = this::flush;
+    private final Runnable deliverHeldRunnable = this::deliverHeld;
+
+    private volatile ReactContext reactContext;
+    private List<QueuedEvent> queue = new ArrayList<>();
+    private boolean flushScheduled = false;
+    private int droppedEvents = 0;
+    private int maxQueuedEvents = MAX_QUEUED_EVENTS;
+    // Events for emitOrHold that found no listener, oldest first (survive detach)
+    private final List<QueuedEvent> held = new ArrayList<>();
+    // Event names JS added a listener for since the context was attached
+    private final Set<String> listenedEvents = ConcurrentHashMap.newKeySet();
+
+    public static synchronized ServiceEventEmitter getInstance() {
+        if (instance == null) {
+            instance = new ServiceEventEmitter();
+        }
+        return instance;
+    }
+
+    private ServiceEventEmitter() {
+    }
+
+    /**
+     * Attach the React context events are delivered to
+     */
+    void attach(ReactContext reactContext) {
+        this.reactContext = reactContext;
+        handler.post(deliverHeldRunnable);
+    }
+
+    /**
+     * Shrink the event queue under critical memory pressure (events beyond
+     * the smaller limit are dropped and counted), or restore it
+     */
+    void setLowMemory(boolean lowMemory) {
+        synchronized (queueLock) {
+            maxQueuedEvents = lowMemory ? LOW_MEMORY_MAX_QUEUED_EVENTS : MAX_QUEUED_EVENTS;
+        }
+    }
+
+    /**
+     * Detach the React context and drop any queued events (held events stay)
+     */
+    void detach() {
+        this.reactContext = null;
+        listenerCount.set(0);
+        listenedEvents.clear();
+        synchronized (queueLock) {
+            queue.clear();
+            flushScheduled = false;
+        }
+        handler.removeCallbacks(flushRunnable);
+    }
+
+    void addListener(String eventName) {
+        listenerCount.incrementAndGet();
+        if (eventName != null && listenedEvents.add(eventName)) {
+            handler.post(deliverHeldRunnable);
+        }
+    }
+
+    void removeListeners(int count) {
+        // Never go below zero if JS removes more listeners than it added
+        listenerCount.updateAndGet(current -> Math.max(0, current - count));
+    }
+
+    /**
+     * Cheap check callers use before building any payload
+     *
+     * @return true if JS has listeners and a React context is attached
+     */
+    boolean hasListeners() {
+        return listenerCount.get() > 0 && reactContext != null;
+    }
+
+    int getDroppedEventCount() {
+        synchronized (queueLock) {
+            return droppedEvents;
+        }
+    }
+
+    /**
+     * Emit a single event immediately (used for user-facing, low-rate events)
+     *
+     * @param eventName JS event name
+     * @param body Event payload
+     */
+    void emit(String eventName, WritableMap body) {
+        ReactContext context = reactContext;
+        if (listenerCount.get() <= 0 || context == null) {
+            return;
+        }
+        try {
+            if (context.hasActiveReactInstance()) {
+                context
+                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(eventName, body);
+            }
+        } catch (Exception e) {
+            Logger.e(TAG, "Failed to emit event " + eventName, e);
+        }
+    }
+
+    /**
+     * Emit a user-facing event now, or hold it until JS listens
+     *
+     * A notification click can start the app before its JS has registered a
+     * listener for it (or before the module is attached at all). Held
+     * events are delivered in order once both are there; beyond
+     * MAX_HELD_EVENTS the oldest are dropped.
+     *
+     * @param eventName JS event name
+     * @param body Event payload
+     */
+    void emitOrHold(String eventName, Bundle body) {
+        if (hasListeners() && listenedEvents.contains(eventName)) {
+            emit(eventName, Arguments.fromBundle(body));
+            return;
+        }
+        synchronized (queueLock) {
+            if (held.size() >= MAX_HELD_EVENTS) {
+                held.remove(0);
+                droppedEvents += 1;
+            }
+            held.add(new QueuedEvent(eventName, body));
+        }
+    }
+
+    /**
+     * Deliver the held events once JS listens on an active React instance
+     */
+    private void deliverHeld() {
+        ReactContext context = reactContext;
+        if (!hasListeners() || context == null || !context.hasActiveReactInstance()) {
+            return;
+        }
+        List<QueuedEvent> events = new ArrayList<>();
+        synchronized (queueLock) {
+            Iterator<QueuedEvent> iterator = held.iterator();
+            while (iterator.hasNext()) {
+                QueuedEvent event = iterator.next();
+                if (listenedEvents.contains(event.eventName)) {
+                    events.add(event);
+                    iterator.remove();
+                }
+            }
+        }
+        for (QueuedEvent event : events) {
+            emit(event.eventName, Arguments.fromBundle(event.body));
+        }
+    }
+
+    /**
+     * Queue an event for the next frame flush
+     *
+     * All events queued for the same event name within a frame are delivered
+     * to JS as one array emit. The bundle is only converted to a WritableMap
+     * when the flush runs.
+     *
+     * @param eventName JS event name
+     * @param body Event payload
+     */
+    void enqueue(String eventName, Bundle body) {
+        if (!hasListeners()) {
+            return;
+        }
+
+        synchronized (queueLock) {
+            if (queue.size() >= maxQueuedEvents) {
+                droppedEvents += 1;
+                return;
+            }
+            queue.add(new QueuedEvent(eventName, body));
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        handler.postDelayed(flushRunnable, FRAME_INTERVAL_MS);
+    }
+
+    /**
+     * Deliver all queued events grouped by event name
+     */
+    private void flush() {
+        List<QueuedEvent> pending;
+        synchronized (queueLock) {
+            pending = queue;
+            queue = new ArrayList<>();
+            flushScheduled = false;
+        }
+
+        if (pending.isEmpty() || !hasListeners()) {
+            return;
+        }
+
+        Map<String, WritableArray> batches = new LinkedHashMap<>();
+        for (QueuedEvent event : pending) {
+            WritableArray batch = batches.get(event.eventName);
+            if (batch == null) {
+                batch = Arguments.createArray();
+                batches.put(event.eventName, batch);
+            }
+            batch.pushMap(Arguments.fromBundle(event.body));
+        }
+
+        ReactContext context = reactContext;
+        if (context == null) {
+            return;
+        }
+        try {
+            if (!context.hasActiveReactInstance()) {
+                return;
+            }
+            DeviceEventManagerModule.RCTDeviceEventEmitter emitter =
+                context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class);
+            for (Map.Entry<String, WritableArray> entry : batches.entrySet()) {
+                emitter.emit(entry.getKey(), entry.getValue());
+            }
+        } catch (Exception e) {
+            Logger.e(TAG, "Failed to flush queued events", e);
+        }
+    }
+
+    private static final class QueuedEvent {
+        final String eventName;
+        final Bundle body;
+
+        QueuedEvent(String eventName, Bundle body) {
+            this.eventName = eventName;
+            this.body = body;
+        }
+    }
+}
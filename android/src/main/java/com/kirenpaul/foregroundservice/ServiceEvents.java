@@ -0,0 +1,185 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+
+/**
+ * Typed service lifecycle and task telemetry events sent to JavaScript
+ *
+ * Events are delivered through ServiceEventEmitter under a single event name,
+ * coalesced per frame into an array. Every event carries a monotonic
+ * timestamp (SystemClock.elapsedRealtime) so it can be correlated with
+ * app-level timings.
+ *
+ * Emission is disabled by default. While disabled, or while JS has no
+ * listeners, each call is a volatile read and a return.
+ */
+class ServiceEvents {
+
+    static final String EVENT_NAME = "foregroundServiceEvent";
+
+    static final String TYPE_STARTED = "started";
+    static final String TYPE_STOPPED = "stopped";
+    static final String TYPE_TICK = "tick";
+    static final String TYPE_TASK_DROPPED = "taskDropped";
+    static final String TYPE_RESTARTED = "restarted";
+    static final String TYPE_RESTORED = "restored";
+    static final String TYPE_LEASE_EXPIRED = "leaseExpired";
+    static final String TYPE_SERVICE_TYPE_CHANGED = "serviceTypeChanged";
+    static final String TYPE_THROTTLE_CHANGED = "throttleChanged";
+    static final String TYPE_MEMORY_TRIM = "memoryTrim";
+
+    private static volatile boolean enabled = false;
+
+    private ServiceEvents() {
+    }
+
+    static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    static boolean isEnabled() {
+        return enabled && ServiceEventEmitter.getInstance().hasListeners();
+    }
+
+    /**
+     * Service reached startForeground
+     */
+    static void started(int notificationId, String serviceType, int runningCount) {
+        if (!isEnabled()) {
+            return;
+        }
+        Bundle body = create(TYPE_STARTED);
+        body.putInt("notificationId", notificationId);
+        body.putString("serviceType", serviceType);
+        body.putInt("running", runningCount);
+        send(body);
+    }
+
+    /**
+     * Service stopped (last stop or stopAll)
+     */
+    static void stopped(boolean forced) {
+        if (!isEnabled()) {
+            return;
+        }
+        Bundle body = create(TYPE_STOPPED);
+        body.putBoolean("forced", forced);
+        send(body);
+    }
+
+    /**
+     * Loop tick dispatched a headless task
+     */
+    static void tick(String taskName, long latenessMs) {
+        if (!isEnabled()) {
+            return;
+        }
+        Bundle body = create(TYPE_TICK);
+        body.putString("taskName", taskName);
+        body.putDouble("latenessMs", latenessMs);
+        send(body);
+    }
+
+    /**
+     * Delayed task was dropped because the service was no longer running
+     */
+    static void taskDropped(String taskName, String reason) {
+        if (!isEnabled()) {
+            return;
+        }
+        Bundle body = create(TYPE_TASK_DROPPED);
+        body.putString("taskName", taskName);
+        body.putString("reason", reason);
+        send(body);
+    }
+
+    /**
+     * OS restarted the service (redelivered or retried intent)
+     */
+    static void restarted(String action, boolean redelivery) {
+        if (!isEnabled()) {
+            return;
+        }
+        Bundle body = create(TYPE_RESTARTED);
+        body.putString("action", action);
+        body.putBoolean("redelivery", redelivery);
+        send(body);
+    }
+
+    /**
+     * Service state saved before process death was restored
+     */
+    static void restored(int runningCount, int sessionCount) {
+        if (!isEnabled()) {
+            return;
+        }
+        Bundle body = create(TYPE_RESTORED);
+        body.putInt("running", runningCount);
+        body.putInt("sessions", sessionCount);
+        send(body);
+    }
+
+    /**
+     * Lease was released by its timeout instead of by its holder
+     */
+    static void leaseExpired(String leaseId, String name, long heldMs) {
+        if (!isEnabled()) {
+            return;
+        }
+        Bundle body = create(TYPE_LEASE_EXPIRED);
+        body.putString("leaseId", leaseId);
+        body.putString("name", name);
+        body.putDouble("heldMs", heldMs);
+        send(body);
+    }
+
+    /**
+     * Running service switched to a new foreground service type mask
+     */
+    static void serviceTypeChanged(String serviceType) {
+        if (!isEnabled()) {
+            return;
+        }
+        Bundle body = create(TYPE_SERVICE_TYPE_CHANGED);
+        body.putString("serviceType", serviceType);
+        send(body);
+    }
+
+    /**
+     * Thermal throttle level changed (see ThermalThrottle)
+     */
+    static void throttleChanged(int level, int thermalStatus) {
+        if (!isEnabled()) {
+            return;
+        }
+        Bundle body = create(TYPE_THROTTLE_CHANGED);
+        body.putInt("throttleLevel", level);
+        body.putInt("thermalStatus", thermalStatus);
+        send(body);
+    }
+
+    /**
+     * System asked the process to trim memory (see MemoryPressure)
+     */
+    static void memoryTrim(String tier, int trimLevel) {
+        if (!isEnabled()) {
+            return;
+        }
+        Bundle body = create(TYPE_MEMORY_TRIM);
+        body.putString("memoryTier", tier);
+        body.putInt("trimLevel", trimLevel);
+        send(body);
+    }
+
+    private static Bundle create(String type) {
+        Bundle body = new Bundle();
+        body.putString("type", type);
+        body.putDouble("timestamp", SystemClock.elapsedRealtime());
+        return body;
+    }
+
+    private static void send(Bundle body) {
+        ServiceEventEmitter.getInstance().enqueue(EVENT_NAME, body);
+    }
+}
@@ -0,0 +1,200 @@
+package com.kirenpaul.foregroundservice;
+
+import android.app.Notification;
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Named foreground sessions multiplexed onto the one foreground service
+ *
+ * Each session has its own notification, service type and task loop. One
+ * session (the foreground session) backs startForeground; the others post
+ * their notifications normally. The service runs with the OR of the
+ * session type masks.
+ *
+ * Features:
+ * - Sessions kept in start order (the oldest takes over the foreground)
+ * - Combined service type string of all sessions
+ * - Snapshot for getSessions()
+ */
+final class ServiceSessions {
+
+    /**
+     * Session of starts that do not name one
+     */
+    static final String DEFAULT_SESSION = "default";
+
+    /**
+     * A single foreground session (immutable, replaced on update)
+     */
+    static final class Session {
+        final String name;
+        final Bundle config;
+        final Notification notification;
+        final String leaseId;
+
+        Session(String name, Bundle config, Notification notification, String leaseId) {
+            this.name = name;
+            this.config = config;
+            this.notification = notification;
+            this.leaseId = leaseId;
+        }
+
+        int getNotificationId() {
+            return (int) config.getDouble("id");
+        }
+
+        String getServiceType() {
+            return config.getString("serviceType", ServiceTypeManager.TYPE_DATA_SYNC);
+        }
+
+        Session withNotification(Bundle config, Notification notification) {
+            return new Session(name, config, notification, leaseId);
+        }
+
+        Session withServiceType(String serviceType) {
+            Bundle updatedConfig = new Bundle(config);
+            updatedConfig.putString("serviceType", serviceType);
+            return new Session(name, updatedConfig, notification, leaseId);
+        }
+
+        Bundle toBundle(boolean foreground) {
+            Bundle bundle = new Bundle();
+            bundle.putString("name", name);
+            bundle.putDouble("notificationId", getNotificationId());
+            bundle.putString("serviceType", getServiceType());
+            bundle.putBoolean("foreground", foreground);
+            return bundle;
+        }
+    }
+
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>();
+    private String foreground;
+
+    /**
+     * Session name of a start config (the default session if it has none)
+     */
+    static String nameOf(Bundle config) {
+        String name = config != null ? config.getString("session") : null;
+        return name != null && !name.isEmpty() ? name : DEFAULT_SESSION;
+    }
+
+    synchronized Session get(String name) {
+        return sessions.get(name);
+    }
+
+    /**
+     * Add a session, or replace the session with the same name (keeping its position)
+     */
+    synchronized void put(Session session) {
+        sessions.put(session.name, session);
+    }
+
+    /**
+     * Remove a session
+     *
+     * @return The removed session, or null if there is none with that name
+     */
+    synchronized Session remove(String name) {
+        Session session = sessions.remove(name);
+        if (session != null && name.equals(foreground)) {
+            foreground = null;
+        }
+        return session;
+    }
+
+    /**
+     * @return The session backing startForeground, or null if there is none
+     */
+    synchronized Session getForeground() {
+        return foreground != null ? sessions.get(foreground) : null;
+    }
+
+    synchronized void setForeground(String name) {
+        foreground = name;
+    }
+
+    /**
+     * Make the oldest session the foreground session
+     *
+     * @return The new foreground session, or null if there are no sessions
+     */
+    synchronized Session promoteForeground() {
+        if (sessions.isEmpty()) {
+            foreground = null;
+            return null;
+        }
+        Session session = sessions.values().iterator().next();
+        foreground = session.name;
+        return session;
+    }
+
+    /**
+     * Combined service type of all sessions ("mediaPlayback|dataSync")
+     *
+     * @return Distinct types joined with '|', or null if there are no sessions
+     */
+    synchronized String getServiceTypes() {
+        if (sessions.isEmpty()) {
+            return null;
+        }
+        Set<String> types = new LinkedHashSet<>();
+        for (Session session : sessions.values()) {
+            Collections.addAll(types, ServiceTypeManager.splitTypes(session.getServiceType()));
+        }
+        return String.join(ServiceTypeManager.TYPE_SEPARATOR, types);
+    }
+
+    /**
+     * @return true if a session still shows a notification with this id
+     */
+    synchronized boolean usesNotificationId(int id) {
+        for (Session session : sessions.values()) {
+            if (session.getNotificationId() == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized int size() {
+        return sessions.size();
+    }
+
+    synchronized boolean isEmpty() {
+        return sessions.isEmpty();
+    }
+
+    synchronized void clear() {
+        sessions.clear();
+        foreground = null;
+    }
+
+    /**
+     * @return Notification configs of the sessions, oldest first
+     */
+    synchronized List<Bundle> getConfigs() {
+        List<Bundle> result = new ArrayList<>(sessions.size());
+        for (Session session : sessions.values()) {
+            result.add(session.config);
+        }
+        return result;
+    }
+
+    /**
+     * @return Active sessions, oldest first
+     */
+    synchronized List<Bundle> snapshot() {
+        List<Bundle> result = new ArrayList<>(sessions.size());
+        for (Session session : sessions.values()) {
+            result.add(session.toBundle(session.name.equals(foreground)));
+        }
+        return result;
+    }
+}
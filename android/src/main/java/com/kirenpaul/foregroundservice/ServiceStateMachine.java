@@ -0,0 +1,260 @@
+package com.kirenpaul.foregroundservice;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free lifecycle state machine for ForegroundService
+ *
+ * State, pending starts and start count are packed into a single AtomicLong
+ * (state in the top 16 bits, pending starts in the next 16, count in the low
+ * 32 bits), so any thread can read them consistently with one volatile read,
+ * and every transition is a single compare-and-set.
+ *
+ * STARTING is not stored: the service is STARTING while a start is pending
+ * (requested and neither completed nor cancelled), whatever its underlying
+ * state. Transitions of the underlying state (a release, stopAll, onDestroy)
+ * keep the pending starts, so a start in flight is never lost, and completing
+ * or cancelling it lands on the state the service reached meanwhile.
+ *
+ * Transitions:
+ * - DESTROYED -> CREATED                 onCreate
+ * - any state -> STARTING                start requested (module or service)
+ * - STARTING -> FOREGROUND (count + 1)   startForeground succeeded
+ * - STARTING -> CREATED / FOREGROUND     start failed (count unchanged)
+ * - STARTING -> underlying state         start cancelled before reaching the service
+ * - FOREGROUND -> FOREGROUND (count - 1) stop with more than one start
+ * - any live state -> STOPPING           last stop or stopAll
+ * - any state -> DESTROYED               onDestroy (pending starts are kept)
+ * - any live state -> FOREGROUND (count)  state restored after process death
+ *
+ * A start requested by the module before the service exists stays pending
+ * through onCreate, so JS sees the service as starting from the moment the
+ * intent is dispatched.
+ */
+final class ServiceStateMachine {
+
+    enum State {
+        CREATED,
+        STARTING,
+        FOREGROUND,
+        STOPPING,
+        DESTROYED
+    }
+
+    private static final State[] STATES = State.values();
+    private static final int PENDING_MAX = 0xffff;
+
+    private final AtomicLong packed = new AtomicLong(pack(State.DESTROYED, 0, 0));
+
+    static long pack(State state, int pending, int count) {
+        return ((long) state.ordinal() << 48)
+            | ((long) Math.min(Math.max(pending, 0), PENDING_MAX) << 32)
+            | (count & 0xffffffffL);
+    }
+
+    /**
+     * Reported state: STARTING while a start is pending, else the underlying state
+     */
+    static State stateOf(long value) {
+        return pendingOf(value) > 0 ? State.STARTING : baseOf(value);
+    }
+
+    static State baseOf(long value) {
+        return STATES[(int) (value >>> 48)];
+    }
+
+    static int pendingOf(long value) {
+        return (int) ((value >>> 32) & PENDING_MAX);
+    }
+
+    static int countOf(long value) {
+        return (int) value;
+    }
+
+    State getState() {
+        return stateOf(packed.get());
+    }
+
+    int getStartCount() {
+        return countOf(packed.get());
+    }
+
+    /**
+     * @return true if the service is starting or in the foreground
+     */
+    boolean isActive() {
+        return isActive(packed.get());
+    }
+
+    private static boolean isActive(long value) {
+        return pendingOf(value) > 0 || (baseOf(value) == State.FOREGROUND && countOf(value) > 0);
+    }
+
+    /**
+     * Raw packed value, for callers that need state and count from one read
+     */
+    long snapshot() {
+        return packed.get();
+    }
+
+    void onCreate() {
+        while (true) {
+            long current = packed.get();
+            // A start requested before the service existed stays pending
+            if (packed.compareAndSet(current, pack(State.CREATED, pendingOf(current), 0))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Request a start whose intent is about to be dispatched; it is pending
+     * until the service completes it or the caller cancels it
+     */
+    void beginStart() {
+        while (true) {
+            long current = packed.get();
+            long next = pack(baseOf(current), pendingOf(current) + 1, countOf(current));
+            if (packed.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Request a start unless the service is already starting or running
+     *
+     * @return true if a start is now pending for the caller, false if
+     *     another start owns the service
+     */
+    boolean tryBeginStart() {
+        while (true) {
+            long current = packed.get();
+            if (isActive(current)) {
+                return false;
+            }
+            long next = pack(baseOf(current), pendingOf(current) + 1, countOf(current));
+            if (packed.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Start in the service: joins the pending start whose intent it is
+     * handling, or marks its own start as pending
+     */
+    void joinStart() {
+        while (true) {
+            long current = packed.get();
+            if (pendingOf(current) > 0) {
+                return;
+            }
+            if (packed.compareAndSet(current, pack(baseOf(current), 1, countOf(current)))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Undo beginStart or tryBeginStart when the start never reached the service
+     *
+     * Only this start's pending mark is dropped: other pending starts stay,
+     * and the underlying state keeps whatever releases or stops did meanwhile.
+     */
+    void cancelStart() {
+        while (true) {
+            long current = packed.get();
+            long next = pack(baseOf(current), pendingOf(current) - 1, countOf(current));
+            if (packed.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finish a start
+     *
+     * @param success Whether startForeground succeeded
+     * @return Start count after the transition
+     */
+    int completeStart(boolean success) {
+        while (true) {
+            long current = packed.get();
+            int count = countOf(current);
+            int pending = pendingOf(current) - 1;
+            long next;
+            if (success) {
+                next = pack(State.FOREGROUND, pending, count + 1);
+            } else {
+                next = pack(count > 0 ? State.FOREGROUND : State.CREATED, pending, count);
+            }
+            if (packed.compareAndSet(current, next)) {
+                return countOf(next);
+            }
+        }
+    }
+
+    /**
+     * Release one start; pending starts stay pending
+     *
+     * @return Start count after the transition; 0 means the service is now
+     *     STOPPING (or STARTING again once a pending start completes)
+     */
+    int release() {
+        while (true) {
+            long current = packed.get();
+            int count = countOf(current);
+            int pending = pendingOf(current);
+            long next = count > 1
+                ? pack(State.FOREGROUND, pending, count - 1)
+                : pack(State.STOPPING, pending, 0);
+            if (packed.compareAndSet(current, next)) {
+                return countOf(next);
+            }
+        }
+    }
+
+    /**
+     * Set the start count restored after process death in one step
+     *
+     * A start requested meanwhile stays pending and counts on top of the
+     * restored starts once it completes.
+     *
+     * @param count Restored start count (at least 1)
+     */
+    void restore(int count) {
+        while (true) {
+            long current = packed.get();
+            if (packed.compareAndSet(current, pack(State.FOREGROUND, pendingOf(current), count))) {
+                return;
+            }
+        }
+    }
+
+    void stopAll() {
+        while (true) {
+            long current = packed.get();
+            if (packed.compareAndSet(current, pack(State.STOPPING, pendingOf(current), 0))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Back to the initial state, dropping pending starts
+     */
+    void reset() {
+        packed.set(pack(State.DESTROYED, 0, 0));
+    }
+
+    void onDestroy() {
+        while (true) {
+            long current = packed.get();
+            // A start requested while this instance was going away will create a new one
+            if (packed.compareAndSet(current, pack(State.DESTROYED, pendingOf(current), 0))) {
+                return;
+            }
+        }
+    }
+}
@@ -9,12 +9,16 @@ import androidx.annotation.RequiresApi;
  *
  * Android 14 introduced mandatory foreground service types that must be declared
  * in the manifest and specified when starting the service.
+ *
+ * Several types can be combined as "dataSync|location"; the resulting flag is
+ * the OR of the individual type flags.
  */
 public class ServiceTypeManager {
 
     public static final String TYPE_DATA_SYNC = "dataSync";
     public static final String TYPE_LOCATION = "location";
     public static final String TYPE_MEDIA_PLAYBACK = "mediaPlayback";
+    public static final String TYPE_SEPARATOR = "|";
 
     /**
      * Convert string service type to ServiceInfo constant for Android 14+
@@ -39,6 +43,38 @@ public class ServiceTypeManager {
         }
     }
 
+    /**
+     * Convert a combined service type string ("dataSync|location") to a type mask
+     *
+     * @param serviceTypes One or more service types separated by '|'
+     * @return OR of the ServiceInfo foreground service type flags
+     */
+    @RequiresApi(api = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+    public static int getServiceTypeMask(String serviceTypes) {
+        int mask = 0;
+        for (String serviceType : splitTypes(serviceTypes)) {
+            mask |= getServiceTypeFlag(serviceType);
+        }
+        return mask;
+    }
+
+    /**
+     * Split a combined service type string into single types
+     *
+     * @param serviceTypes One or more service types separated by '|'
+     * @return Single service types (dataSync if none are given)
+     */
+    public static String[] splitTypes(String serviceTypes) {
+        if (serviceTypes == null || serviceTypes.trim().isEmpty()) {
+            return new String[] { TYPE_DATA_SYNC };
+        }
+        String[] types = serviceTypes.split("\\" + TYPE_SEPARATOR);
+        for (int i = 0; i < types.length; i++) {
+            types[i] = types[i].trim();
+        }
+        return types;
+    }
+
     /**
      * Get required permission for a given service type
      *
@@ -0,0 +1,211 @@
+package com.kirenpaul.foregroundservice;
+
+import android.app.ForegroundServiceStartNotAllowedException;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.Promise;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Retries foreground service starts the system refused because the app was
+ * in the background (ForegroundServiceStartNotAllowedException, Android 12+)
+ *
+ * The start's promise stays pending and its lease stays held while the
+ * start is deferred. Retries run with exponential backoff, and immediately
+ * when the app becomes eligible again (host resume, or an explicit
+ * retryNow() from an exact alarm or high-priority message handler). The
+ * promise resolves when a retry succeeds; releasing the lease cancels the
+ * deferred start.
+ *
+ * All bookkeeping runs on the main thread.
+ */
+final class StartScheduler {
+
+    private static final String TAG = "StartScheduler";
+
+    static final long INITIAL_BACKOFF_MS = 1000;
+    static final long MAX_BACKOFF_MS = 60_000;
+    static final int MAX_ATTEMPTS = 8;
+
+    /**
+     * Dispatches a start intent (startForegroundService)
+     */
+    interface Dispatcher {
+        void dispatch(Intent intent);
+    }
+
+    /**
+     * A start waiting for the app to become eligible
+     */
+    private static final class DeferredStart {
+        final Intent intent;
+        final String leaseId;
+        final boolean reuseRunning;
+        final Promise promise;
+        int attempts = 1;
+        long backoffMs = INITIAL_BACKOFF_MS;
+        Runnable retry;
+
+        DeferredStart(Intent intent, String leaseId, boolean reuseRunning, Promise promise) {
+            this.intent = intent;
+            this.leaseId = leaseId;
+            this.reuseRunning = reuseRunning;
+            this.promise = promise;
+        }
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<DeferredStart> pending = new ArrayList<>();
+    private final Set<String> deferredLeaseIds = ConcurrentHashMap.newKeySet();
+    private final Dispatcher dispatcher;
+
+    StartScheduler(Dispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * @return true if the start failed only because the app is in the background
+     */
+    static boolean isStartNotAllowed(Exception e) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+            && e instanceof ForegroundServiceStartNotAllowedException;
+    }
+
+    /**
+     * Defer a refused start
+     *
+     * @param intent Start intent
+     * @param leaseId Lease held by the start
+     * @param reuseRunning Whether the start is skipped if the service is active by then
+     * @param promise Promise of the original startService call
+     */
+    void defer(Intent intent, String leaseId, boolean reuseRunning, Promise promise) {
+        MetricsRegistry.DEFERRED_STARTS.incrementAndGet();
+        Logger.w(TAG, "Foreground service start not allowed in background, deferring lease: ", leaseId);
+        DeferredStart start = new DeferredStart(intent, leaseId, reuseRunning, promise);
+        deferredLeaseIds.add(leaseId);
+        handler.post(() -> {
+            pending.add(start);
+            schedule(start);
+        });
+    }
+
+    /**
+     * Retry all deferred starts now (the app became eligible)
+     */
+    void retryNow() {
+        handler.post(() -> {
+            for (DeferredStart start : new ArrayList<>(pending)) {
+                handler.removeCallbacks(start.retry);
+                attempt(start);
+            }
+        });
+    }
+
+    /**
+     * Reject all deferred starts and release their leases
+     */
+    void cancelAll(String reason) {
+        handler.post(() -> {
+            for (DeferredStart start : new ArrayList<>(pending)) {
+                handler.removeCallbacks(start.retry);
+                ForegroundService.getLeaseRegistry().release(start.leaseId);
+                fail(start, reason);
+            }
+        });
+    }
+
+    /**
+     * Cancel the deferred start holding a lease that was just released
+     * (safe from any thread)
+     *
+     * @return true if the lease belonged to a deferred start; releasing it
+     *     must not send a stop, since its start never reached the service
+     */
+    boolean cancel(String leaseId) {
+        if (leaseId == null || !deferredLeaseIds.contains(leaseId)) {
+            return false;
+        }
+        handler.post(() -> {
+            for (DeferredStart start : new ArrayList<>(pending)) {
+                if (start.leaseId.equals(leaseId)) {
+                    handler.removeCallbacks(start.retry);
+                    fail(start, "Deferred start cancelled, its lease was released");
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * @return Number of deferred starts (safe from any thread)
+     */
+    int size() {
+        return deferredLeaseIds.size();
+    }
+
+    private void schedule(DeferredStart start) {
+        start.retry = () -> attempt(start);
+        handler.postDelayed(start.retry, start.backoffMs);
+        start.backoffMs = Math.min(start.backoffMs * 2, MAX_BACKOFF_MS);
+    }
+
+    private void attempt(DeferredStart start) {
+        LeaseRegistry leases = ForegroundService.getLeaseRegistry();
+        if (leases.get(start.leaseId) == null) {
+            // Released (stop, releaseLease or timeout) while waiting
+            fail(start, "Deferred start cancelled, its lease was released");
+            return;
+        }
+
+        ServiceStateMachine stateMachine = ForegroundService.getStateMachine();
+        if (start.reuseRunning) {
+            if (!stateMachine.tryBeginStart()) {
+                leases.release(start.leaseId);
+                finish(start);
+                start.promise.resolve(null);
+                return;
+            }
+        } else {
+            stateMachine.beginStart();
+        }
+
+        start.attempts++;
+        MetricsRegistry.DEFERRED_START_RETRIES.incrementAndGet();
+        try {
+            start.intent.putExtra(Constants.START_REQUESTED_AT, SystemClock.elapsedRealtimeNanos());
+            dispatcher.dispatch(start.intent);
+            finish(start);
+            MetricsRegistry.DEFERRED_START_SUCCESSES.incrementAndGet();
+            Logger.d(TAG, "Deferred start succeeded after attempts: ", start.attempts);
+            start.promise.resolve(start.leaseId);
+        } catch (RuntimeException e) {
+            stateMachine.cancelStart();
+            if (isStartNotAllowed(e) && start.attempts < MAX_ATTEMPTS) {
+                schedule(start);
+                return;
+            }
+            leases.release(start.leaseId);
+            fail(start, "Failed to start foreground service after " + start.attempts + " attempts: " + e.getMessage());
+        }
+    }
+
+    private void finish(DeferredStart start) {
+        pending.remove(start);
+        deferredLeaseIds.remove(start.leaseId);
+    }
+
+    private void fail(DeferredStart start, String message) {
+        finish(start);
+        MetricsRegistry.DEFERRED_START_FAILURES.incrementAndGet();
+        start.promise.reject(Constants.ERROR_START_NOT_ALLOWED, message);
+    }
+}
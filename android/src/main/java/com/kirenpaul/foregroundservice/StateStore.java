@@ -0,0 +1,333 @@
+package com.kirenpaul.foregroundservice;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.AtomicFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Persisted snapshot of the running service, for recovery after process death
+ *
+ * START_REDELIVER_INTENT only brings back the intents the killed process had
+ * received, not the state they built up. The service saves a snapshot
+ * (start count, session configs, task loops, scheduled tasks) after every
+ * state change and
+ * restores it with one read when the OS recreates it.
+ *
+ * Features:
+ * - Write-behind on a single background thread; saves made while a write is
+ *   queued coalesce into one write of the newest snapshot
+ * - Compact versioned binary format (DataOutputStream), not Parcel, which
+ *   is not meant for persistent storage
+ * - Atomic replace (AtomicFile), so a kill mid-write keeps the previous snapshot
+ */
+final class StateStore {
+
+    private static final String TAG = "StateStore";
+    private static final String FILE_NAME = "foreground_service_state";
+    private static final int MAGIC = 0x46475353; // "FGSS"
+    private static final int VERSION = 2;
+
+    // Bundle value types
+    private static final byte TYPE_STRING = 'S';
+    private static final byte TYPE_DOUBLE = 'D';
+    private static final byte TYPE_BOOLEAN = 'Z';
+    private static final byte TYPE_INT = 'I';
+    private static final byte TYPE_LONG = 'J';
+    private static final byte TYPE_BUNDLE = 'B';
+
+    private static StateStore instance = null;
+
+    /**
+     * Service state at one point in time (immutable)
+     */
+    static final class Snapshot {
+        /** Cleared state: nothing to restore */
+        static final Snapshot EMPTY = new Snapshot(
+            0, Collections.emptyList(), Collections.emptyMap(), Collections.emptyList()
+        );
+
+        final int startCount;
+        final List<Bundle> sessionConfigs;
+        final Map<String, Bundle> loopConfigs;
+        final List<TaskSchedule.Entry> tasks;
+
+        /**
+         * @param startCount Running start count
+         * @param sessionConfigs Notification configs of the sessions, oldest first
+         * @param loopConfigs Task configs of the running loops, by session
+         * @param tasks Copies of the scheduled tasks, in scheduling order
+         */
+        Snapshot(int startCount, List<Bundle> sessionConfigs, Map<String, Bundle> loopConfigs,
+                 List<TaskSchedule.Entry> tasks) {
+            this.startCount = startCount;
+            this.sessionConfigs = sessionConfigs;
+            this.loopConfigs = loopConfigs;
+            this.tasks = tasks;
+        }
+
+        boolean isEmpty() {
+            return startCount <= 0 || sessionConfigs.isEmpty();
+        }
+    }
+
+    private final AtomicFile file;
+    private final Executor executor;
+    private final AtomicReference<Snapshot> pending = new AtomicReference<>();
+    private final AtomicBoolean writeQueued = new AtomicBoolean();
+
+    StateStore(File file, Executor executor) {
+        this.file = new AtomicFile(file);
+        this.executor = executor;
+    }
+
+    /**
+     * Get the process-wide store (file in the no-backup directory)
+     */
+    static synchronized StateStore getInstance(Context context) {
+        if (instance == null) {
+            File file = new File(context.getApplicationContext().getNoBackupFilesDir(), FILE_NAME);
+            instance = new StateStore(file, Executors.newSingleThreadExecutor(
+                runnable -> new Thread(runnable, "ForegroundServiceStateStore")
+            ));
+        }
+        return instance;
+    }
+
+    /**
+     * Save a snapshot (write-behind, safe from any thread)
+     */
+    void save(Snapshot snapshot) {
+        pending.set(snapshot);
+        if (writeQueued.compareAndSet(false, true)) {
+            executor.execute(this::writePending);
+        }
+    }
+
+    /**
+     * Clear the saved state (write-behind, ordered after earlier saves)
+     */
+    void clear() {
+        save(Snapshot.EMPTY);
+    }
+
+    /**
+     * Read the saved state (one synchronous read)
+     *
+     * @return The saved snapshot, or null if there is none or it is unreadable
+     */
+    Snapshot restore() {
+        try {
+            Snapshot snapshot = decode(file.readFully());
+            return snapshot.isEmpty() ? null : snapshot;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            Logger.e(TAG, "Discarding unreadable service state", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writePending() {
+        writeQueued.set(false);
+        Snapshot snapshot = pending.getAndSet(null);
+        if (snapshot == null) {
+            return;
+        }
+
+        if (snapshot.isEmpty()) {
+            file.delete();
+            MetricsRegistry.STATE_WRITES.incrementAndGet();
+            return;
+        }
+
+        FileOutputStream out = null;
+        try {
+            byte[] bytes = encode(snapshot);
+            out = file.startWrite();
+            out.write(bytes);
+            file.finishWrite(out);
+            MetricsRegistry.STATE_WRITES.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            if (out != null) {
+                file.failWrite(out);
+            }
+            Logger.e(TAG, "Failed to save service state", e);
+        }
+    }
+
+    static byte[] encode(Snapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(snapshot.startCount);
+        out.writeShort(snapshot.sessionConfigs.size());
+        for (Bundle config : snapshot.sessionConfigs) {
+            writeBundle(out, config);
+        }
+        out.writeShort(snapshot.loopConfigs.size());
+        for (Map.Entry<String, Bundle> loop : snapshot.loopConfigs.entrySet()) {
+            out.writeUTF(loop.getKey());
+            writeBundle(out, loop.getValue());
+        }
+        out.writeShort(snapshot.tasks.size());
+        for (TaskSchedule.Entry task : snapshot.tasks) {
+            writeTask(out, task);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static Snapshot decode(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Unknown service state format");
+        }
+        int startCount = in.readInt();
+        int sessionCount = in.readUnsignedShort();
+        List<Bundle> sessionConfigs = new ArrayList<>(sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            sessionConfigs.add(readBundle(in));
+        }
+        int loopCount = in.readUnsignedShort();
+        Map<String, Bundle> loopConfigs = new LinkedHashMap<>();
+        for (int i = 0; i < loopCount; i++) {
+            String session = in.readUTF();
+            loopConfigs.put(session, readBundle(in));
+        }
+        int taskCount = in.readUnsignedShort();
+        List<TaskSchedule.Entry> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            tasks.add(readTask(in));
+        }
+        return new Snapshot(startCount, sessionConfigs, loopConfigs, tasks);
+    }
+
+    private static void writeTask(DataOutputStream out, TaskSchedule.Entry task) throws IOException {
+        out.writeUTF(task.taskId);
+        out.writeUTF(task.session);
+        out.writeLong(task.periodMs);
+        out.writeLong(task.maxPeriodMs);
+        out.writeBoolean(task.repeat);
+        out.writeByte(task.throttle);
+        out.writeByte(task.priority);
+        out.writeBoolean(task.group != null);
+        if (task.group != null) {
+            out.writeUTF(task.group);
+        }
+        out.writeLong(task.nextDueMs);
+    }
+
+    private static TaskSchedule.Entry readTask(DataInputStream in) throws IOException {
+        String taskId = in.readUTF();
+        String session = in.readUTF();
+        long periodMs = in.readLong();
+        long maxPeriodMs = in.readLong();
+        boolean repeat = in.readBoolean();
+        int throttle = in.readByte();
+        int priority = in.readByte();
+        String group = in.readBoolean() ? in.readUTF() : null;
+        long nextDueMs = in.readLong();
+        return new TaskSchedule.Entry(
+            taskId, session, periodMs, maxPeriodMs, repeat, throttle, priority, group, nextDueMs
+        );
+    }
+
+    /**
+     * Write the bundle values the module creates (strings, numbers,
+     * booleans, nested bundles); other values are skipped
+     */
+    private static void writeBundle(DataOutputStream out, Bundle bundle) throws IOException {
+        List<String> keys = new ArrayList<>();
+        for (String key : bundle.keySet()) {
+            if (isSupported(bundle.get(key))) {
+                keys.add(key);
+            }
+        }
+
+        out.writeShort(keys.size());
+        for (String key : keys) {
+            Object value = bundle.get(key);
+            out.writeUTF(key);
+            if (value instanceof String) {
+                out.writeByte(TYPE_STRING);
+                out.writeUTF((String) value);
+            } else if (value instanceof Double) {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(TYPE_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(TYPE_INT);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong((Long) value);
+            } else {
+                out.writeByte(TYPE_BUNDLE);
+                writeBundle(out, (Bundle) value);
+            }
+        }
+    }
+
+    private static Bundle readBundle(DataInputStream in) throws IOException {
+        int size = in.readUnsignedShort();
+        Bundle bundle = new Bundle();
+        for (int i = 0; i < size; i++) {
+            String key = in.readUTF();
+            byte type = in.readByte();
+            switch (type) {
+                case TYPE_STRING:
+                    bundle.putString(key, in.readUTF());
+                    break;
+                case TYPE_DOUBLE:
+                    bundle.putDouble(key, in.readDouble());
+                    break;
+                case TYPE_BOOLEAN:
+                    bundle.putBoolean(key, in.readBoolean());
+                    break;
+                case TYPE_INT:
+                    bundle.putInt(key, in.readInt());
+                    break;
+                case TYPE_LONG:
+                    bundle.putLong(key, in.readLong());
+                    break;
+                case TYPE_BUNDLE:
+                    bundle.putBundle(key, readBundle(in));
+                    break;
+                default:
+                    throw new IOException("Unknown value type: " + type);
+            }
+        }
+        return bundle;
+    }
+
+    private static boolean isSupported(Object value) {
+        return value instanceof String
+            || value instanceof Double
+            || value instanceof Boolean
+            || value instanceof Integer
+            || value instanceof Long
+            || value instanceof Bundle;
+    }
+}
@@ -0,0 +1,102 @@
+package com.kirenpaul.foregroundservice;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+
+/**
+ * AlarmManager backend for long-period tasks (see TaskSchedule)
+ *
+ * One alarm is pending at a time, for the next wakeup window of the
+ * schedule; every task whose window overlaps it runs in that wakeup.
+ *
+ * Alarm type by window:
+ * - Exact (periods under 15 minutes): setExactAndAllowWhileIdle, so the
+ *   task runs on time in Doze too; setAndAllowWhileIdle if the app may not
+ *   schedule exact alarms (Android 12+ without SCHEDULE_EXACT_ALARM)
+ * - Windowed (15 minutes and up): setWindow, which the system batches with
+ *   other apps' alarms and defers to Doze maintenance windows
+ *
+ * Call from the main thread.
+ */
+final class TaskAlarms {
+
+    private static final String TAG = "TaskAlarms";
+
+    private final Context context;
+    private final AlarmManager alarmManager;
+    private long[] pendingWindow;
+
+    TaskAlarms(Context context) {
+        this.context = context;
+        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+    }
+
+    /**
+     * Set the alarm for a wakeup window, replacing the pending one
+     *
+     * @param window {start, end} in elapsedRealtime milliseconds, or null to cancel
+     */
+    void update(long[] window) {
+        if (window == null) {
+            cancel();
+            return;
+        }
+        if (alarmManager == null || isPending(window)) {
+            return;
+        }
+
+        PendingIntent pendingIntent = createPendingIntent();
+        long start = window[0];
+        long length = window[1] - window[0];
+        if (length > 0) {
+            alarmManager.setWindow(AlarmManager.ELAPSED_REALTIME_WAKEUP, start, length, pendingIntent);
+        } else if (canScheduleExactAlarms()) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, start, pendingIntent);
+        } else {
+            alarmManager.setAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, start, pendingIntent);
+        }
+        pendingWindow = window;
+        MetricsRegistry.TASK_ALARMS_SET.incrementAndGet();
+        Logger.d(TAG, "Task alarm set, window ms: ", length);
+    }
+
+    /**
+     * The pending alarm fired
+     */
+    void onFired() {
+        pendingWindow = null;
+    }
+
+    /**
+     * Cancel the pending alarm
+     */
+    void cancel() {
+        if (pendingWindow == null || alarmManager == null) {
+            return;
+        }
+        alarmManager.cancel(createPendingIntent());
+        pendingWindow = null;
+    }
+
+    private boolean isPending(long[] window) {
+        return pendingWindow != null && pendingWindow[0] == window[0] && pendingWindow[1] == window[1];
+    }
+
+    private boolean canScheduleExactAlarms() {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms();
+    }
+
+    private PendingIntent createPendingIntent() {
+        Intent intent = new Intent(context, ForegroundService.class);
+        intent.setAction(Constants.ACTION_TASK_ALARM);
+        return PendingIntent.getService(
+            context,
+            0,
+            intent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+}
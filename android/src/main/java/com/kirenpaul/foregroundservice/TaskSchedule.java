@@ -0,0 +1,621 @@
+package com.kirenpaul.foregroundservice;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Native schedule of the JS tasks added with add_task()
+ *
+ * A batching task loop asks the schedule for the tasks of its session that
+ * came due since the previous tick and sends their ids to JS in one
+ * headless invocation, so JS runs exactly those tasks without scanning,
+ * and a tick with nothing due starts no headless task at all. Between ticks
+ * the loop sleeps until the next task is due (nextDueDelay), so the wakeup
+ * rate follows the task periods rather than a fixed sampling interval.
+ *
+ * Repeating tasks with long periods (ALARM_MIN_PERIOD_MS and up) are left
+ * to alarms instead of the tick loop (see TaskAlarms): each has a window
+ * after its due time, and tasks whose windows overlap share one wakeup.
+ *
+ * Tasks may have an elastic period between periodMs and maxPeriodMs; the
+ * power policy (setElasticPercent, see PowerPolicy) picks where in that
+ * range they run, from the shortest period while charging to the longest
+ * in battery saver.
+ *
+ * Under thermal throttling (setThrottleLevel) each task follows its rule:
+ * THROTTLE_STRETCH tasks run at a multiple of their period, THROTTLE_PAUSE
+ * (low-priority) tasks do not run until throttling ends, and THROTTLE_NONE
+ * tasks keep their period. THROTTLE_PAUSE tasks are also paused under
+ * memory pressure (setLowPriorityShed).
+ *
+ * Each task has a priority class with its own queue: a tick dispatches the
+ * due critical tasks first, then normal, then background ones, each class
+ * up to its per-tick limit (setClassLimits); tasks over the limit stay due
+ * for the next tick. Background tasks are also held back while the previous
+ * headless invocation is still running, for up to BACKGROUND_MAX_DEFER_MS.
+ *
+ * On top of that, the runs in flight can be limited globally and per task
+ * group (setConcurrencyLimits, see TaskSemaphore): a tick only dispatches a
+ * task if a permit is free, and the permits are released when the headless
+ * invocation that ran the tasks finishes (release). Held tasks stay due and
+ * are dispatched first, oldest due time first, once permits free up.
+ *
+ * Times are SystemClock.elapsedRealtime() milliseconds, passed in by the caller.
+ */
+final class TaskSchedule {
+
+    /** Shortest period of a task run by alarms */
+    static final long ALARM_MIN_PERIOD_MS = 60_000;
+    /** Shortest period of a task run by a windowed (inexact) alarm */
+    static final long WINDOWED_MIN_PERIOD_MS = 15 * 60_000;
+
+    // Throttling rules of a task
+    static final int THROTTLE_STRETCH = 0;
+    static final int THROTTLE_PAUSE = 1;
+    static final int THROTTLE_NONE = 2;
+
+    // Priority classes, in dispatch order
+    static final int PRIORITY_CRITICAL = 0;
+    static final int PRIORITY_NORMAL = 1;
+    static final int PRIORITY_BACKGROUND = 2;
+    static final int PRIORITY_CLASSES = 3;
+
+    /** Longest a due background task is held back under load */
+    static final long BACKGROUND_MAX_DEFER_MS = 30_000;
+
+    // Time from due to dispatch, per priority class
+    private static final LatencyHistogram[] DISPATCH_DELAY = {
+        MetricsRegistry.TASK_DELAY_CRITICAL,
+        MetricsRegistry.TASK_DELAY_NORMAL,
+        MetricsRegistry.TASK_DELAY_BACKGROUND,
+    };
+
+    /**
+     * A scheduled task (next due time is advanced in place)
+     */
+    static final class Entry {
+        final String taskId;
+        final String session;
+        final long periodMs;
+        final long maxPeriodMs;
+        final boolean repeat;
+        final int throttle;
+        final int priority;
+        final String group;
+        long nextDueMs;
+        /** Time the current period started from (Long.MIN_VALUE before the first run) */
+        long anchorMs = Long.MIN_VALUE;
+        /** Time the task was first held for a concurrency permit (Long.MIN_VALUE if not held) */
+        long heldSinceMs = Long.MIN_VALUE;
+
+        Entry(String taskId, String session, long periodMs, long maxPeriodMs, boolean repeat, int throttle,
+              int priority, String group, long nextDueMs) {
+            this.taskId = taskId;
+            this.session = session;
+            this.periodMs = periodMs;
+            this.maxPeriodMs = maxPeriodMs;
+            this.repeat = repeat;
+            this.throttle = throttle;
+            this.priority = priority;
+            this.group = group;
+            this.nextDueMs = nextDueMs;
+        }
+
+        /**
+         * @return true if alarms run this task instead of the tick loop
+         */
+        boolean usesAlarm() {
+            return repeat && periodMs >= ALARM_MIN_PERIOD_MS;
+        }
+
+        /**
+         * How late after its due time the task may run: a tenth of the
+         * period for windowed alarms, 0 for exact ones
+         */
+        long windowMs() {
+            return periodMs >= WINDOWED_MIN_PERIOD_MS ? periodMs / 10 : 0;
+        }
+
+        boolean isPaused(boolean pauseLowPriority) {
+            return pauseLowPriority && throttle == THROTTLE_PAUSE;
+        }
+
+        /**
+         * Period under the current power policy and throttle level
+         */
+        long periodMs(int level, int elasticPercent) {
+            long period = elasticPeriodMs(periodMs, maxPeriodMs, elasticPercent);
+            return throttle == THROTTLE_NONE ? period : period * ThermalThrottle.stretchFactor(level);
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private Runnable listener;
+    private int throttleLevel = ThermalThrottle.LEVEL_NONE;
+    private int elasticPercent = 0;
+    private boolean lowPriorityShed;
+    // Per-tick dispatch limit per priority class (0 = no limit)
+    private static final int[] DEFAULT_CLASS_LIMITS = {0, 0, 2};
+    private final int[] classLimits = DEFAULT_CLASS_LIMITS.clone();
+    private final TaskSemaphore semaphore = new TaskSemaphore();
+    // Due tasks held for a concurrency permit at the last tick
+    private int concurrencyQueueDepth;
+
+    /**
+     * @return Throttling rule for the JS name ('stretch', 'pause' or 'none')
+     */
+    static int throttleRuleOf(String name) {
+        if ("pause".equals(name)) {
+            return THROTTLE_PAUSE;
+        }
+        if ("none".equals(name)) {
+            return THROTTLE_NONE;
+        }
+        return THROTTLE_STRETCH;
+    }
+
+    /**
+     * @return Priority class for the JS name ('critical', 'normal' or 'background')
+     */
+    static int priorityOf(String name) {
+        if ("critical".equals(name)) {
+            return PRIORITY_CRITICAL;
+        }
+        if ("background".equals(name)) {
+            return PRIORITY_BACKGROUND;
+        }
+        return PRIORITY_NORMAL;
+    }
+
+    /**
+     * Add a task, or replace the task with the same id; it is due right away
+     *
+     * @param taskId Task id
+     * @param session Session whose loop runs the task (null for the default session)
+     * @param periodMs Time between runs of a repeating task
+     * @param repeat Whether the task runs again after its first run
+     * @param nowMs Current time
+     */
+    void schedule(String taskId, String session, long periodMs, boolean repeat, long nowMs) {
+        schedule(taskId, session, periodMs, periodMs, repeat, THROTTLE_STRETCH, PRIORITY_NORMAL, null, nowMs);
+    }
+
+    /**
+     * Add a task with an elastic period, a throttling rule, a priority class
+     * and a concurrency group
+     *
+     * @param maxPeriodMs Longest period the power policy may stretch the task to
+     *     (periodMs or less for a fixed period)
+     * @param throttle THROTTLE_STRETCH, THROTTLE_PAUSE or THROTTLE_NONE
+     * @param priority PRIORITY_CRITICAL, PRIORITY_NORMAL or PRIORITY_BACKGROUND
+     * @param group Group whose concurrency limit applies to the task (null for none)
+     */
+    void schedule(String taskId, String session, long periodMs, long maxPeriodMs, boolean repeat, int throttle,
+                  int priority, String group, long nowMs) {
+        String sessionName = session != null && !session.isEmpty() ? session : ServiceSessions.DEFAULT_SESSION;
+        String groupName = group != null && !group.isEmpty() ? group : null;
+        long minPeriod = Math.max(0, periodMs);
+        synchronized (this) {
+            entries.put(taskId, new Entry(
+                taskId, sessionName, minPeriod, Math.max(minPeriod, maxPeriodMs), repeat, throttle, priority,
+                groupName, nowMs
+            ));
+        }
+        notifyChanged();
+    }
+
+    /**
+     * Change the thermal throttle level (see ThermalThrottle)
+     *
+     * Repeating tasks that already ran are rescheduled from the start of
+     * their current period with the new period, so a task stretched to 4x
+     * runs on time again as soon as throttling ends.
+     */
+    void setThrottleLevel(int level) {
+        synchronized (this) {
+            if (level == throttleLevel) {
+                return;
+            }
+            throttleLevel = level;
+            rebase();
+        }
+        notifyChanged();
+    }
+
+    synchronized int getThrottleLevel() {
+        return throttleLevel;
+    }
+
+    /**
+     * Change where elastic tasks run in their period range (0 = shortest,
+     * 100 = longest), rescheduling them like setThrottleLevel without
+     * restarting them
+     */
+    void setElasticPercent(int percent) {
+        int clamped = Math.max(0, Math.min(100, percent));
+        synchronized (this) {
+            if (clamped == elasticPercent) {
+                return;
+            }
+            elasticPercent = clamped;
+            rebase();
+        }
+        notifyChanged();
+    }
+
+    synchronized int getElasticPercent() {
+        return elasticPercent;
+    }
+
+    /**
+     * Pause (true) or resume (false) the low-priority (THROTTLE_PAUSE) tasks
+     * to shed load under memory pressure
+     */
+    void setLowPriorityShed(boolean shed) {
+        synchronized (this) {
+            if (shed == lowPriorityShed) {
+                return;
+            }
+            lowPriorityShed = shed;
+        }
+        notifyChanged();
+    }
+
+    /**
+     * Set the per-tick dispatch limits of the priority classes (0 = no limit)
+     */
+    void setClassLimits(int critical, int normal, int background) {
+        synchronized (this) {
+            classLimits[PRIORITY_CRITICAL] = Math.max(0, critical);
+            classLimits[PRIORITY_NORMAL] = Math.max(0, normal);
+            classLimits[PRIORITY_BACKGROUND] = Math.max(0, background);
+        }
+        notifyChanged();
+    }
+
+    /**
+     * Set the limits on task runs in flight (0 = no limit)
+     *
+     * @param maxConcurrent Limit across all tasks
+     * @param groupLimits Limit per task group
+     */
+    void setConcurrencyLimits(int maxConcurrent, Map<String, Integer> groupLimits) {
+        synchronized (this) {
+            semaphore.setLimits(maxConcurrent, groupLimits);
+        }
+        notifyChanged();
+    }
+
+    /**
+     * Give back the concurrency permits of tasks whose run finished
+     *
+     * @param taskIds Ids sent to JS with the finished headless invocation
+     */
+    void release(String[] taskIds) {
+        boolean released = false;
+        synchronized (this) {
+            for (String taskId : taskIds) {
+                released |= semaphore.release(taskId);
+            }
+        }
+        if (released) {
+            // Held tasks may run now
+            notifyChanged();
+        }
+    }
+
+    /**
+     * @return Task runs holding a concurrency permit
+     */
+    synchronized int getTasksInFlight() {
+        return semaphore.inFlight();
+    }
+
+    /**
+     * @return Due tasks held for a concurrency permit at the last tick
+     */
+    synchronized int getConcurrencyQueueDepth() {
+        return concurrencyQueueDepth;
+    }
+
+    private boolean pauseLowPriority() {
+        return lowPriorityShed || throttleLevel > ThermalThrottle.LEVEL_NONE;
+    }
+
+    /**
+     * Elastic period for a percent of the range between min and max
+     */
+    static long elasticPeriodMs(long minMs, long maxMs, int percent) {
+        return maxMs > minMs ? minMs + (maxMs - minMs) * percent / 100 : minMs;
+    }
+
+    // Recompute the next due time of the repeating tasks that already ran
+    private void rebase() {
+        for (Entry entry : entries.values()) {
+            if (entry.repeat && entry.anchorMs != Long.MIN_VALUE) {
+                entry.nextDueMs = entry.anchorMs + entry.periodMs(throttleLevel, elasticPercent);
+            }
+        }
+    }
+
+    /**
+     * @return true if the task was scheduled
+     */
+    boolean cancel(String taskId) {
+        boolean removed;
+        synchronized (this) {
+            removed = entries.remove(taskId) != null;
+        }
+        if (removed) {
+            notifyChanged();
+        }
+        return removed;
+    }
+
+    /**
+     * Remove the tasks of one session, or all tasks if session is null
+     */
+    void cancelSession(String session) {
+        synchronized (this) {
+            if (session == null) {
+                entries.clear();
+                semaphore.clear();
+                concurrencyQueueDepth = 0;
+            } else {
+                Iterator<Entry> iterator = entries.values().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().session.equals(session)) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+        notifyChanged();
+    }
+
+    /**
+     * Set the callback run after tasks are added or removed (on the calling thread)
+     */
+    synchronized void setListener(Runnable listener) {
+        this.listener = listener;
+    }
+
+    private void notifyChanged() {
+        Runnable current;
+        synchronized (this) {
+            current = listener;
+        }
+        if (current != null) {
+            current.run();
+        }
+    }
+
+    /**
+     * Collect the tick-loop tasks of a session that are due, and advance them
+     *
+     * Repeating tasks are next due one (possibly stretched) period from now;
+     * one-shot tasks are removed. Paused tasks, tasks over their class
+     * limit and tasks without a concurrency permit stay due. Each collected
+     * task takes a permit until release().
+     *
+     * @param underLoad Whether a previous headless invocation is still
+     *     running (background tasks are held back)
+     * @return Ids of the due tasks, by priority class then due time (empty
+     *     if none are due)
+     */
+    synchronized String[] collectDue(String session, long nowMs, boolean underLoad) {
+        return collect(session, false, underLoad, nowMs);
+    }
+
+    synchronized String[] collectDue(String session, long nowMs) {
+        return collectDue(session, nowMs, false);
+    }
+
+    /**
+     * Collect the alarm tasks of all sessions that are due, and advance them
+     *
+     * @return Ids of the due tasks in scheduling order (empty if none are due)
+     */
+    synchronized String[] collectDueAlarms(long nowMs) {
+        return collect(null, true, false, nowMs);
+    }
+
+    /**
+     * Time until the next tick-loop task of a session can run
+     *
+     * A due task with no free concurrency permit can run once the oldest
+     * permit expires; a release reschedules the loop earlier (see release).
+     *
+     * @return Milliseconds until the earliest due time (0 if a task is
+     *     already due and may run), or -1 if the session has no tick-loop tasks
+     */
+    synchronized long nextDueDelay(String session, long nowMs) {
+        long earliest = Long.MAX_VALUE;
+        for (Entry entry : entries.values()) {
+            if (!entry.usesAlarm() && entry.session.equals(session) && !entry.isPaused(pauseLowPriority())) {
+                long dueMs = entry.nextDueMs;
+                if (dueMs <= nowMs && !semaphore.canAcquire(entry.group)) {
+                    dueMs = semaphore.nextExpiryMs();
+                }
+                earliest = Math.min(earliest, dueMs);
+            }
+        }
+        return earliest == Long.MAX_VALUE ? -1 : Math.max(0, earliest - nowMs);
+    }
+
+    /**
+     * Next alarm wakeup, shared by all alarm tasks whose windows overlap the
+     * earliest one
+     *
+     * @return {start, end} of the wakeup window (start == end for an exact
+     *     wakeup), or null if no task uses alarms
+     */
+    synchronized long[] nextAlarmWindow() {
+        List<Entry> alarms = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.usesAlarm() && !entry.isPaused(pauseLowPriority())) {
+                alarms.add(entry);
+            }
+        }
+        if (alarms.isEmpty()) {
+            return null;
+        }
+        alarms.sort((a, b) -> Long.compare(a.nextDueMs, b.nextDueMs));
+
+        // Narrow the earliest window while the next task's window still overlaps it
+        long start = alarms.get(0).nextDueMs;
+        long end = start + alarms.get(0).windowMs();
+        for (int i = 1; i < alarms.size(); i++) {
+            Entry entry = alarms.get(i);
+            if (entry.nextDueMs > end) {
+                break;
+            }
+            start = entry.nextDueMs;
+            end = Math.min(end, entry.nextDueMs + entry.windowMs());
+        }
+        return new long[] {start, end};
+    }
+
+    private String[] collect(String session, boolean alarms, boolean underLoad, long nowMs) {
+        if (!alarms) {
+            MetricsRegistry.PERMITS_EXPIRED.addAndGet(semaphore.expire(nowMs));
+        }
+        List<Entry> due = null;
+        for (Entry entry : entries.values()) {
+            if (entry.usesAlarm() != alarms
+                || (session != null && !entry.session.equals(session))
+                || entry.nextDueMs > nowMs
+                || entry.isPaused(pauseLowPriority())) {
+                continue;
+            }
+            if (due == null) {
+                due = new ArrayList<>();
+            }
+            due.add(entry);
+        }
+        if (due == null) {
+            if (!alarms) {
+                concurrencyQueueDepth = 0;
+            }
+            return new String[0];
+        }
+        // Longest waiting first within a class (stable: ties keep scheduling order)
+        due.sort((a, b) -> Long.compare(a.nextDueMs, b.nextDueMs));
+
+        int held = 0;
+        List<String> ids = new ArrayList<>(due.size());
+        for (int priority = 0; priority < PRIORITY_CLASSES; priority++) {
+            int taken = 0;
+            for (Entry entry : due) {
+                if (entry.priority != priority) {
+                    continue;
+                }
+                long lateMs = nowMs - entry.nextDueMs;
+                // Alarm wakeups are rare and run everything that is due
+                if (!alarms) {
+                    if (classLimits[priority] > 0 && taken >= classLimits[priority]) {
+                        MetricsRegistry.TASKS_QUEUED.incrementAndGet();
+                        continue;
+                    }
+                    if (priority == PRIORITY_BACKGROUND && underLoad && lateMs < BACKGROUND_MAX_DEFER_MS) {
+                        MetricsRegistry.BACKGROUND_DEFERRALS.incrementAndGet();
+                        continue;
+                    }
+                    if (!semaphore.tryAcquire(entry.taskId, entry.group, nowMs)) {
+                        if (entry.heldSinceMs == Long.MIN_VALUE) {
+                            entry.heldSinceMs = nowMs;
+                            MetricsRegistry.CONCURRENCY_HELD.incrementAndGet();
+                        }
+                        held++;
+                        continue;
+                    }
+                    if (entry.heldSinceMs != Long.MIN_VALUE) {
+                        MetricsRegistry.CONCURRENCY_WAIT.recordMillis(nowMs - entry.heldSinceMs);
+                        entry.heldSinceMs = Long.MIN_VALUE;
+                    }
+                }
+                taken++;
+                ids.add(entry.taskId);
+                DISPATCH_DELAY[priority].recordMillis(lateMs);
+                advance(entry, alarms, nowMs);
+            }
+        }
+        if (!alarms) {
+            concurrencyQueueDepth = held;
+        }
+        return ids.toArray(new String[0]);
+    }
+
+    private void advance(Entry entry, boolean alarm, long nowMs) {
+        long periodMs = entry.periodMs(throttleLevel, elasticPercent);
+        if (alarm) {
+            // Keep alarm tasks on their grid unless a whole period was missed
+            entry.anchorMs = entry.nextDueMs + periodMs > nowMs ? entry.nextDueMs : nowMs;
+            entry.nextDueMs = entry.anchorMs + periodMs;
+        } else if (entry.repeat) {
+            entry.anchorMs = nowMs;
+            entry.nextDueMs = nowMs + periodMs;
+        } else {
+            entries.remove(entry.taskId);
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Copies of the scheduled tasks, in scheduling order (for StateStore)
+     */
+    synchronized List<Entry> getEntries() {
+        List<Entry> copies = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            copies.add(new Entry(
+                entry.taskId, entry.session, entry.periodMs, entry.maxPeriodMs, entry.repeat, entry.throttle,
+                entry.priority, entry.group, entry.nextDueMs
+            ));
+        }
+        return copies;
+    }
+
+    /**
+     * Add tasks saved by a previous process (see getEntries)
+     *
+     * A task keeps its saved due time, but is due no later than one period
+     * from now, in case the clock restarted since the save.
+     */
+    void restore(List<Entry> saved, long nowMs) {
+        synchronized (this) {
+            for (Entry entry : saved) {
+                long latestDueMs = nowMs + entry.periodMs(throttleLevel, elasticPercent);
+                entries.put(entry.taskId, new Entry(
+                    entry.taskId, entry.session, entry.periodMs, entry.maxPeriodMs, entry.repeat, entry.throttle,
+                    entry.priority, entry.group, Math.min(entry.nextDueMs, latestDueMs)
+                ));
+            }
+        }
+        notifyChanged();
+    }
+
+    void clear() {
+        cancelSession(null);
+    }
+
+    /**
+     * Remove all tasks and go back to the default rules and limits, without a listener
+     */
+    void reset() {
+        synchronized (this) {
+            listener = null;
+            throttleLevel = ThermalThrottle.LEVEL_NONE;
+            elasticPercent = 0;
+            lowPriorityShed = false;
+            System.arraycopy(DEFAULT_CLASS_LIMITS, 0, classLimits, 0, classLimits.length);
+            semaphore.setLimits(0, null);
+        }
+        clear();
+    }
+}
@@ -0,0 +1,163 @@
+package com.kirenpaul.foregroundservice;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Counting semaphore for scheduled task runs in flight, with a global limit
+ * and optional limits per task group
+ *
+ * A permit is taken when a task is dispatched to JS and given back when
+ * the headless invocation that ran it finishes. Permits that are never
+ * given back (a headless task that did not start) expire after
+ * PERMIT_TIMEOUT_MS so a lost invocation cannot block its group for good.
+ *
+ * Not thread-safe: TaskSchedule calls it under its own lock.
+ */
+final class TaskSemaphore {
+
+    /** Time after which a permit that was not released is taken back */
+    static final long PERMIT_TIMEOUT_MS = 2 * 60_000;
+
+    private static final class Permit {
+        final String taskId;
+        final String group;
+        final long acquiredMs;
+
+        Permit(String taskId, String group, long acquiredMs) {
+            this.taskId = taskId;
+            this.group = group;
+            this.acquiredMs = acquiredMs;
+        }
+    }
+
+    // Permits in acquisition order, oldest first
+    private final ArrayDeque<Permit> permits = new ArrayDeque<>();
+    private final Map<String, Integer> groupInFlight = new HashMap<>();
+    private final Map<String, Integer> groupLimits = new HashMap<>();
+    private int maxConcurrent;
+
+    /**
+     * Set the limits (0 = no limit); permits already taken are kept
+     *
+     * @param maxConcurrent Task runs in flight across all groups
+     * @param groupLimits Task runs in flight per group name
+     */
+    void setLimits(int maxConcurrent, Map<String, Integer> groupLimits) {
+        this.maxConcurrent = Math.max(0, maxConcurrent);
+        this.groupLimits.clear();
+        if (groupLimits != null) {
+            for (Map.Entry<String, Integer> limit : groupLimits.entrySet()) {
+                if (limit.getValue() != null && limit.getValue() > 0) {
+                    this.groupLimits.put(limit.getKey(), limit.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Take a permit for a task run if neither the global limit nor the
+     * limit of its group is reached
+     *
+     * @param group Group of the task (null for none)
+     * @return true if the task may run
+     */
+    boolean tryAcquire(String taskId, String group, long nowMs) {
+        if (!canAcquire(group)) {
+            return false;
+        }
+        if (group != null) {
+            groupInFlight.put(group, inFlight(group) + 1);
+        }
+        permits.add(new Permit(taskId, group, nowMs));
+        return true;
+    }
+
+    /**
+     * @param group Group of the task (null for none)
+     * @return true if a permit is free for a task of the group
+     */
+    boolean canAcquire(String group) {
+        if (maxConcurrent > 0 && permits.size() >= maxConcurrent) {
+            return false;
+        }
+        if (group != null) {
+            Integer limit = groupLimits.get(group);
+            return limit == null || inFlight(group) < limit;
+        }
+        return true;
+    }
+
+    /**
+     * Give back the oldest permit of a task
+     *
+     * @return true if the task held a permit
+     */
+    boolean release(String taskId) {
+        Iterator<Permit> iterator = permits.iterator();
+        while (iterator.hasNext()) {
+            Permit permit = iterator.next();
+            if (permit.taskId.equals(taskId)) {
+                iterator.remove();
+                releaseGroup(permit.group);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Take back the permits held for PERMIT_TIMEOUT_MS or longer
+     *
+     * @return Number of permits taken back
+     */
+    int expire(long nowMs) {
+        int expired = 0;
+        while (!permits.isEmpty() && nowMs - permits.peek().acquiredMs >= PERMIT_TIMEOUT_MS) {
+            releaseGroup(permits.poll().group);
+            expired++;
+        }
+        return expired;
+    }
+
+    /**
+     * @return Time the oldest permit expires, or Long.MAX_VALUE if none is held
+     */
+    long nextExpiryMs() {
+        return permits.isEmpty() ? Long.MAX_VALUE : permits.peek().acquiredMs + PERMIT_TIMEOUT_MS;
+    }
+
+    /**
+     * @return Task runs in flight across all groups
+     */
+    int inFlight() {
+        return permits.size();
+    }
+
+    /**
+     * @return Task runs in flight in one group
+     */
+    int inFlight(String group) {
+        Integer count = groupInFlight.get(group);
+        return count != null ? count : 0;
+    }
+
+    void clear() {
+        permits.clear();
+        groupInFlight.clear();
+    }
+
+    private void releaseGroup(String group) {
+        if (group == null) {
+            return;
+        }
+        int count = inFlight(group) - 1;
+        if (count > 0) {
+            groupInFlight.put(group, count);
+        } else {
+            groupInFlight.remove(group);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.kirenpaul.foregroundservice;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * Maps the device thermal status to a task throttle level (Android 10+)
+ *
+ * Levels:
+ * - LEVEL_NONE (NONE, LIGHT): tasks run at their own periods
+ * - LEVEL_MODERATE (MODERATE): periods x2, low-priority tasks paused,
+ *   notification updates at most every 2 s
+ * - LEVEL_SEVERE (SEVERE): periods x4, updates every 4 s
+ * - LEVEL_CRITICAL (CRITICAL and above): periods x8, updates every 8 s
+ *
+ * Per-task rules are applied by TaskSchedule. Older releases have no
+ * thermal status and stay at LEVEL_NONE.
+ *
+ * Call from the main thread.
+ */
+final class ThermalThrottle {
+
+    private static final String TAG = "ThermalThrottle";
+
+    static final int LEVEL_NONE = 0;
+    static final int LEVEL_MODERATE = 1;
+    static final int LEVEL_SEVERE = 2;
+    static final int LEVEL_CRITICAL = 3;
+
+    /** Base minimum time between notification updates of a session, scaled by stretchFactor(level) */
+    private static final long NOTIFICATION_INTERVAL_MS = 1000;
+
+    /**
+     * Receives throttle level changes
+     */
+    interface Listener {
+        void onThrottleLevelChanged(int level, int thermalStatus);
+    }
+
+    private final PowerManager powerManager;
+    private final Listener listener;
+    private Object statusListener;
+    private int level = LEVEL_NONE;
+
+    ThermalThrottle(Context context, Listener listener) {
+        this.powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        this.listener = listener;
+    }
+
+    /**
+     * Start following the thermal status
+     */
+    void start() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || powerManager == null || statusListener != null) {
+            return;
+        }
+        startListening();
+    }
+
+    /**
+     * Stop following the thermal status and drop back to LEVEL_NONE
+     */
+    void stop() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && statusListener != null) {
+            powerManager.removeThermalStatusListener(
+                (PowerManager.OnThermalStatusChangedListener) statusListener
+            );
+        }
+        statusListener = null;
+        update(LEVEL_NONE, 0);
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return Minimum time between notification updates of a session, or 0 when not throttled
+     */
+    long getNotificationIntervalMs() {
+        return level == LEVEL_NONE ? 0 : NOTIFICATION_INTERVAL_MS * stretchFactor(level);
+    }
+
+    /**
+     * @return Throttle level for a PowerManager.THERMAL_STATUS_* value
+     */
+    static int levelFor(int thermalStatus) {
+        if (thermalStatus >= PowerManager.THERMAL_STATUS_CRITICAL) {
+            return LEVEL_CRITICAL;
+        }
+        if (thermalStatus == PowerManager.THERMAL_STATUS_SEVERE) {
+            return LEVEL_SEVERE;
+        }
+        if (thermalStatus == PowerManager.THERMAL_STATUS_MODERATE) {
+            return LEVEL_MODERATE;
+        }
+        return LEVEL_NONE;
+    }
+
+    /**
+     * @return Multiplier for the period of a stretched task
+     */
+    static long stretchFactor(int level) {
+        return 1L << Math.max(0, Math.min(level, LEVEL_CRITICAL));
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.Q)
+    private void startListening() {
+        PowerManager.OnThermalStatusChangedListener onChanged =
+            status -> update(levelFor(status), status);
+        statusListener = onChanged;
+        // Called back on the main thread
+        powerManager.addThermalStatusListener(onChanged);
+        int status = powerManager.getCurrentThermalStatus();
+        update(levelFor(status), status);
+    }
+
+    private void update(int newLevel, int thermalStatus) {
+        if (newLevel == level) {
+            return;
+        }
+        level = newLevel;
+        Logger.d(TAG, "Thermal throttle level: ", newLevel);
+        listener.onThrottleLevelChanged(newLevel, thermalStatus);
+    }
+}
@@ -0,0 +1,110 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * android.os.Trace sections for Perfetto / systrace
+ *
+ * All section names are compile-time constants so no strings are built on
+ * the hot path. Trace.beginSection/endSection only check a native flag when
+ * tracing is off; async sections (API 29+) are skipped entirely unless
+ * Trace.isEnabled() is true.
+ *
+ * Async slices link a JS command (module side) to its execution in
+ * ForegroundService via a cookie carried on the intent.
+ */
+final class Tracing {
+
+    // Synchronous sections
+    static final String ON_START_COMMAND_START = "FGS.onStartCommand.start";
+    static final String ON_START_COMMAND_UPDATE = "FGS.onStartCommand.update";
+    static final String ON_START_COMMAND_RUN_TASK = "FGS.onStartCommand.runTask";
+    static final String ON_START_COMMAND_STOP = "FGS.onStartCommand.stop";
+    static final String ON_START_COMMAND_STOP_ALL = "FGS.onStartCommand.stopAll";
+    static final String ON_START_COMMAND_SERVICE_TYPE = "FGS.onStartCommand.serviceType";
+    static final String ON_START_COMMAND_STOP_SESSION = "FGS.onStartCommand.stopSession";
+    static final String ON_START_COMMAND_TASK_ALARM = "FGS.onStartCommand.taskAlarm";
+    static final String ON_START_COMMAND_UNKNOWN = "FGS.onStartCommand.unknown";
+    static final String START_SERVICE = "FGS.startService";
+    static final String START_FOREGROUND = "FGS.startForeground";
+    static final String BUILD_NOTIFICATION = "FGS.buildNotification";
+    static final String BUILD_ACTIVITY_LOOKUP = "FGS.buildNotification.activityLookup";
+    static final String BUILD_PENDING_INTENTS = "FGS.buildNotification.pendingIntents";
+    static final String BUILD_CHANNEL = "FGS.buildNotification.channel";
+    static final String BUILD_BITMAP = "FGS.buildNotification.bitmap";
+    static final String BUILD_PLACEHOLDER = "FGS.buildPlaceholderNotification";
+    static final String PREWARM_NOTIFICATION = "FGS.prewarmNotification";
+    static final String LOOP_TICK = "FGS.loopTick";
+    static final String GET_TASK_CONFIG = "FGS.getTaskConfig";
+
+    // Async sections (JS command -> service execution)
+    static final String ASYNC_COMMAND = "FGS.command";
+
+    private static final AtomicInteger nextCookie = new AtomicInteger(1);
+
+    private Tracing() {
+    }
+
+    static void begin(String sectionName) {
+        Trace.beginSection(sectionName);
+    }
+
+    static void end() {
+        Trace.endSection();
+    }
+
+    /**
+     * Section name for onStartCommand by action
+     */
+    static String sectionForAction(String action) {
+        switch (action) {
+            case Constants.ACTION_FOREGROUND_SERVICE_START:
+                return ON_START_COMMAND_START;
+            case Constants.ACTION_UPDATE_NOTIFICATION:
+                return ON_START_COMMAND_UPDATE;
+            case Constants.ACTION_FOREGROUND_RUN_TASK:
+                return ON_START_COMMAND_RUN_TASK;
+            case Constants.ACTION_FOREGROUND_SERVICE_STOP:
+                return ON_START_COMMAND_STOP;
+            case Constants.ACTION_FOREGROUND_SERVICE_STOP_ALL:
+                return ON_START_COMMAND_STOP_ALL;
+            case Constants.ACTION_UPDATE_SERVICE_TYPE:
+                return ON_START_COMMAND_SERVICE_TYPE;
+            case Constants.ACTION_STOP_SESSION:
+                return ON_START_COMMAND_STOP_SESSION;
+            case Constants.ACTION_TASK_ALARM:
+                return ON_START_COMMAND_TASK_ALARM;
+            default:
+                return ON_START_COMMAND_UNKNOWN;
+        }
+    }
+
+    /**
+     * Begin an async slice for a JS command
+     *
+     * @return Cookie to pass to the service, or 0 if tracing is disabled
+     */
+    static int beginCommand() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || !Trace.isEnabled()) {
+            return 0;
+        }
+        int cookie = nextCookie.getAndIncrement();
+        Trace.beginAsyncSection(ASYNC_COMMAND, cookie);
+        return cookie;
+    }
+
+    /**
+     * End the async slice started by beginCommand
+     *
+     * @param cookie Cookie returned by beginCommand (0 is ignored)
+     */
+    static void endCommand(int cookie) {
+        if (cookie == 0 || Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return;
+        }
+        Trace.endAsyncSection(ASYNC_COMMAND, cookie);
+    }
+}
@@ -0,0 +1,131 @@
+package com.kirenpaul.foregroundservice;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Minimal JVM benchmark harness for Robolectric benchmarks
+ *
+ * Runs a warmup phase, then times each iteration with System.nanoTime and
+ * writes results as JSON to benchmark.outputDir (set by build.gradle,
+ * defaults to build/benchmark-results). One file per benchmark class.
+ *
+ * Benchmarks only run with -Pbenchmark:
+ * ./gradlew testDebugUnitTest -Pbenchmark --tests '*Benchmark'
+ */
+class BenchmarkHarness {
+
+    private static final int DEFAULT_WARMUP = 200;
+    private static final int DEFAULT_ITERATIONS = 2000;
+
+    private final String suiteName;
+    private final List<Result> results = new ArrayList<>();
+
+    BenchmarkHarness(String suiteName) {
+        this.suiteName = suiteName;
+    }
+
+    Result measure(String name, Runnable body) {
+        return measure(name, DEFAULT_WARMUP, DEFAULT_ITERATIONS, body);
+    }
+
+    Result measure(String name, int warmup, int iterations, Runnable body) {
+        for (int i = 0; i < warmup; i++) {
+            body.run();
+        }
+
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            body.run();
+            samples[i] = System.nanoTime() - start;
+        }
+
+        Arrays.sort(samples);
+        long sum = 0;
+        for (long sample : samples) {
+            sum += sample;
+        }
+
+        Result result = new Result(
+            name,
+            iterations,
+            sum / iterations,
+            samples[0],
+            samples[percentileIndex(iterations, 0.50)],
+            samples[percentileIndex(iterations, 0.90)],
+            samples[percentileIndex(iterations, 0.99)]
+        );
+        results.add(result);
+        return result;
+    }
+
+    /**
+     * Record a throughput result measured by the caller
+     *
+     * @param name Result name
+     * @param operations Number of operations performed
+     * @param elapsedNanos Total elapsed time
+     */
+    Result recordThroughput(String name, int operations, long elapsedNanos) {
+        long perOp = operations > 0 ? elapsedNanos / operations : 0;
+        Result result = new Result(name, operations, perOp, perOp, perOp, perOp, perOp);
+        results.add(result);
+        return result;
+    }
+
+    /**
+     * Write all results of this suite as JSON
+     */
+    void writeResults() throws IOException {
+        File outputDir = new File(System.getProperty("benchmark.outputDir", "build/benchmark-results"));
+        if (!outputDir.exists() && !outputDir.mkdirs()) {
+            throw new IOException("Unable to create " + outputDir);
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"suite\": \"").append(suiteName).append("\",\n  \"benchmarks\": [\n");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            json.append(String.format(Locale.US,
+                "    {\"name\": \"%s\", \"iterations\": %d, \"meanNs\": %d, \"minNs\": %d, "
+                    + "\"p50Ns\": %d, \"p90Ns\": %d, \"p99Ns\": %d}",
+                r.name, r.iterations, r.meanNs, r.minNs, r.p50Ns, r.p90Ns, r.p99Ns));
+            json.append(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("  ]\n}\n");
+
+        try (FileWriter writer = new FileWriter(new File(outputDir, suiteName + ".json"))) {
+            writer.write(json.toString());
+        }
+    }
+
+    private static int percentileIndex(int count, double fraction) {
+        return Math.min(count - 1, (int) Math.ceil(count * fraction) - 1);
+    }
+
+    static final class Result {
+        final String name;
+        final int iterations;
+        final long meanNs;
+        final long minNs;
+        final long p50Ns;
+        final long p90Ns;
+        final long p99Ns;
+
+        Result(String name, int iterations, long meanNs, long minNs, long p50Ns, long p90Ns, long p99Ns) {
+            this.name = name;
+            this.iterations = iterations;
+            this.meanNs = meanNs;
+            this.minNs = minNs;
+            this.p50Ns = p50Ns;
+            this.p90Ns = p90Ns;
+            this.p99Ns = p99Ns;
+        }
+    }
+}
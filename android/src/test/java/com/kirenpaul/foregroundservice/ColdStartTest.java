@@ -0,0 +1,75 @@
+package com.kirenpaul.foregroundservice;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Tests for the two-phase cold start of ForegroundService
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+public class ColdStartTest {
+
+    private ServiceHarness harness;
+
+    @Before
+    public void setUp() {
+        harness = new ServiceHarness();
+    }
+
+    @After
+    public void tearDown() {
+        ForegroundService.resetForTest();
+    }
+
+    @Test
+    public void testColdStart_postsPlaceholderThenFullNotification() {
+        long placeholdersBefore = MetricsRegistry.PLACEHOLDER_NOTIFICATIONS.get();
+        NotificationManager notificationManager =
+            (NotificationManager) harness.application.getSystemService(Context.NOTIFICATION_SERVICE);
+
+        harness.start(ServiceHarness.notificationConfig());
+        Notification placeholder = shadowOf(harness.service).getLastForegroundNotification();
+        assertNotNull(placeholder);
+        assertEquals(placeholdersBefore + 1, MetricsRegistry.PLACEHOLDER_NOTIFICATIONS.get());
+
+        shadowOf(Looper.getMainLooper()).idle();
+        Notification full = shadowOf(notificationManager).getNotification(1);
+        assertNotNull(full);
+        assertNotSame("the full notification must replace the placeholder", placeholder, full);
+        assertSame(full, ForegroundService.getSessions().getForeground().notification);
+
+        // A warm start builds the full notification directly
+        harness.start(ServiceHarness.sessionConfig("sync", 2, "dataSync"));
+        assertEquals(placeholdersBefore + 1, MetricsRegistry.PLACEHOLDER_NOTIFICATIONS.get());
+    }
+
+    @Test
+    public void testStart_recreatesDeletedChannel() {
+        NotificationManager notificationManager =
+            (NotificationManager) harness.application.getSystemService(Context.NOTIFICATION_SERVICE);
+        harness.start(ServiceHarness.notificationConfig());
+        shadowOf(Looper.getMainLooper()).idle();
+        assertNotNull(notificationManager.getNotificationChannel(Constants.NOTIFICATION_CHANNEL_ID));
+        harness.stop();
+
+        // The app deleted the channel while the process lived on
+        notificationManager.deleteNotificationChannel(Constants.NOTIFICATION_CHANNEL_ID);
+        harness.start(ServiceHarness.notificationConfig());
+
+        assertNotNull(notificationManager.getNotificationChannel(Constants.NOTIFICATION_CHANNEL_ID));
+    }
+}
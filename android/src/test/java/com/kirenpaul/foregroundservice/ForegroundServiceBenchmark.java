@@ -0,0 +1,192 @@
+package com.kirenpaul.foregroundservice;
+
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Bundle;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Robolectric benchmarks for notification building, command dispatch and
+ * bridge argument conversion
+ *
+ * Excluded from the regular unit test run. Run with:
+ * ./gradlew testDebugUnitTest -Pbenchmark --tests '*Benchmark'
+ *
+ * Results: build/benchmark-results/ForegroundServiceBenchmark.json
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+public class ForegroundServiceBenchmark {
+
+    private static final BenchmarkHarness harness = new BenchmarkHarness("ForegroundServiceBenchmark");
+
+    private Application application;
+
+    @Before
+    public void setUp() {
+        application = ApplicationProvider.getApplicationContext();
+
+        // buildNotification needs a resolvable launcher activity
+        ComponentName launcher = new ComponentName(application.getPackageName(), "android.app.Activity");
+        IntentFilter filter = new IntentFilter(Intent.ACTION_MAIN);
+        filter.addCategory(Intent.CATEGORY_LAUNCHER);
+        shadowOf(application.getPackageManager()).addActivityIfNotPresent(launcher);
+        shadowOf(application.getPackageManager()).addIntentFilterForActivity(launcher, filter);
+    }
+
+    @AfterClass
+    public static void writeResults() throws Exception {
+        harness.writeResults();
+    }
+
+    @Test
+    public void buildNotification_typical() {
+        NotificationHelper helper = NotificationHelper.getInstance(application);
+        Bundle config = typicalConfig();
+
+        assertNotNull(helper.buildNotification(application, config));
+        harness.measure("buildNotification_typical", () -> helper.buildNotification(application, config));
+    }
+
+    @Test
+    public void buildNotification_worstCase() {
+        NotificationHelper helper = NotificationHelper.getInstance(application);
+        Bundle config = worstCaseConfig();
+
+        assertNotNull(helper.buildNotification(application, config));
+        harness.measure("buildNotification_worstCase", () -> helper.buildNotification(application, config));
+    }
+
+    @Test
+    public void onStartCommand_startStop() {
+        ForegroundService service = Robolectric.buildService(ForegroundService.class).create().get();
+        Intent start = serviceIntent(Constants.ACTION_FOREGROUND_SERVICE_START);
+        start.putExtra(Constants.NOTIFICATION_CONFIG, typicalConfig());
+        Intent stop = serviceIntent(Constants.ACTION_FOREGROUND_SERVICE_STOP);
+
+        harness.measure("onStartCommand_startStop", () -> {
+            service.onStartCommand(start, 0, 1);
+            service.onStartCommand(stop, 0, 2);
+        });
+    }
+
+    @Test
+    public void onStartCommand_update() {
+        ForegroundService service = Robolectric.buildService(ForegroundService.class).create().get();
+        Intent start = serviceIntent(Constants.ACTION_FOREGROUND_SERVICE_START);
+        start.putExtra(Constants.NOTIFICATION_CONFIG, typicalConfig());
+        service.onStartCommand(start, 0, 1);
+
+        Intent update = serviceIntent(Constants.ACTION_UPDATE_NOTIFICATION);
+        update.putExtra(Constants.NOTIFICATION_CONFIG, typicalConfig());
+
+        harness.measure("onStartCommand_update", () -> service.onStartCommand(update, 0, 2));
+    }
+
+    @Test
+    public void onStartCommand_runTask() {
+        ForegroundService service = Robolectric.buildService(ForegroundService.class).create().get();
+        Intent start = serviceIntent(Constants.ACTION_FOREGROUND_SERVICE_START);
+        start.putExtra(Constants.NOTIFICATION_CONFIG, typicalConfig());
+        service.onStartCommand(start, 0, 1);
+
+        Bundle taskConfig = new Bundle();
+        taskConfig.putString("taskName", "myTaskName");
+        taskConfig.putDouble("delay", 0);
+        Intent runTask = serviceIntent(Constants.ACTION_FOREGROUND_RUN_TASK);
+        runTask.putExtra(Constants.TASK_CONFIG, taskConfig);
+
+        harness.measure("onStartCommand_runTask", () -> {
+            service.onStartCommand(runTask, 0, 2);
+            shadowOf(application).clearStartedServices();
+        });
+    }
+
+    @Test
+    public void argumentsToBundle_typical() {
+        JavaOnlyMap map = JavaOnlyMap.of(
+            "id", 1.0,
+            "title", "Upload in progress",
+            "message", "Uploading 3 files",
+            "serviceType", "dataSync"
+        );
+
+        harness.measure("argumentsToBundle_typical", () -> Arguments.toBundle(map));
+    }
+
+    @Test
+    public void argumentsToBundle_worstCase() {
+        JavaOnlyMap map = new JavaOnlyMap();
+        Bundle config = worstCaseConfig();
+        for (String key : config.keySet()) {
+            Object value = config.get(key);
+            if (value instanceof String) {
+                map.putString(key, (String) value);
+            } else if (value instanceof Boolean) {
+                map.putBoolean(key, (Boolean) value);
+            } else if (value instanceof Double) {
+                map.putDouble(key, (Double) value);
+            }
+        }
+
+        harness.measure("argumentsToBundle_worstCase", () -> Arguments.toBundle(map));
+    }
+
+    private Intent serviceIntent(String action) {
+        Intent intent = new Intent(application, ForegroundService.class);
+        intent.setAction(action);
+        return intent;
+    }
+
+    private static Bundle typicalConfig() {
+        Bundle bundle = new Bundle();
+        bundle.putDouble("id", 1);
+        bundle.putString("title", "Upload in progress");
+        bundle.putString("message", "Uploading 3 files");
+        bundle.putString("serviceType", "dataSync");
+        return bundle;
+    }
+
+    private static Bundle worstCaseConfig() {
+        Bundle bundle = typicalConfig();
+        bundle.putString("message", "A long message that needs the big text style to be fully visible "
+            + "in the notification shade on every device that renders it");
+        bundle.putString("importance", "max");
+        bundle.putString("visibility", "public");
+        bundle.putString("icon", "ic_notification");
+        bundle.putString("largeIcon", "ic_launcher");
+        bundle.putString("number", "12");
+        bundle.putBoolean("button", true);
+        bundle.putString("buttonText", "Pause");
+        bundle.putString("buttonOnPress", "pause");
+        bundle.putBoolean("button2", true);
+        bundle.putString("button2Text", "Stop");
+        bundle.putString("button2OnPress", "stop");
+        bundle.putString("mainOnPress", "open");
+        bundle.putBoolean("progressBar", true);
+        bundle.putDouble("progressBarMax", 100);
+        bundle.putDouble("progressBarCurr", 42);
+        bundle.putString("color", "#FF5722");
+        bundle.putBoolean("vibration", true);
+        bundle.putBoolean("ongoing", true);
+        return bundle;
+    }
+}
@@ -50,6 +50,7 @@ public class ForegroundServiceModuleTest {
         when(mockReactContext.getPackageName()).thenReturn("com.test.app");
 
         module = new ForegroundServiceModule(mockReactContext);
+        ForegroundService.resetForTest();
     }
 
     @Test
@@ -87,8 +88,10 @@ public class ForegroundServiceModuleTest {
 
         module.startService((ReadableMap) config, mockPromise);
 
-        // Verify promise resolved
-        verify(mockPromise).resolve(null);
+        // Verify promise resolved with the start's lease id
+        verify(mockPromise).resolve(argThat(value ->
+            value instanceof String && ((String) value).startsWith("lease-")));
+        assertEquals(1, ForegroundService.getLeaseRegistry().size());
         verify(mockPromise, never()).reject(anyString(), anyString());
     }
 
@@ -184,6 +187,65 @@ public class ForegroundServiceModuleTest {
         verify(mockPromise).resolve(null);
     }
 
+    @Test
+    public void testReleaseLease_isIdempotent() {
+        ComponentName mockComponentName = new ComponentName(mockReactContext, ForegroundService.class);
+        when(mockReactContext.startService(any(Intent.class))).thenReturn(mockComponentName);
+        String leaseId = ForegroundService.getLeaseRegistry().acquire("upload", 0).id;
+
+        Promise first = mock(Promise.class);
+        Promise second = mock(Promise.class);
+        module.releaseLease(leaseId, first);
+        module.releaseLease(leaseId, second);
+
+        // Only the first release sends a stop
+        ArgumentCaptor<Intent> intentCaptor = ArgumentCaptor.forClass(Intent.class);
+        verify(mockReactContext, times(1)).startService(intentCaptor.capture());
+        assertEquals(Constants.ACTION_FOREGROUND_SERVICE_STOP, intentCaptor.getValue().getAction());
+        assertEquals(leaseId, intentCaptor.getValue().getStringExtra(Constants.LEASE_ID));
+
+        verify(first).resolve(true);
+        verify(second).resolve(false);
+    }
+
+    @Test
+    public void testStopService_releasesNewestLease() {
+        ComponentName mockComponentName = new ComponentName(mockReactContext, ForegroundService.class);
+        when(mockReactContext.startService(any(Intent.class))).thenReturn(mockComponentName);
+        LeaseRegistry leases = ForegroundService.getLeaseRegistry();
+        String older = leases.acquire("navigation", 0).id;
+        leases.acquire("upload", 0);
+
+        module.stopService(mockPromise);
+
+        assertEquals(1, leases.size());
+        assertNotNull(leases.get(older));
+    }
+
+    @Test
+    public void testStopSession_sendsSessionName() {
+        ComponentName mockComponentName = new ComponentName(mockReactContext, ForegroundService.class);
+        when(mockReactContext.startService(any(Intent.class))).thenReturn(mockComponentName);
+
+        module.stopSession("playback", mockPromise);
+
+        ArgumentCaptor<Intent> intentCaptor = ArgumentCaptor.forClass(Intent.class);
+        verify(mockReactContext).startService(intentCaptor.capture());
+        assertEquals(Constants.ACTION_STOP_SESSION, intentCaptor.getValue().getAction());
+        assertEquals("playback", intentCaptor.getValue().getStringExtra(Constants.SESSION));
+        verify(mockPromise).resolve(null);
+    }
+
+    @Test
+    public void testStopSession_withoutName() {
+        module.stopSession("", mockPromise);
+
+        verify(mockPromise).reject(
+                eq(Constants.ERROR_INVALID_CONFIG),
+                contains("session is required")
+        );
+    }
+
     @Test
     public void testStopServiceAll() {
         ComponentName mockComponentName = new ComponentName(mockReactContext, ForegroundService.class);
@@ -0,0 +1,246 @@
+package com.kirenpaul.foregroundservice;
+
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Deterministic stress test for ForegroundService command handling
+ *
+ * Fires a seeded random mix of start, stop, stopAll, update and runTask
+ * commands at the service, advancing Robolectric's virtual clock between
+ * commands, and checks the service against a simple model after every
+ * command. When the service stops itself, the test destroys and recreates
+ * it the way the OS would.
+ *
+ * Runs 2,000 commands by default. For a soak run:
+ * ./gradlew testDebugUnitTest -PstressIterations=50000 --tests '*StressTest'
+ *
+ * Throughput is written to build/benchmark-results/ForegroundServiceStressTest.json
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+public class ForegroundServiceStressTest {
+
+    private static final long SEED = 0x5EEDL;
+    private static final int DEFAULT_ITERATIONS = 2000;
+
+    private static final BenchmarkHarness harness = new BenchmarkHarness("ForegroundServiceStressTest");
+
+    private Application application;
+    private ServiceController<ForegroundService> controller;
+    private ForegroundService service;
+    private int startId;
+
+    // Model of the expected service state
+    private int expectedRunning;
+    private boolean expectedHasLastConfig;
+
+    @Before
+    public void setUp() {
+        application = ApplicationProvider.getApplicationContext();
+
+        ComponentName launcher = new ComponentName(application.getPackageName(), "android.app.Activity");
+        IntentFilter filter = new IntentFilter(Intent.ACTION_MAIN);
+        filter.addCategory(Intent.CATEGORY_LAUNCHER);
+        shadowOf(application.getPackageManager()).addActivityIfNotPresent(launcher);
+        shadowOf(application.getPackageManager()).addIntentFilterForActivity(launcher, filter);
+
+        ForegroundService.resetForTest();
+        createService();
+    }
+
+    @AfterClass
+    public static void writeResults() throws Exception {
+        harness.writeResults();
+    }
+
+    @Test
+    public void interleavedCommands_keepInvariants() {
+        int iterations = Integer.getInteger("stress.iterations", DEFAULT_ITERATIONS);
+        Random random = new Random(SEED);
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            int roll = random.nextInt(100);
+            if (roll < 35) {
+                start();
+            } else if (roll < 65) {
+                stop();
+            } else if (roll < 67) {
+                stopAll();
+            } else if (roll < 82) {
+                update();
+            } else {
+                runTask(random.nextBoolean(), random.nextInt(3) * 250);
+            }
+
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(random.nextInt(200)));
+            shadowOf(application).clearStartedServices();
+
+            recreateIfStoppedBySelf();
+            assertInvariants(i);
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        harness.recordThroughput("interleavedCommands", iterations, elapsedNanos);
+    }
+
+    @Test
+    public void balancedStartStop_leavesServiceStopped() {
+        int pairs = Integer.getInteger("stress.iterations", DEFAULT_ITERATIONS) / 2;
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < pairs; i++) {
+            start();
+            start();
+            stop();
+            stop();
+            recreateIfStoppedBySelf();
+            assertInvariants(i);
+            assertEquals("balanced pair " + i + " left service running", 0, service.isRunning());
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        harness.recordThroughput("balancedStartStop", pairs * 4, elapsedNanos);
+    }
+
+    @Test
+    public void stopAll_stopsLoopingTasks() {
+        start();
+        runTask(true, 0);
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(5));
+        assertNotNull("loop should dispatch headless tasks", shadowOf(application).getNextStartedService());
+
+        stopAll();
+        recreateIfStoppedBySelf();
+        shadowOf(application).clearStartedServices();
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(60));
+
+        assertNull("no headless task may run after stopAll", shadowOf(application).getNextStartedService());
+    }
+
+    private void start() {
+        Intent intent = serviceIntent(Constants.ACTION_FOREGROUND_SERVICE_START);
+        intent.putExtra(Constants.NOTIFICATION_CONFIG, notificationConfig());
+        service.onStartCommand(intent, 0, ++startId);
+
+        expectedRunning += 1;
+        expectedHasLastConfig = true;
+    }
+
+    private void stop() {
+        service.onStartCommand(serviceIntent(Constants.ACTION_FOREGROUND_SERVICE_STOP), 0, ++startId);
+
+        if (expectedRunning > 0) {
+            expectedRunning -= 1;
+        }
+        if (expectedRunning == 0) {
+            expectedHasLastConfig = false;
+        }
+    }
+
+    private void stopAll() {
+        service.onStartCommand(serviceIntent(Constants.ACTION_FOREGROUND_SERVICE_STOP_ALL), 0, ++startId);
+
+        expectedRunning = 0;
+        expectedHasLastConfig = false;
+    }
+
+    private void update() {
+        Intent intent = serviceIntent(Constants.ACTION_UPDATE_NOTIFICATION);
+        intent.putExtra(Constants.NOTIFICATION_CONFIG, notificationConfig());
+        service.onStartCommand(intent, 0, ++startId);
+
+        // Update on a stopped service restarts it
+        if (expectedRunning == 0) {
+            expectedRunning = 1;
+        }
+        expectedHasLastConfig = true;
+    }
+
+    private void runTask(boolean onLoop, int delay) {
+        Bundle taskConfig = new Bundle();
+        taskConfig.putString("taskName", "myTaskName");
+        taskConfig.putDouble("delay", delay);
+        taskConfig.putDouble("loopDelay", 500);
+        taskConfig.putBoolean("onLoop", onLoop);
+
+        Intent intent = serviceIntent(Constants.ACTION_FOREGROUND_RUN_TASK);
+        intent.putExtra(Constants.TASK_CONFIG, taskConfig);
+        service.onStartCommand(intent, 0, ++startId);
+
+        // runTask restarts the service from the last config, or stops it if there is none
+        if (expectedRunning == 0 && expectedHasLastConfig) {
+            expectedRunning = 1;
+        }
+    }
+
+    /**
+     * Simulate the OS destroying a service that called stopSelf()
+     */
+    private void recreateIfStoppedBySelf() {
+        if (!shadowOf(service).isStoppedBySelf()) {
+            return;
+        }
+        controller.destroy();
+        assertNull("instance must be cleared on destroy", ForegroundService.getInstance());
+
+        expectedRunning = 0;
+        expectedHasLastConfig = false;
+        createService();
+    }
+
+    private void createService() {
+        controller = Robolectric.buildService(ForegroundService.class).create();
+        service = controller.get();
+    }
+
+    private void assertInvariants(int iteration) {
+        String at = " (iteration " + iteration + ")";
+        assertTrue("running count must never be negative" + at, service.isRunning() >= 0);
+        assertEquals("running count diverged from model" + at, expectedRunning, service.isRunning());
+        assertSame("singleton must point at the live service" + at, service, ForegroundService.getInstance());
+        assertEquals("state machine and service disagree" + at,
+            expectedRunning, ForegroundService.getStateMachine().getStartCount());
+        if (expectedRunning > 0) {
+            assertEquals(ServiceStateMachine.State.FOREGROUND, ForegroundService.getStateMachine().getState());
+        }
+    }
+
+    private Intent serviceIntent(String action) {
+        Intent intent = new Intent(application, ForegroundService.class);
+        intent.setAction(action);
+        return intent;
+    }
+
+    private static Bundle notificationConfig() {
+        Bundle bundle = new Bundle();
+        bundle.putDouble("id", 1);
+        bundle.putString("title", "Stress");
+        bundle.putString("message", "Running");
+        bundle.putString("serviceType", "dataSync");
+        return bundle;
+    }
+}
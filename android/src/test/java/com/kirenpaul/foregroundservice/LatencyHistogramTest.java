@@ -0,0 +1,91 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LatencyHistogram and MetricsRegistry
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LatencyHistogramTest {
+
+    @Test
+    public void testSnapshot_empty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        Bundle snapshot = histogram.snapshot(false);
+
+        assertEquals(0, snapshot.getDouble("count"), 0);
+        assertEquals(0, snapshot.getDouble("p99Ms"), 0);
+    }
+
+    @Test
+    public void testSnapshot_countMeanAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMillis(10);
+        histogram.recordMillis(20);
+        histogram.recordMillis(30);
+
+        Bundle snapshot = histogram.snapshot(false);
+
+        assertEquals(3, snapshot.getDouble("count"), 0);
+        assertEquals(20.0, snapshot.getDouble("meanMs"), 0.001);
+        assertEquals(30.0, snapshot.getDouble("maxMs"), 0.001);
+    }
+
+    @Test
+    public void testSnapshot_percentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.recordMillis(1);
+        }
+        histogram.recordMillis(500);
+
+        Bundle snapshot = histogram.snapshot(false);
+
+        // Power-of-two buckets: reported value is within 2x of the true value
+        assertTrue(snapshot.getDouble("p50Ms") >= 1.0);
+        assertTrue(snapshot.getDouble("p50Ms") < 2.0);
+        assertEquals(500.0, snapshot.getDouble("maxMs"), 0.001);
+    }
+
+    @Test
+    public void testSnapshot_negativeValuesClampedToZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMillis(-5);
+
+        Bundle snapshot = histogram.snapshot(false);
+
+        assertEquals(1, snapshot.getDouble("count"), 0);
+        assertEquals(0, snapshot.getDouble("maxMs"), 0);
+    }
+
+    @Test
+    public void testSnapshot_reset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMillis(10);
+
+        histogram.snapshot(true);
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.snapshot(false).getDouble("maxMs"), 0);
+    }
+
+    @Test
+    public void testMetricsRegistry_coalescingRate() {
+        MetricsRegistry.snapshot(true);
+        MetricsRegistry.NOTIFICATION_UPDATE_REQUESTS.addAndGet(4);
+        MetricsRegistry.NOTIFY_CALLS.addAndGet(1);
+
+        Bundle counters = MetricsRegistry.snapshot(true).getBundle("counters");
+
+        assertNotNull(counters);
+        assertEquals(0.75, counters.getDouble("notifyCoalescingRate"), 0.001);
+        assertEquals(0, MetricsRegistry.NOTIFY_CALLS.get());
+    }
+}
@@ -0,0 +1,92 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LeaseRegistry
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+public class LeaseRegistryTest {
+
+    private LeaseRegistry leases;
+
+    @Before
+    public void setUp() {
+        leases = new LeaseRegistry();
+    }
+
+    @Test
+    public void testAcquire_returnsUniqueIds() {
+        LeaseRegistry.Lease first = leases.acquire("upload", 0);
+        LeaseRegistry.Lease second = leases.acquire("upload", 0);
+
+        assertNotEquals(first.id, second.id);
+        assertEquals(2, leases.size());
+    }
+
+    @Test
+    public void testRelease_isIdempotent() {
+        LeaseRegistry.Lease lease = leases.acquire("upload", 0);
+
+        assertSame(lease, leases.release(lease.id));
+        assertNull(leases.release(lease.id));
+        assertNull(leases.release("unknown"));
+        assertNull(leases.release(null));
+        assertEquals(0, leases.size());
+    }
+
+    @Test
+    public void testReleaseNewest_releasesInReverseOrder() {
+        LeaseRegistry.Lease navigation = leases.acquire("navigation", 0);
+        LeaseRegistry.Lease upload = leases.acquire("upload", 0);
+
+        assertSame(upload, leases.releaseNewest());
+        assertSame(navigation, leases.releaseNewest());
+        assertNull(leases.releaseNewest());
+    }
+
+    @Test
+    public void testReleaseExpired_onlyReleasesTimedOutLeases() {
+        LeaseRegistry.Lease forever = leases.acquire("navigation", 0);
+        LeaseRegistry.Lease shortLived = leases.acquire("upload", 1000);
+        LeaseRegistry.Lease longLived = leases.acquire("audio", 60000);
+
+        long now = SystemClock.elapsedRealtime();
+        assertTrue(leases.releaseExpired(now).isEmpty());
+
+        List<LeaseRegistry.Lease> expired = leases.releaseExpired(now + 1000);
+
+        assertEquals(1, expired.size());
+        assertSame(shortLived, expired.get(0));
+        assertNotNull(leases.get(forever.id));
+        assertNotNull(leases.get(longLived.id));
+    }
+
+    @Test
+    public void testToBundle_reportsHolder() {
+        LeaseRegistry.Lease lease = leases.acquire("upload", 5000);
+        long now = lease.acquiredAt + 2000;
+
+        Bundle bundle = lease.toBundle(now);
+
+        assertEquals(lease.id, bundle.getString("id"));
+        assertEquals("upload", bundle.getString("name"));
+        assertEquals(2000, bundle.getDouble("heldMs"), 0);
+        assertEquals(5000, bundle.getDouble("timeoutMs"), 0);
+        assertEquals(3000, bundle.getDouble("remainingMs"), 0);
+        assertEquals(-1, leases.acquire(null, 0).remainingMs(now));
+    }
+}
@@ -0,0 +1,51 @@
+package com.kirenpaul.foregroundservice;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Logger
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LoggerTest {
+
+    @After
+    public void tearDown() {
+        Logger.setLevel(Logger.WARN);
+    }
+
+    @Test
+    public void testParseLevel_knownNames() {
+        assertEquals(Logger.VERBOSE, Logger.parseLevel("verbose", Logger.WARN));
+        assertEquals(Logger.DEBUG, Logger.parseLevel("DEBUG", Logger.WARN));
+        assertEquals(Logger.INFO, Logger.parseLevel("info", Logger.WARN));
+        assertEquals(Logger.ERROR, Logger.parseLevel("error", Logger.WARN));
+        assertEquals(Logger.NONE, Logger.parseLevel("none", Logger.WARN));
+    }
+
+    @Test
+    public void testParseLevel_unknownOrNull_returnsFallback() {
+        assertEquals(Logger.INFO, Logger.parseLevel("loud", Logger.INFO));
+        assertEquals(Logger.INFO, Logger.parseLevel(null, Logger.INFO));
+    }
+
+    @Test
+    public void testIsEnabled_respectsLevel() {
+        Logger.setLevel(Logger.WARN);
+
+        assertFalse(Logger.isEnabled(Logger.DEBUG));
+        assertTrue(Logger.isEnabled(Logger.WARN));
+        assertTrue(Logger.isEnabled(Logger.ERROR));
+    }
+
+    @Test
+    public void testIsEnabled_none_disablesEverything() {
+        Logger.setLevel(Logger.NONE);
+
+        assertFalse(Logger.isEnabled(Logger.ERROR));
+    }
+}
@@ -0,0 +1,34 @@
+package com.kirenpaul.foregroundservice;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MemoryPressure
+ */
+@SuppressWarnings("deprecation")
+public class MemoryPressureTest {
+
+    @Test
+    public void testTierFor_trimLevels() {
+        assertEquals(MemoryPressure.TIER_NONE, MemoryPressure.tierFor(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN));
+        assertEquals(MemoryPressure.TIER_MODERATE,
+            MemoryPressure.tierFor(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE));
+        assertEquals(MemoryPressure.TIER_MODERATE, MemoryPressure.tierFor(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND));
+        assertEquals(MemoryPressure.TIER_LOW, MemoryPressure.tierFor(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW));
+        assertEquals(MemoryPressure.TIER_LOW, MemoryPressure.tierFor(ComponentCallbacks2.TRIM_MEMORY_MODERATE));
+        assertEquals(MemoryPressure.TIER_CRITICAL,
+            MemoryPressure.tierFor(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL));
+        assertEquals(MemoryPressure.TIER_CRITICAL, MemoryPressure.tierFor(ComponentCallbacks2.TRIM_MEMORY_COMPLETE));
+    }
+
+    @Test
+    public void testNameOf() {
+        assertEquals("moderate", MemoryPressure.nameOf(MemoryPressure.TIER_MODERATE));
+        assertEquals("low", MemoryPressure.nameOf(MemoryPressure.TIER_LOW));
+        assertEquals("critical", MemoryPressure.nameOf(MemoryPressure.TIER_CRITICAL));
+    }
+}
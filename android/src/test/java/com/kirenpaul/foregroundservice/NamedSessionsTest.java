@@ -0,0 +1,65 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.Build;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Tests for named sessions multiplexed onto one ForegroundService
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+public class NamedSessionsTest {
+
+    private ServiceHarness harness;
+
+    @Before
+    public void setUp() {
+        harness = new ServiceHarness();
+    }
+
+    @After
+    public void tearDown() {
+        ForegroundService.resetForTest();
+    }
+
+    @Test
+    public void testNamedSessions_shareOneService() {
+        ServiceSessions sessions = ForegroundService.getSessions();
+        harness.start(ServiceHarness.sessionConfig("playback", 1, "mediaPlayback"));
+        harness.start(ServiceHarness.sessionConfig("sync", 2, "dataSync"));
+
+        assertEquals(2, harness.service.isRunning());
+        assertEquals("mediaPlayback|dataSync", sessions.getServiceTypes());
+        assertEquals("playback", sessions.getForeground().name);
+        assertEquals(1, shadowOf(harness.service).getLastForegroundNotificationId());
+
+        // A running named session holds one start; starting it again only updates it
+        harness.start(ServiceHarness.sessionConfig("sync", 2, "dataSync"));
+        assertEquals(2, harness.service.isRunning());
+
+        harness.stopSession("playback");
+        assertEquals(1, harness.service.isRunning());
+        assertEquals("dataSync", sessions.getServiceTypes());
+        assertEquals("sync", sessions.getForeground().name);
+        assertEquals(2, shadowOf(harness.service).getLastForegroundNotificationId());
+        assertFalse(harness.isStoppedBySelf());
+
+        // Stopping twice is harmless
+        harness.stopSession("playback");
+        assertEquals(1, harness.service.isRunning());
+
+        harness.stopSession("sync");
+        assertEquals(0, harness.service.isRunning());
+        assertTrue(sessions.isEmpty());
+        assertTrue(harness.isStoppedBySelf());
+    }
+}
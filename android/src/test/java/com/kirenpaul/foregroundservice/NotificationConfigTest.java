@@ -37,6 +37,7 @@ public class NotificationConfigTest {
     @Before
     public void setUp() throws PackageManager.NameNotFoundException {
         MockitoAnnotations.openMocks(this);
+        NotificationConfig.resetForTest();
 
         mockMetadata = new Bundle();
 
@@ -157,5 +158,19 @@ public class NotificationConfigTest {
         assertEquals("Foreground Service", config.getChannelName());
         assertEquals("Persistent notification for foreground service", config.getChannelDescription());
         assertEquals(-1, config.getNotificationColor());
+        assertNull(config.getLogLevel());
+        assertEquals(0, config.getStopGraceMs());
+        assertFalse(config.isPrewarmReactContext());
+    }
+
+    @Test
+    public void testNullMetadataIsCached() throws PackageManager.NameNotFoundException {
+        mockApplicationInfo.metaData = null;
+
+        new NotificationConfig(mockContext).getLogLevel();
+        new NotificationConfig(mockContext).getStopGraceMs();
+
+        // No meta-data is cached too, not looked up again per instance
+        verify(mockPackageManager, times(1)).getApplicationInfo(anyString(), anyInt());
     }
 }
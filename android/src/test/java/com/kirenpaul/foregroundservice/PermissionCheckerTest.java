@@ -1,11 +1,13 @@
 package com.kirenpaul.foregroundservice;
 
 import android.Manifest;
+import android.app.Application;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.os.Build;
 
 import androidx.core.content.ContextCompat;
+import androidx.test.core.app.ApplicationProvider;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -19,6 +21,7 @@ import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.robolectric.Shadows.shadowOf;
 
 /**
  * Unit tests for PermissionChecker
@@ -231,6 +234,45 @@ public class PermissionCheckerTest {
         assertTrue(errorMessage.contains("Required permissions are missing"));
     }
 
+    @Test
+    @Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE) // Android 14
+    public void testHasForegroundServicePermission_onAndroid14_combined_locationDenied() {
+        // Mock base permission as granted but location permission as denied
+        mockStatic(ContextCompat.class);
+        when(ContextCompat.checkSelfPermission(
+                eq(mockContext),
+                eq(Manifest.permission.FOREGROUND_SERVICE)
+        )).thenReturn(PackageManager.PERMISSION_GRANTED);
+
+        when(ContextCompat.checkSelfPermission(
+                eq(mockContext),
+                eq("android.permission.FOREGROUND_SERVICE_LOCATION")
+        )).thenReturn(PackageManager.PERMISSION_DENIED);
+
+        // Every type in the combined string needs its permission
+        assertFalse(permissionChecker.hasForegroundServicePermission("dataSync|location"));
+        assertEquals("location", permissionChecker.getMissingServiceType("dataSync|location"));
+    }
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.TIRAMISU) // Android 13
+    public void testPermissionSnapshot_refreshedOnlyAfterInvalidate() {
+        Application application = ApplicationProvider.getApplicationContext();
+        PermissionChecker checker = new PermissionChecker(application);
+        shadowOf(application).denyPermissions(Manifest.permission.POST_NOTIFICATIONS);
+        long checksBefore = MetricsRegistry.PERMISSION_CHECKS.get();
+
+        assertFalse(checker.hasPostNotificationsPermission());
+        assertTrue(checker.getPermissionErrorMessage("dataSync").contains("POST_NOTIFICATIONS"));
+        assertEquals("repeated checks hit the snapshot", checksBefore + 1, MetricsRegistry.PERMISSION_CHECKS.get());
+
+        // Granted in the permission dialog; seen after the host resumes
+        shadowOf(application).grantPermissions(Manifest.permission.POST_NOTIFICATIONS);
+        assertFalse(checker.hasPostNotificationsPermission());
+        checker.invalidate();
+        assertTrue(checker.hasPostNotificationsPermission());
+    }
+
     // Helper method to mock static ContextCompat
     private void mockStatic(Class<?> clazz) {
         // Note: This requires Mockito 3.4.0+ with mockito-inline for static mocking
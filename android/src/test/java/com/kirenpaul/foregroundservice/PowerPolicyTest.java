@@ -0,0 +1,31 @@
+package com.kirenpaul.foregroundservice;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for PowerPolicy
+ */
+public class PowerPolicyTest {
+
+    @Test
+    public void testElasticPercent_chargingUsesShortestPeriod() {
+        assertEquals(0, PowerPolicy.elasticPercent(true, false, 5));
+        assertEquals(0, PowerPolicy.elasticPercent(true, true, 50));
+    }
+
+    @Test
+    public void testElasticPercent_powerSaveOrLowBatteryUsesLongestPeriod() {
+        assertEquals(100, PowerPolicy.elasticPercent(false, true, 90));
+        assertEquals(100, PowerPolicy.elasticPercent(false, false, PowerPolicy.LOW_BATTERY_PERCENT));
+    }
+
+    @Test
+    public void testElasticPercent_scalesWithBatteryInStepsOfTen() {
+        assertEquals(0, PowerPolicy.elasticPercent(false, false, 100));
+        assertEquals(0, PowerPolicy.elasticPercent(false, false, 97));
+        assertEquals(50, PowerPolicy.elasticPercent(false, false, 57));
+        assertEquals(90, PowerPolicy.elasticPercent(false, false, 22));
+    }
+}
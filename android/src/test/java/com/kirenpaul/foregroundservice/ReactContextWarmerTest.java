@@ -0,0 +1,35 @@
+package com.kirenpaul.foregroundservice;
+
+import android.app.Application;
+import android.os.Build;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ReactContextWarmer
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+public class ReactContextWarmerTest {
+
+    @Test
+    public void testWithoutReactApplication_prewarmIsNoOp() {
+        Application application = ApplicationProvider.getApplicationContext();
+        ReactContextWarmer warmer = new ReactContextWarmer(application);
+        long prewarmsBefore = MetricsRegistry.REACT_CONTEXT_PREWARMS.get();
+
+        warmer.prewarm();
+        warmer.trim();
+        warmer.release();
+
+        assertFalse(ReactContextWarmer.isReady(application));
+        assertEquals(prewarmsBefore, MetricsRegistry.REACT_CONTEXT_PREWARMS.get());
+    }
+}
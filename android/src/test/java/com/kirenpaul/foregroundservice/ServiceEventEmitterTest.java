@@ -0,0 +1,123 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.Bundle;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Unit tests for ServiceEventEmitter
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ServiceEventEmitterTest {
+
+    @Mock
+    private ReactApplicationContext mockReactContext;
+
+    private ServiceEventEmitter emitter;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        emitter = ServiceEventEmitter.getInstance();
+        emitter.detach();
+    }
+
+    @After
+    public void tearDown() {
+        emitter.detach();
+    }
+
+    @Test
+    public void testHasListeners_withoutContext_returnsFalse() {
+        emitter.addListener("serviceEvent");
+
+        assertFalse(emitter.hasListeners());
+    }
+
+    @Test
+    public void testHasListeners_withContextAndListener_returnsTrue() {
+        emitter.attach(mockReactContext);
+        emitter.addListener("serviceEvent");
+
+        assertTrue(emitter.hasListeners());
+    }
+
+    @Test
+    public void testRemoveListeners_neverGoesNegative() {
+        emitter.attach(mockReactContext);
+        emitter.addListener("serviceEvent");
+        emitter.removeListeners(5);
+
+        assertFalse(emitter.hasListeners());
+
+        emitter.addListener("serviceEvent");
+        assertTrue(emitter.hasListeners());
+    }
+
+    @Test
+    public void testEnqueue_withoutListeners_doesNotTouchContext() {
+        emitter.attach(mockReactContext);
+
+        emitter.enqueue("serviceEvent", new Bundle());
+
+        verifyNoInteractions(mockReactContext);
+    }
+
+    @Test
+    public void testEmitOrHold_deliversHeldEventOnceListened() {
+        DeviceEventManagerModule.RCTDeviceEventEmitter jsEmitter =
+            mock(DeviceEventManagerModule.RCTDeviceEventEmitter.class);
+        when(mockReactContext.hasActiveReactInstance()).thenReturn(true);
+        when(mockReactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class))
+            .thenReturn(jsEmitter);
+        WritableMap payload = mock(WritableMap.class);
+        try (MockedStatic<Arguments> arguments = mockStatic(Arguments.class)) {
+            arguments.when(() -> Arguments.fromBundle(any(Bundle.class))).thenReturn(payload);
+
+            // The click arrives before the module is attached
+            emitter.emitOrHold("notificationClickHandle", new Bundle());
+            emitter.attach(mockReactContext);
+            emitter.addListener("serviceEvent");
+            shadowOf(Looper.getMainLooper()).idle();
+            verify(jsEmitter, never()).emit(anyString(), any());
+
+            emitter.addListener("notificationClickHandle");
+            shadowOf(Looper.getMainLooper()).idle();
+            verify(jsEmitter).emit("notificationClickHandle", payload);
+
+            // Delivered once
+            emitter.addListener("notificationClickHandle");
+            shadowOf(Looper.getMainLooper()).idle();
+            verify(jsEmitter, times(1)).emit("notificationClickHandle", payload);
+        }
+    }
+
+    @Test
+    public void testDetach_resetsListenerCount() {
+        emitter.attach(mockReactContext);
+        emitter.addListener("serviceEvent");
+        emitter.detach();
+        emitter.attach(mockReactContext);
+
+        assertFalse(emitter.hasListeners());
+    }
+}
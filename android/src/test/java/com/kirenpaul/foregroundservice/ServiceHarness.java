@@ -0,0 +1,112 @@
+package com.kirenpaul.foregroundservice;
+
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Bundle;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.robolectric.Robolectric;
+import org.robolectric.android.controller.ServiceController;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Runs a ForegroundService under Robolectric and sends it commands the way
+ * the module does, for the service tests
+ *
+ * Creating a harness resets the state shared across service instances, so
+ * each test starts from a fresh process.
+ */
+final class ServiceHarness {
+
+    final Application application;
+    ForegroundService service;
+    private ServiceController<ForegroundService> controller;
+    private int startId;
+
+    ServiceHarness() {
+        application = ApplicationProvider.getApplicationContext();
+
+        // Notifications open the launcher activity
+        ComponentName launcher = new ComponentName(application.getPackageName(), "android.app.Activity");
+        IntentFilter filter = new IntentFilter(Intent.ACTION_MAIN);
+        filter.addCategory(Intent.CATEGORY_LAUNCHER);
+        shadowOf(application.getPackageManager()).addActivityIfNotPresent(launcher);
+        shadowOf(application.getPackageManager()).addIntentFilterForActivity(launcher, filter);
+
+        ForegroundService.resetForTest();
+        create();
+    }
+
+    void create() {
+        controller = Robolectric.buildService(ForegroundService.class).create();
+        service = controller.get();
+    }
+
+    void destroy() {
+        controller.destroy();
+    }
+
+    void send(Intent intent) {
+        service.onStartCommand(intent, 0, ++startId);
+    }
+
+    Intent intent(String action) {
+        Intent intent = new Intent(application, ForegroundService.class);
+        intent.setAction(action);
+        return intent;
+    }
+
+    void start(Bundle config) {
+        Intent intent = intent(Constants.ACTION_FOREGROUND_SERVICE_START);
+        intent.putExtra(Constants.NOTIFICATION_CONFIG, config);
+        send(intent);
+    }
+
+    void startWithLease(String leaseId) {
+        Intent intent = intent(Constants.ACTION_FOREGROUND_SERVICE_START);
+        intent.putExtra(Constants.NOTIFICATION_CONFIG, notificationConfig());
+        intent.putExtra(Constants.LEASE_ID, leaseId);
+        send(intent);
+    }
+
+    void stop() {
+        send(intent(Constants.ACTION_FOREGROUND_SERVICE_STOP));
+    }
+
+    void stopWithLease(String leaseId) {
+        Intent intent = intent(Constants.ACTION_FOREGROUND_SERVICE_STOP);
+        intent.putExtra(Constants.LEASE_ID, leaseId);
+        send(intent);
+    }
+
+    void stopSession(String session) {
+        Intent intent = intent(Constants.ACTION_STOP_SESSION);
+        intent.putExtra(Constants.SESSION, session);
+        send(intent);
+    }
+
+    boolean isStoppedBySelf() {
+        return shadowOf(service).isStoppedBySelf();
+    }
+
+    static Bundle notificationConfig() {
+        Bundle bundle = new Bundle();
+        bundle.putDouble("id", 1);
+        bundle.putString("title", "Test");
+        bundle.putString("message", "Running");
+        bundle.putString("serviceType", "dataSync");
+        return bundle;
+    }
+
+    static Bundle sessionConfig(String session, int id, String serviceType) {
+        Bundle bundle = notificationConfig();
+        bundle.putString("session", session);
+        bundle.putDouble("id", id);
+        bundle.putString("serviceType", serviceType);
+        return bundle;
+    }
+}
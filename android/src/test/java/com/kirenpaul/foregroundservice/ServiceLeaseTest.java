@@ -0,0 +1,69 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.Build;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Tests for start leases held on a running ForegroundService
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+public class ServiceLeaseTest {
+
+    private ServiceHarness harness;
+    private LeaseRegistry leases;
+
+    @Before
+    public void setUp() {
+        harness = new ServiceHarness();
+        leases = ForegroundService.getLeaseRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        ForegroundService.resetForTest();
+    }
+
+    @Test
+    public void testLeakedLease_isReleasedByTimeout() {
+        LeaseRegistry.Lease held = leases.acquire("navigation", 0);
+        LeaseRegistry.Lease leaked = leases.acquire("upload", 1000);
+        harness.startWithLease(held.id);
+        harness.startWithLease(leaked.id);
+        assertEquals(2, harness.service.isRunning());
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(2));
+
+        assertNull("leaked lease must expire", leases.get(leaked.id));
+        assertNotNull(leases.get(held.id));
+        assertEquals(1, harness.service.isRunning());
+        assertFalse(harness.isStoppedBySelf());
+    }
+
+    @Test
+    public void testStopWithoutLease_keepsLeasedStarts() {
+        LeaseRegistry.Lease lease = leases.acquire("upload", 0);
+        harness.startWithLease(lease.id);
+
+        // A stop that released no lease must not release a leased start
+        harness.stop();
+        assertEquals(1, harness.service.isRunning());
+        assertFalse(harness.isStoppedBySelf());
+
+        leases.release(lease.id);
+        harness.stopWithLease(lease.id);
+        assertEquals(0, harness.service.isRunning());
+    }
+}
@@ -0,0 +1,110 @@
+package com.kirenpaul.foregroundservice;
+
+import android.app.Notification;
+import android.os.Build;
+import android.os.Bundle;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ServiceSessions
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+public class ServiceSessionsTest {
+
+    private ServiceSessions sessions;
+
+    @Before
+    public void setUp() {
+        sessions = new ServiceSessions();
+    }
+
+    @Test
+    public void testNameOf_defaultsWithoutSession() {
+        assertEquals(ServiceSessions.DEFAULT_SESSION, ServiceSessions.nameOf(new Bundle()));
+        assertEquals("playback", ServiceSessions.nameOf(config("playback", 1, "mediaPlayback")));
+    }
+
+    @Test
+    public void testGetServiceTypes_combinesDistinctTypes() {
+        sessions.put(session("playback", 1, "mediaPlayback"));
+        sessions.put(session("sync", 2, "dataSync|location"));
+        sessions.put(session("upload", 3, "dataSync"));
+
+        assertEquals("mediaPlayback|dataSync|location", sessions.getServiceTypes());
+    }
+
+    @Test
+    public void testGetServiceTypes_nullWithoutSessions() {
+        assertNull(sessions.getServiceTypes());
+    }
+
+    @Test
+    public void testRemoveForeground_promotesOldestSession() {
+        sessions.put(session("playback", 1, "mediaPlayback"));
+        sessions.put(session("sync", 2, "dataSync"));
+        sessions.put(session("upload", 3, "dataSync"));
+        sessions.setForeground("playback");
+
+        sessions.remove("playback");
+        assertNull(sessions.getForeground());
+
+        assertEquals("sync", sessions.promoteForeground().name);
+        assertEquals("sync", sessions.getForeground().name);
+    }
+
+    @Test
+    public void testPut_replacesSessionInPlace() {
+        sessions.put(session("playback", 1, "mediaPlayback"));
+        sessions.put(session("sync", 2, "dataSync"));
+        sessions.put(sessions.get("playback").withServiceType("mediaPlayback|location"));
+
+        assertEquals(2, sessions.size());
+        assertEquals("playback", sessions.snapshot().get(0).getString("name"));
+        assertEquals("mediaPlayback|location", sessions.get("playback").getServiceType());
+    }
+
+    @Test
+    public void testUsesNotificationId() {
+        sessions.put(session("playback", 1, "mediaPlayback"));
+
+        assertTrue(sessions.usesNotificationId(1));
+        assertFalse(sessions.usesNotificationId(2));
+    }
+
+    @Test
+    public void testSnapshot_marksForegroundSession() {
+        sessions.put(session("playback", 1, "mediaPlayback"));
+        sessions.put(session("sync", 2, "dataSync"));
+        sessions.setForeground("playback");
+
+        List<Bundle> snapshot = sessions.snapshot();
+
+        assertEquals(2, snapshot.size());
+        assertTrue(snapshot.get(0).getBoolean("foreground"));
+        assertFalse(snapshot.get(1).getBoolean("foreground"));
+        assertEquals(2.0, snapshot.get(1).getDouble("notificationId"), 0.0);
+        assertEquals("dataSync", snapshot.get(1).getString("serviceType"));
+    }
+
+    private static ServiceSessions.Session session(String name, int id, String serviceType) {
+        return new ServiceSessions.Session(name, config(name, id, serviceType), new Notification(), null);
+    }
+
+    private static Bundle config(String session, int id, String serviceType) {
+        Bundle bundle = new Bundle();
+        bundle.putString("session", session);
+        bundle.putDouble("id", id);
+        bundle.putString("serviceType", serviceType);
+        return bundle;
+    }
+}
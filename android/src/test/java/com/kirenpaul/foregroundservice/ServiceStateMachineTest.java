@@ -0,0 +1,223 @@
+package com.kirenpaul.foregroundservice;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ServiceStateMachine
+ */
+public class ServiceStateMachineTest {
+
+    private ServiceStateMachine stateMachine;
+
+    @Before
+    public void setUp() {
+        stateMachine = new ServiceStateMachine();
+    }
+
+    @Test
+    public void testInitialState_isDestroyed() {
+        assertEquals(ServiceStateMachine.State.DESTROYED, stateMachine.getState());
+        assertEquals(0, stateMachine.getStartCount());
+        assertFalse(stateMachine.isActive());
+    }
+
+    @Test
+    public void testStartAndRelease_countsStarts() {
+        stateMachine.onCreate();
+        stateMachine.beginStart();
+        assertEquals(1, stateMachine.completeStart(true));
+        stateMachine.beginStart();
+        assertEquals(2, stateMachine.completeStart(true));
+
+        assertEquals(ServiceStateMachine.State.FOREGROUND, stateMachine.getState());
+        assertEquals(1, stateMachine.release());
+        assertEquals(ServiceStateMachine.State.FOREGROUND, stateMachine.getState());
+        assertEquals(0, stateMachine.release());
+        assertEquals(ServiceStateMachine.State.STOPPING, stateMachine.getState());
+    }
+
+    @Test
+    public void testRelease_whenNotRunning_staysAtZero() {
+        stateMachine.onCreate();
+
+        assertEquals(0, stateMachine.release());
+        assertEquals(0, stateMachine.release());
+        assertEquals(ServiceStateMachine.State.STOPPING, stateMachine.getState());
+    }
+
+    @Test
+    public void testFailedStart_restoresPreviousState() {
+        stateMachine.onCreate();
+        stateMachine.beginStart();
+        assertEquals(0, stateMachine.completeStart(false));
+        assertEquals(ServiceStateMachine.State.CREATED, stateMachine.getState());
+
+        stateMachine.beginStart();
+        stateMachine.completeStart(true);
+        stateMachine.beginStart();
+        assertEquals(1, stateMachine.completeStart(false));
+        assertEquals(ServiceStateMachine.State.FOREGROUND, stateMachine.getState());
+    }
+
+    @Test
+    public void testStartRequestedBeforeCreate_survivesOnCreate() {
+        assertTrue(stateMachine.tryBeginStart());
+
+        stateMachine.onCreate();
+
+        assertEquals(ServiceStateMachine.State.STARTING, stateMachine.getState());
+        assertTrue(stateMachine.isActive());
+    }
+
+    @Test
+    public void testTryBeginStart_whenActive_returnsAlreadyActive() {
+        stateMachine.tryBeginStart();
+
+        assertFalse(stateMachine.tryBeginStart());
+
+        stateMachine.onCreate();
+        stateMachine.completeStart(true);
+        assertFalse(stateMachine.tryBeginStart());
+    }
+
+    @Test
+    public void testCancelStart_restoresPreviousState() {
+        stateMachine.beginStart();
+
+        stateMachine.cancelStart();
+
+        assertEquals(ServiceStateMachine.State.DESTROYED, stateMachine.getState());
+    }
+
+    @Test
+    public void testCancelStart_keepsConcurrentStart() {
+        stateMachine.onCreate();
+        stateMachine.beginStart();
+        stateMachine.beginStart();
+
+        // One start failed to reach the service, the other is still pending
+        stateMachine.cancelStart();
+        assertEquals(ServiceStateMachine.State.STARTING, stateMachine.getState());
+        assertTrue(stateMachine.isActive());
+
+        assertEquals(1, stateMachine.completeStart(true));
+        assertEquals(ServiceStateMachine.State.FOREGROUND, stateMachine.getState());
+    }
+
+    @Test
+    public void testJoinStart_completesTheModuleStart() {
+        stateMachine.onCreate();
+        stateMachine.beginStart();
+
+        // The service handles the intent of the start the module marked as pending
+        stateMachine.joinStart();
+        assertEquals(1, stateMachine.completeStart(true));
+        assertEquals(ServiceStateMachine.State.FOREGROUND, stateMachine.getState());
+
+        // A start of the service itself marks its own pending start
+        stateMachine.joinStart();
+        assertEquals(ServiceStateMachine.State.STARTING, stateMachine.getState());
+        assertEquals(2, stateMachine.completeStart(true));
+        assertEquals(ServiceStateMachine.State.FOREGROUND, stateMachine.getState());
+    }
+
+    @Test
+    public void testReleaseDuringStart_keepsPendingStart() {
+        stateMachine.onCreate();
+        stateMachine.beginStart();
+        stateMachine.completeStart(true);
+
+        // The last stop lands while another start is in flight
+        stateMachine.beginStart();
+        assertEquals(0, stateMachine.release());
+        assertEquals(ServiceStateMachine.State.STARTING, stateMachine.getState());
+        assertTrue(stateMachine.isActive());
+        assertFalse(stateMachine.tryBeginStart());
+
+        assertEquals(1, stateMachine.completeStart(true));
+        assertEquals(ServiceStateMachine.State.FOREGROUND, stateMachine.getState());
+    }
+
+    @Test
+    public void testReleaseDuringStart_thenCancel_landsOnReleasedState() {
+        stateMachine.onCreate();
+        stateMachine.beginStart();
+        stateMachine.completeStart(true);
+
+        stateMachine.beginStart();
+        assertEquals(0, stateMachine.release());
+        stateMachine.cancelStart();
+
+        assertEquals(ServiceStateMachine.State.STOPPING, stateMachine.getState());
+        assertEquals(0, stateMachine.getStartCount());
+        assertFalse(stateMachine.isActive());
+        assertTrue(stateMachine.tryBeginStart());
+    }
+
+    @Test
+    public void testRestore_setsCountInOneStep() {
+        stateMachine.onCreate();
+        stateMachine.restore(3);
+        assertEquals(ServiceStateMachine.State.FOREGROUND, stateMachine.getState());
+        assertEquals(3, stateMachine.getStartCount());
+
+        // A start requested meanwhile stays pending and counts on top
+        stateMachine.onDestroy();
+        stateMachine.onCreate();
+        stateMachine.beginStart();
+        stateMachine.restore(2);
+        assertEquals(ServiceStateMachine.State.STARTING, stateMachine.getState());
+        assertEquals(3, stateMachine.completeStart(true));
+    }
+
+    @Test
+    public void testStopAllAndDestroy_resetCount() {
+        stateMachine.onCreate();
+        stateMachine.beginStart();
+        stateMachine.completeStart(true);
+
+        stateMachine.stopAll();
+        assertEquals(0, stateMachine.getStartCount());
+        assertEquals(ServiceStateMachine.State.STOPPING, stateMachine.getState());
+
+        stateMachine.onDestroy();
+        assertEquals(ServiceStateMachine.State.DESTROYED, stateMachine.getState());
+    }
+
+    @Test
+    public void testConcurrentTryBeginStart_onlyOneWins() throws Exception {
+        int threads = 8;
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (stateMachine.tryBeginStart()) {
+                    winners.incrementAndGet();
+                }
+            });
+            workers[i].start();
+        }
+        ready.await();
+        go.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(1, winners.get());
+    }
+}
@@ -52,6 +52,36 @@ public class ServiceTypeManagerTest {
         assertEquals(ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC, flag);
     }
 
+    @Test
+    public void testGetServiceTypeMask_combinesTypes() {
+        int mask = ServiceTypeManager.getServiceTypeMask("dataSync|location");
+
+        assertEquals(
+            ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC | ServiceInfo.FOREGROUND_SERVICE_TYPE_LOCATION,
+            mask
+        );
+    }
+
+    @Test
+    public void testGetServiceTypeMask_singleType() {
+        assertEquals(
+            ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK,
+            ServiceTypeManager.getServiceTypeMask("mediaPlayback")
+        );
+        assertEquals(
+            ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC,
+            ServiceTypeManager.getServiceTypeMask(null)
+        );
+    }
+
+    @Test
+    public void testSplitTypes_trimsWhitespace() {
+        assertArrayEquals(
+            new String[] { "dataSync", "location" },
+            ServiceTypeManager.splitTypes(" dataSync | location ")
+        );
+    }
+
     @Test
     public void testGetRequiredPermission_dataSync() {
         String permission = ServiceTypeManager.getRequiredPermission("dataSync");
@@ -0,0 +1,120 @@
+package com.kirenpaul.foregroundservice;
+
+import android.app.ForegroundServiceStartNotAllowedException;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Promise;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Unit tests for StartScheduler
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+public class StartSchedulerTest {
+
+    private int refusals;
+    private int dispatches;
+    private StartScheduler scheduler;
+    private LeaseRegistry leases;
+    private Promise promise;
+
+    @Before
+    public void setUp() {
+        ForegroundService.resetForTest();
+        leases = ForegroundService.getLeaseRegistry();
+        promise = mock(Promise.class);
+        scheduler = new StartScheduler(intent -> {
+            dispatches++;
+            if (refusals > 0) {
+                refusals--;
+                throw new ForegroundServiceStartNotAllowedException("background");
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        ForegroundService.resetForTest();
+    }
+
+    @Test
+    public void testIsStartNotAllowed() {
+        assertTrue(StartScheduler.isStartNotAllowed(new ForegroundServiceStartNotAllowedException("x")));
+        assertFalse(StartScheduler.isStartNotAllowed(new IllegalStateException("x")));
+    }
+
+    @Test
+    public void testDeferredStart_resolvesAfterBackoff() {
+        String leaseId = leases.acquire("upload", 0).id;
+        refusals = 1;
+
+        scheduler.defer(new Intent(), leaseId, false, promise);
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(StartScheduler.INITIAL_BACKOFF_MS));
+        verify(promise, never()).resolve(any());
+
+        // Second retry waits twice as long
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(StartScheduler.INITIAL_BACKOFF_MS * 2));
+
+        verify(promise).resolve(leaseId);
+        assertEquals(2, dispatches);
+        assertEquals(0, scheduler.size());
+        assertNotNull("the lease now holds the started service", leases.get(leaseId));
+    }
+
+    @Test
+    public void testRetryNow_skipsBackoff() {
+        String leaseId = leases.acquire(null, 0).id;
+
+        scheduler.defer(new Intent(), leaseId, false, promise);
+        scheduler.retryNow();
+        shadowOf(Looper.getMainLooper()).idle();
+
+        verify(promise).resolve(leaseId);
+        assertEquals(1, dispatches);
+    }
+
+    @Test
+    public void testCancel_rejectsWithoutDispatch() {
+        String leaseId = leases.acquire(null, 0).id;
+        scheduler.defer(new Intent(), leaseId, false, promise);
+
+        leases.release(leaseId);
+        assertTrue(scheduler.cancel(leaseId));
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMinutes(5));
+
+        verify(promise).reject(eq(Constants.ERROR_START_NOT_ALLOWED), anyString());
+        assertEquals(0, dispatches);
+        assertFalse(scheduler.cancel(leaseId));
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() {
+        String leaseId = leases.acquire(null, 0).id;
+        refusals = Integer.MAX_VALUE;
+
+        scheduler.defer(new Intent(), leaseId, false, promise);
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMinutes(10));
+
+        verify(promise).reject(eq(Constants.ERROR_START_NOT_ALLOWED), anyString());
+        assertEquals(StartScheduler.MAX_ATTEMPTS - 1, dispatches);
+        assertNull(leases.get(leaseId));
+        assertEquals(0, ForegroundService.getStateMachine().getStartCount());
+    }
+}
@@ -0,0 +1,154 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.Build;
+import android.os.Bundle;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for StateStore
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+public class StateStoreTest {
+
+    private File file;
+    private final ArrayDeque<Runnable> queued = new ArrayDeque<>();
+    private StateStore store;
+
+    @Before
+    public void setUp() {
+        file = new File(ApplicationProvider.getApplicationContext().getCacheDir(), "state-test");
+        file.delete();
+        store = new StateStore(file, queued::add);
+    }
+
+    @Test
+    public void testRestore_withoutSavedState() {
+        assertNull(store.restore());
+    }
+
+    @Test
+    public void testSaveAndRestore_roundTrip() {
+        Bundle session = notificationConfig("sync", 2);
+        Bundle nested = new Bundle();
+        nested.putInt("count", 3);
+        session.putBundle("extra", nested);
+        Map<String, Bundle> loops = new LinkedHashMap<>();
+        loops.put("sync", taskConfig());
+
+        TaskSchedule.Entry task = new TaskSchedule.Entry(
+            "report", "sync", 120_000, 600_000, true, TaskSchedule.THROTTLE_PAUSE,
+            TaskSchedule.PRIORITY_CRITICAL, "network", 42_000
+        );
+
+        store.save(new StateStore.Snapshot(
+            3, Arrays.asList(notificationConfig(null, 1), session), loops, Collections.singletonList(task)
+        ));
+        runQueued();
+
+        StateStore.Snapshot restored = store.restore();
+        assertNotNull(restored);
+        assertEquals(3, restored.startCount);
+        assertEquals(2, restored.sessionConfigs.size());
+        Bundle restoredSession = restored.sessionConfigs.get(1);
+        assertEquals("sync", restoredSession.getString("session"));
+        assertEquals(2.0, restoredSession.getDouble("id"), 0.0);
+        assertTrue(restoredSession.getBoolean("ongoing"));
+        assertEquals(3, restoredSession.getBundle("extra").getInt("count"));
+        assertEquals(500.0, restored.loopConfigs.get("sync").getDouble("loopDelay"), 0.0);
+        assertEquals(1, restored.tasks.size());
+        TaskSchedule.Entry restoredTask = restored.tasks.get(0);
+        assertEquals("report", restoredTask.taskId);
+        assertEquals("sync", restoredTask.session);
+        assertEquals(120_000, restoredTask.periodMs);
+        assertEquals(600_000, restoredTask.maxPeriodMs);
+        assertTrue(restoredTask.repeat);
+        assertEquals(TaskSchedule.THROTTLE_PAUSE, restoredTask.throttle);
+        assertEquals(TaskSchedule.PRIORITY_CRITICAL, restoredTask.priority);
+        assertEquals("network", restoredTask.group);
+        assertEquals(42_000, restoredTask.nextDueMs);
+    }
+
+    @Test
+    public void testSave_coalescesQueuedWrites() {
+        long writesBefore = MetricsRegistry.STATE_WRITES.get();
+        for (int count = 1; count <= 5; count++) {
+            store.save(new StateStore.Snapshot(
+                count, Collections.singletonList(notificationConfig(null, 1)), Collections.emptyMap(),
+                Collections.emptyList()
+            ));
+        }
+
+        assertEquals("one write queued for all saves", 1, queued.size());
+        runQueued();
+        assertEquals(writesBefore + 1, MetricsRegistry.STATE_WRITES.get());
+        assertEquals(5, store.restore().startCount);
+    }
+
+    @Test
+    public void testClear_removesSavedState() {
+        store.save(new StateStore.Snapshot(
+            1, Collections.singletonList(notificationConfig(null, 1)), Collections.emptyMap(), Collections.emptyList()
+        ));
+        runQueued();
+
+        store.clear();
+        runQueued();
+
+        assertNull(store.restore());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testRestore_discardsUnreadableState() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] {1, 2, 3});
+        }
+
+        assertNull(store.restore());
+        assertFalse(file.exists());
+    }
+
+    private void runQueued() {
+        while (!queued.isEmpty()) {
+            queued.poll().run();
+        }
+    }
+
+    private static Bundle notificationConfig(String session, int id) {
+        Bundle bundle = new Bundle();
+        bundle.putDouble("id", id);
+        bundle.putString("title", "Title");
+        bundle.putString("message", "Message");
+        bundle.putBoolean("ongoing", true);
+        if (session != null) {
+            bundle.putString("session", session);
+        }
+        return bundle;
+    }
+
+    private static Bundle taskConfig() {
+        Bundle bundle = new Bundle();
+        bundle.putString("taskName", "myTaskName");
+        bundle.putDouble("loopDelay", 500);
+        bundle.putBoolean("onLoop", true);
+        return bundle;
+    }
+}
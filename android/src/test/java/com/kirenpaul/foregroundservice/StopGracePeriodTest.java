@@ -0,0 +1,63 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Tests for the stop grace period of ForegroundService
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+public class StopGracePeriodTest {
+
+    private ServiceHarness harness;
+
+    @Before
+    public void setUp() {
+        harness = new ServiceHarness();
+    }
+
+    @After
+    public void tearDown() {
+        ForegroundService.resetForTest();
+    }
+
+    @Test
+    public void testRestartDuringGracePeriod_reusesForegroundState() {
+        Bundle config = ServiceHarness.notificationConfig();
+        config.putDouble("stopGraceMs", 1000);
+        long reusesBefore = MetricsRegistry.STOP_GRACE_REUSES.get();
+        long notificationReusesBefore = MetricsRegistry.NOTIFICATION_REUSES.get();
+
+        harness.start(config);
+        harness.stop();
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(500));
+        assertFalse("service must linger during the grace period", harness.isStoppedBySelf());
+
+        harness.start(config);
+        assertEquals(1, harness.service.isRunning());
+        assertEquals(reusesBefore + 1, MetricsRegistry.STOP_GRACE_REUSES.get());
+        assertEquals(notificationReusesBefore + 1, MetricsRegistry.NOTIFICATION_REUSES.get());
+
+        // The restart cancelled the pending stop
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(2));
+        assertFalse(harness.isStoppedBySelf());
+
+        harness.stop();
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(2));
+        assertTrue("service must stop after the grace period", harness.isStoppedBySelf());
+    }
+}
@@ -0,0 +1,82 @@
+package com.kirenpaul.foregroundservice;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Tests for long-period tasks run by the task alarm of ForegroundService
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+public class TaskAlarmTest {
+
+    private static final long PERIOD_MS = 5 * 60_000;
+
+    private ServiceHarness harness;
+    private TaskSchedule schedule;
+
+    @Before
+    public void setUp() {
+        harness = new ServiceHarness();
+        schedule = ForegroundService.getTaskSchedule();
+        harness.start(ServiceHarness.notificationConfig());
+    }
+
+    @After
+    public void tearDown() {
+        ForegroundService.resetForTest();
+    }
+
+    @Test
+    public void testAlarmWithoutLoop_leavesTasksDue() {
+        long now = SystemClock.elapsedRealtime();
+        schedule.schedule("report", null, PERIOD_MS, true, now);
+        shadowOf(harness.application).clearStartedServices();
+
+        harness.send(harness.intent(Constants.ACTION_TASK_ALARM));
+
+        assertNull("no headless task without a loop", shadowOf(harness.application).getNextStartedService());
+        assertEquals(0, schedule.getTasksInFlight());
+        AlarmManager alarmManager = (AlarmManager) harness.application.getSystemService(Context.ALARM_SERVICE);
+        assertTrue("no alarm until a loop can run the tasks", shadowOf(alarmManager).getScheduledAlarms().isEmpty());
+
+        // The task was not advanced: it is still due for the next loop
+        assertArrayEquals(new String[] {"report"}, schedule.collectDueAlarms(now));
+    }
+
+    @Test
+    public void testAlarmWithLoop_dispatchesDueTasks() {
+        long now = SystemClock.elapsedRealtime();
+        schedule.schedule("report", null, PERIOD_MS, true, now);
+        Bundle taskConfig = new Bundle();
+        taskConfig.putString("taskName", "myTaskName");
+        taskConfig.putDouble("loopDelay", 500);
+        taskConfig.putBoolean("onLoop", true);
+        taskConfig.putBoolean("batchTasks", true);
+        Intent runTask = harness.intent(Constants.ACTION_FOREGROUND_RUN_TASK);
+        runTask.putExtra(Constants.TASK_CONFIG, taskConfig);
+        harness.send(runTask);
+        shadowOf(harness.application).clearStartedServices();
+
+        harness.send(harness.intent(Constants.ACTION_TASK_ALARM));
+
+        Intent dispatched = shadowOf(harness.application).getNextStartedService();
+        assertNotNull(dispatched);
+        assertArrayEquals(new String[] {"report"}, dispatched.getStringArrayExtra("taskIds"));
+        assertEquals(0, schedule.collectDueAlarms(now).length);
+    }
+}
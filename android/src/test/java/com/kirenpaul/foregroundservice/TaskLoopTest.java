@@ -0,0 +1,92 @@
+package com.kirenpaul.foregroundservice;
+
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Tests for the tick interval of the batching task loop of ForegroundService
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+public class TaskLoopTest {
+
+    private ServiceHarness harness;
+    private TaskSchedule schedule;
+
+    @Before
+    public void setUp() {
+        harness = new ServiceHarness();
+        schedule = ForegroundService.getTaskSchedule();
+        harness.start(ServiceHarness.notificationConfig());
+    }
+
+    @After
+    public void tearDown() {
+        ForegroundService.resetForTest();
+    }
+
+    private void startBatchingLoop(double loopDelay) {
+        Bundle taskConfig = new Bundle();
+        taskConfig.putString("taskName", "myTaskName");
+        taskConfig.putDouble("loopDelay", loopDelay);
+        taskConfig.putBoolean("onLoop", true);
+        taskConfig.putBoolean("batchTasks", true);
+        Intent runTask = harness.intent(Constants.ACTION_FOREGROUND_RUN_TASK);
+        runTask.putExtra(Constants.TASK_CONFIG, taskConfig);
+        harness.send(runTask);
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    @Test
+    public void testTickInterval_followsNextDueTask() {
+        schedule.schedule("sync", null, 2000, true, SystemClock.elapsedRealtime());
+
+        startBatchingLoop(500);
+
+        // The first tick runs the task; the loop then sleeps until it is due again
+        assertEquals(2000, MetricsRegistry.TICK_INTERVAL_MS.get());
+        assertEquals(2000.0, MetricsRegistry.snapshot(false).getBundle("counters").getDouble("tickIntervalMs"), 0);
+    }
+
+    @Test
+    public void testTickInterval_keepsLoopDelayAsFloor() {
+        schedule.schedule("sync", null, 100, true, SystemClock.elapsedRealtime());
+
+        startBatchingLoop(500);
+
+        assertEquals(500, MetricsRegistry.TICK_INTERVAL_MS.get());
+    }
+
+    @Test
+    public void testTickInterval_zeroWithoutPendingTick() {
+        startBatchingLoop(500);
+
+        assertEquals("no tasks: the loop waits for the schedule", 0, MetricsRegistry.TICK_INTERVAL_MS.get());
+
+        // A new task wakes the loop, no sooner than loopDelay after its last tick
+        schedule.schedule("sync", null, 2000, true, SystemClock.elapsedRealtime());
+        shadowOf(Looper.getMainLooper()).idle();
+        assertEquals(500, MetricsRegistry.TICK_INTERVAL_MS.get());
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(500));
+        assertEquals(2000, MetricsRegistry.TICK_INTERVAL_MS.get());
+
+        harness.stop();
+        assertEquals(0, MetricsRegistry.TICK_INTERVAL_MS.get());
+    }
+}
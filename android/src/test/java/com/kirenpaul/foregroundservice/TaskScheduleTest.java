@@ -0,0 +1,319 @@
+package com.kirenpaul.foregroundservice;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for TaskSchedule
+ */
+public class TaskScheduleTest {
+
+    private TaskSchedule schedule;
+
+    @Before
+    public void setUp() {
+        schedule = new TaskSchedule();
+    }
+
+    @Test
+    public void testCollectDue_batchesDueTasksOfSession() {
+        schedule.schedule("fast", null, 1000, true, 0);
+        schedule.schedule("slow", null, 5000, true, 0);
+        schedule.schedule("sync", "sync", 1000, true, 0);
+
+        assertArrayEquals(new String[] {"fast", "slow"}, schedule.collectDue("default", 0));
+        assertEquals(0, schedule.collectDue("default", 500).length);
+        assertArrayEquals(new String[] {"fast"}, schedule.collectDue("default", 1000));
+        assertArrayEquals(new String[] {"fast", "slow"}, schedule.collectDue("default", 5000));
+        assertArrayEquals(new String[] {"sync"}, schedule.collectDue("sync", 5000));
+    }
+
+    @Test
+    public void testCollectDue_removesOneShotTasks() {
+        schedule.schedule("once", null, 1000, false, 0);
+
+        assertArrayEquals(new String[] {"once"}, schedule.collectDue("default", 0));
+        assertEquals(0, schedule.size());
+        assertEquals(0, schedule.collectDue("default", 10_000).length);
+    }
+
+    @Test
+    public void testSchedule_replacesTaskWithSameId() {
+        schedule.schedule("task", null, 1000, true, 0);
+        schedule.collectDue("default", 0);
+
+        // Rescheduled tasks are due right away
+        schedule.schedule("task", null, 2000, true, 100);
+        assertArrayEquals(new String[] {"task"}, schedule.collectDue("default", 100));
+        assertEquals(0, schedule.collectDue("default", 1100).length);
+        assertEquals(1, schedule.size());
+    }
+
+    @Test
+    public void testRestore_rebuildsSavedTasks() {
+        schedule.schedule("fast", null, 1000, true, 0);
+        schedule.schedule("report", "sync", 2000, 8000, true, TaskSchedule.THROTTLE_NONE,
+            TaskSchedule.PRIORITY_CRITICAL, "network", 0);
+        schedule.collectDue("default", 0);
+        List<TaskSchedule.Entry> saved = schedule.getEntries();
+
+        TaskSchedule restored = new TaskSchedule();
+        restored.restore(saved, 500);
+
+        assertEquals(2, restored.size());
+        assertEquals("saved due time kept", 500, restored.nextDueDelay("default", 500));
+        assertArrayEquals(new String[] {"report"}, restored.collectDue("sync", 500));
+        TaskSchedule.Entry report = restored.getEntries().get(1);
+        assertEquals(8000, report.maxPeriodMs);
+        assertEquals(TaskSchedule.THROTTLE_NONE, report.throttle);
+        assertEquals(TaskSchedule.PRIORITY_CRITICAL, report.priority);
+        assertEquals("network", report.group);
+    }
+
+    @Test
+    public void testRestore_capsDueTimeAtOnePeriod() {
+        schedule.schedule("fast", null, 1000, true, 0);
+        schedule.collectDue("default", 1_000_000);
+        List<TaskSchedule.Entry> saved = schedule.getEntries();
+
+        // elapsedRealtime restarted since the save
+        TaskSchedule restored = new TaskSchedule();
+        restored.restore(saved, 0);
+
+        assertEquals(1000, restored.nextDueDelay("default", 0));
+    }
+
+    @Test
+    public void testLongPeriodTasks_runByAlarms() {
+        long minute = 60_000;
+        schedule.schedule("tick", null, 1000, true, 0);
+        schedule.schedule("report", null, 5 * minute, true, 0);
+
+        // Alarm tasks are not collected by the tick loop
+        assertArrayEquals(new String[] {"tick"}, schedule.collectDue("default", 0));
+        assertArrayEquals(new String[] {"report"}, schedule.collectDueAlarms(0));
+
+        // Exact window one period later
+        assertArrayEquals(new long[] {5 * minute, 5 * minute}, schedule.nextAlarmWindow());
+
+        // A late wakeup keeps the task on its grid
+        assertArrayEquals(new String[] {"report"}, schedule.collectDueAlarms(5 * minute + 2000));
+        assertArrayEquals(new long[] {10 * minute, 10 * minute}, schedule.nextAlarmWindow());
+    }
+
+    @Test
+    public void testNextAlarmWindow_batchesOverlappingWindows() {
+        long minute = 60_000;
+        schedule.schedule("a", null, 60 * minute, true, 0);
+        schedule.schedule("b", null, 30 * minute, true, 0);
+        schedule.schedule("c", null, 20 * minute, true, 0);
+        schedule.collectDueAlarms(0);
+
+        // c: [20, 22], b: [30, 33], a: [60, 66] minutes; none overlap c
+        assertArrayEquals(new long[] {20 * minute, 22 * minute}, schedule.nextAlarmWindow());
+
+        // After c runs at 20 it is due at 40 ([40, 42]); b [30, 33] runs alone
+        schedule.collectDueAlarms(20 * minute);
+        assertArrayEquals(new long[] {30 * minute, 33 * minute}, schedule.nextAlarmWindow());
+        schedule.collectDueAlarms(30 * minute);
+
+        // b next [60, 63] and c [60, 62] overlap a [60, 66]: one wakeup for all three
+        schedule.collectDueAlarms(40 * minute);
+        assertArrayEquals(new long[] {60 * minute, 62 * minute}, schedule.nextAlarmWindow());
+        assertArrayEquals(new String[] {"a", "b", "c"}, schedule.collectDueAlarms(61 * minute));
+    }
+
+    @Test
+    public void testListener_notifiedOnChanges() {
+        int[] changes = new int[1];
+        schedule.setListener(() -> changes[0]++);
+
+        schedule.schedule("a", null, 1000, true, 0);
+        schedule.cancel("a");
+        schedule.cancel("a");
+        schedule.cancelSession(null);
+
+        assertEquals(3, changes[0]);
+    }
+
+    @Test
+    public void testNextDueDelay_followsEarliestTask() {
+        assertEquals(-1, schedule.nextDueDelay("default", 0));
+
+        schedule.schedule("fast", null, 1500, true, 0);
+        schedule.schedule("slow", null, 4000, true, 0);
+        schedule.schedule("report", null, 5 * 60_000, true, 0);
+        assertEquals(0, schedule.nextDueDelay("default", 0));
+
+        schedule.collectDue("default", 0);
+        assertEquals(1500, schedule.nextDueDelay("default", 0));
+        assertEquals(500, schedule.nextDueDelay("default", 1000));
+        assertEquals(-1, schedule.nextDueDelay("sync", 0));
+
+        // Alarm tasks do not wake the tick loop
+        schedule.cancel("fast");
+        schedule.cancel("slow");
+        assertEquals(-1, schedule.nextDueDelay("default", 0));
+    }
+
+    @Test
+    public void testThrottle_appliesPerTaskRules() {
+        schedule.schedule("upload", null, 1000, 1000, true,
+            TaskSchedule.THROTTLE_NONE, TaskSchedule.PRIORITY_NORMAL, null, 0);
+        schedule.schedule("sync", null, 1000, 1000, true,
+            TaskSchedule.THROTTLE_STRETCH, TaskSchedule.PRIORITY_NORMAL, null, 0);
+        schedule.schedule("analytics", null, 1000, 1000, true,
+            TaskSchedule.THROTTLE_PAUSE, TaskSchedule.PRIORITY_NORMAL, null, 0);
+        assertArrayEquals(new String[] {"upload", "sync", "analytics"}, schedule.collectDue("default", 0));
+
+        schedule.setThrottleLevel(ThermalThrottle.LEVEL_SEVERE);
+        assertArrayEquals(new String[] {"upload"}, schedule.collectDue("default", 1000));
+        assertArrayEquals(new String[] {"upload"}, schedule.collectDue("default", 2000));
+        assertArrayEquals(new String[] {"upload"}, schedule.collectDue("default", 3000));
+        assertArrayEquals(new String[] {"upload", "sync"}, schedule.collectDue("default", 4000));
+        assertEquals(1000, schedule.nextDueDelay("default", 4000));
+
+        // Back to full rate: paused tasks are due, stretched ones run one period after their last run
+        schedule.setThrottleLevel(ThermalThrottle.LEVEL_NONE);
+        assertArrayEquals(new String[] {"analytics"}, schedule.collectDue("default", 4500));
+        assertArrayEquals(new String[] {"upload", "sync"}, schedule.collectDue("default", 5000));
+    }
+
+    @Test
+    public void testElasticPeriod_followsPowerPolicy() {
+        schedule.schedule("sync", null, 2000, 10_000, true,
+            TaskSchedule.THROTTLE_STRETCH, TaskSchedule.PRIORITY_NORMAL, null, 0);
+        schedule.schedule("fixed", null, 2000, true, 0);
+        schedule.collectDue("default", 0);
+
+        // Shortest period by default (charging)
+        assertEquals(2000, schedule.nextDueDelay("default", 0));
+        assertArrayEquals(new String[] {"sync", "fixed"}, schedule.collectDue("default", 2000));
+
+        // Battery saver: longest period, counted from the last run; fixed tasks keep theirs
+        schedule.setElasticPercent(100);
+        assertArrayEquals(new String[] {"fixed"}, schedule.collectDue("default", 4000));
+        schedule.cancel("fixed");
+        assertEquals(8000, schedule.nextDueDelay("default", 4000));
+
+        schedule.setElasticPercent(50);
+        assertEquals(6000, TaskSchedule.elasticPeriodMs(2000, 10_000, 50));
+        assertEquals(4000, schedule.nextDueDelay("default", 4000));
+        assertArrayEquals(new String[] {"sync"}, schedule.collectDue("default", 8000));
+    }
+
+    @Test
+    public void testLowPriorityShed_pausesPauseTasksOnly() {
+        schedule.schedule("upload", null, 1000, 1000, true,
+            TaskSchedule.THROTTLE_STRETCH, TaskSchedule.PRIORITY_NORMAL, null, 0);
+        schedule.schedule("analytics", null, 1000, 1000, true,
+            TaskSchedule.THROTTLE_PAUSE, TaskSchedule.PRIORITY_NORMAL, null, 0);
+
+        schedule.setLowPriorityShed(true);
+        assertArrayEquals(new String[] {"upload"}, schedule.collectDue("default", 0));
+        assertEquals(1000, schedule.nextDueDelay("default", 0));
+
+        schedule.setLowPriorityShed(false);
+        assertArrayEquals(new String[] {"analytics"}, schedule.collectDue("default", 500));
+    }
+
+    @Test
+    public void testPriorityClasses_dispatchInOrderWithinLimits() {
+        schedule.setClassLimits(0, 1, 2);
+        schedule.schedule("analytics", null, 1000, 1000, true,
+            TaskSchedule.THROTTLE_STRETCH, TaskSchedule.PRIORITY_BACKGROUND, null, 0);
+        schedule.schedule("sync", null, 1000, 1000, true,
+            TaskSchedule.THROTTLE_STRETCH, TaskSchedule.PRIORITY_NORMAL, null, 0);
+        schedule.schedule("upload", null, 1000, 1000, true,
+            TaskSchedule.THROTTLE_STRETCH, TaskSchedule.PRIORITY_NORMAL, null, 0);
+        schedule.schedule("location", null, 1000, 1000, true,
+            TaskSchedule.THROTTLE_STRETCH, TaskSchedule.PRIORITY_CRITICAL, null, 0);
+
+        // Critical first; one normal task per tick, the other stays queued
+        assertArrayEquals(new String[] {"location", "sync", "analytics"}, schedule.collectDue("default", 0));
+        assertEquals(0, schedule.nextDueDelay("default", 0));
+        assertArrayEquals(new String[] {"upload"}, schedule.collectDue("default", 500));
+
+        // Under load, background tasks wait up to BACKGROUND_MAX_DEFER_MS
+        assertArrayEquals(new String[] {"location", "sync"}, schedule.collectDue("default", 1000, true));
+        // Within a class the task due longest runs first (upload was queued at 500)
+        assertArrayEquals(
+            new String[] {"location", "upload", "analytics"},
+            schedule.collectDue("default", 1000 + TaskSchedule.BACKGROUND_MAX_DEFER_MS, true)
+        );
+    }
+
+    @Test
+    public void testConcurrencyLimits_holdTasksUntilReleased() {
+        Map<String, Integer> groups = new HashMap<>();
+        groups.put("network", 1);
+        schedule.setConcurrencyLimits(3, groups);
+        schedule.schedule("upload", null, 1000, 1000, true,
+            TaskSchedule.THROTTLE_STRETCH, TaskSchedule.PRIORITY_NORMAL, "network", 0);
+        schedule.schedule("download", null, 1000, 1000, true,
+            TaskSchedule.THROTTLE_STRETCH, TaskSchedule.PRIORITY_NORMAL, "network", 0);
+        schedule.schedule("a", null, 1000, true, 0);
+        schedule.schedule("b", null, 1000, true, 0);
+
+        // One network task at a time, three runs in flight in total
+        assertArrayEquals(new String[] {"upload", "a", "b"}, schedule.collectDue("default", 0));
+        assertEquals(3, schedule.getTasksInFlight());
+        assertEquals(1, schedule.getConcurrencyQueueDepth());
+        // The held task cannot run before a release, so the loop sleeps until the others are due
+        assertEquals(1000, schedule.nextDueDelay("default", 0));
+        assertEquals(0, schedule.collectDue("default", 500).length);
+
+        // Releasing a and b frees global permits but not the network group
+        schedule.release(new String[] {"a", "b"});
+        assertEquals(0, schedule.collectDue("default", 600).length);
+
+        // The held task runs before the ones that came due later; upload waits its turn
+        schedule.release(new String[] {"upload"});
+        assertArrayEquals(new String[] {"download", "a", "b"}, schedule.collectDue("default", 1000));
+        assertEquals(1, schedule.getConcurrencyQueueDepth());
+    }
+
+    @Test
+    public void testConcurrencyLimits_expireLostPermits() {
+        schedule.setConcurrencyLimits(1, null);
+        schedule.schedule("a", null, 1000, true, 0);
+        schedule.schedule("b", null, 1000, true, 0);
+
+        assertArrayEquals(new String[] {"a"}, schedule.collectDue("default", 0));
+        assertEquals(0, schedule.collectDue("default", 1000).length);
+        assertEquals(TaskSemaphore.PERMIT_TIMEOUT_MS - 1000, schedule.nextDueDelay("default", 1000));
+
+        // A permit that was never released is taken back after PERMIT_TIMEOUT_MS
+        assertArrayEquals(new String[] {"b"}, schedule.collectDue("default", TaskSemaphore.PERMIT_TIMEOUT_MS));
+        assertEquals(1, schedule.getTasksInFlight());
+
+        // Unknown ids are ignored; clearing the schedule drops the permits
+        schedule.release(new String[] {"unknown"});
+        assertEquals(1, schedule.getTasksInFlight());
+        schedule.clear();
+        assertEquals(0, schedule.getTasksInFlight());
+    }
+
+    @Test
+    public void testCancel() {
+        schedule.schedule("a", null, 1000, true, 0);
+        schedule.schedule("b", "sync", 1000, true, 0);
+        schedule.schedule("c", "sync", 1000, true, 0);
+
+        assertTrue(schedule.cancel("a"));
+        assertFalse(schedule.cancel("a"));
+
+        schedule.cancelSession("sync");
+        assertEquals(0, schedule.size());
+
+        schedule.schedule("d", null, 1000, true, 0);
+        schedule.cancelSession(null);
+        assertEquals(0, schedule.size());
+    }
+}
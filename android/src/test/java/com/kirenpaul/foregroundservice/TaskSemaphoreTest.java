@@ -0,0 +1,63 @@
+package com.kirenpaul.foregroundservice;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for TaskSemaphore
+ */
+public class TaskSemaphoreTest {
+
+    private TaskSemaphore semaphore;
+
+    @Before
+    public void setUp() {
+        semaphore = new TaskSemaphore();
+    }
+
+    @Test
+    public void testNoLimits_acquireAlways() {
+        for (int i = 0; i < 20; i++) {
+            assertTrue(semaphore.tryAcquire("task" + i, null, 0));
+        }
+        assertEquals(20, semaphore.inFlight());
+    }
+
+    @Test
+    public void testLimits_globalAndPerGroup() {
+        semaphore.setLimits(2, Collections.singletonMap("network", 1));
+
+        assertTrue(semaphore.tryAcquire("upload", "network", 0));
+        assertFalse(semaphore.tryAcquire("download", "network", 0));
+        assertTrue(semaphore.tryAcquire("a", null, 0));
+        assertFalse(semaphore.tryAcquire("b", null, 0));
+        assertFalse(semaphore.canAcquire(null));
+
+        assertTrue(semaphore.release("upload"));
+        assertTrue(semaphore.canAcquire("network"));
+        assertFalse(semaphore.release("upload"));
+        assertEquals(0, semaphore.inFlight("network"));
+        assertTrue(semaphore.tryAcquire("download", "network", 0));
+    }
+
+    @Test
+    public void testExpire_takesBackOldPermits() {
+        semaphore.setLimits(0, Collections.singletonMap("network", 1));
+        semaphore.tryAcquire("upload", "network", 0);
+        semaphore.tryAcquire("a", null, 1000);
+        assertEquals(TaskSemaphore.PERMIT_TIMEOUT_MS, semaphore.nextExpiryMs());
+
+        assertEquals(0, semaphore.expire(TaskSemaphore.PERMIT_TIMEOUT_MS - 1));
+        assertEquals(1, semaphore.expire(TaskSemaphore.PERMIT_TIMEOUT_MS));
+        assertEquals(1, semaphore.inFlight());
+        assertEquals(0, semaphore.inFlight("network"));
+        assertEquals(1000 + TaskSemaphore.PERMIT_TIMEOUT_MS, semaphore.nextExpiryMs());
+
+        semaphore.clear();
+        assertEquals(Long.MAX_VALUE, semaphore.nextExpiryMs());
+    }
+}
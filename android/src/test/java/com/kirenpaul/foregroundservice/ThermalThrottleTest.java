@@ -0,0 +1,31 @@
+package com.kirenpaul.foregroundservice;
+
+import android.os.PowerManager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ThermalThrottle
+ */
+public class ThermalThrottleTest {
+
+    @Test
+    public void testLevelFor_thermalStatus() {
+        assertEquals(ThermalThrottle.LEVEL_NONE, ThermalThrottle.levelFor(PowerManager.THERMAL_STATUS_NONE));
+        assertEquals(ThermalThrottle.LEVEL_NONE, ThermalThrottle.levelFor(PowerManager.THERMAL_STATUS_LIGHT));
+        assertEquals(ThermalThrottle.LEVEL_MODERATE, ThermalThrottle.levelFor(PowerManager.THERMAL_STATUS_MODERATE));
+        assertEquals(ThermalThrottle.LEVEL_SEVERE, ThermalThrottle.levelFor(PowerManager.THERMAL_STATUS_SEVERE));
+        assertEquals(ThermalThrottle.LEVEL_CRITICAL, ThermalThrottle.levelFor(PowerManager.THERMAL_STATUS_CRITICAL));
+        assertEquals(ThermalThrottle.LEVEL_CRITICAL, ThermalThrottle.levelFor(PowerManager.THERMAL_STATUS_SHUTDOWN));
+    }
+
+    @Test
+    public void testStretchFactor() {
+        assertEquals(1, ThermalThrottle.stretchFactor(ThermalThrottle.LEVEL_NONE));
+        assertEquals(2, ThermalThrottle.stretchFactor(ThermalThrottle.LEVEL_MODERATE));
+        assertEquals(4, ThermalThrottle.stretchFactor(ThermalThrottle.LEVEL_SEVERE));
+        assertEquals(8, ThermalThrottle.stretchFactor(ThermalThrottle.LEVEL_CRITICAL));
+    }
+}
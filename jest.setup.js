@@ -1,13 +1,29 @@
 // Create mock native module
 const mockNativeForegroundService = {
-  startService: jest.fn(() => Promise.resolve()),
+  startService: jest.fn(() => Promise.resolve('lease-1')),
   stopService: jest.fn(() => Promise.resolve()),
+  releaseLease: jest.fn(() => Promise.resolve(true)),
+  getLeases: jest.fn(() => Promise.resolve([])),
+  retryDeferredStarts: jest.fn(() => Promise.resolve()),
+  stopSession: jest.fn(() => Promise.resolve()),
+  getSessions: jest.fn(() => Promise.resolve([])),
   stopServiceAll: jest.fn(() => Promise.resolve()),
   updateNotification: jest.fn(() => Promise.resolve()),
   isRunning: jest.fn(() => Promise.resolve(0)),
+  setServiceType: jest.fn(() => Promise.resolve()),
   runTask: jest.fn(() => Promise.resolve()),
+  scheduleTask: jest.fn(),
+  cancelTask: jest.fn(),
+  cancelTasks: jest.fn(),
+  setTaskClassLimits: jest.fn(),
+  setConcurrencyLimits: jest.fn(),
   cancelNotification: jest.fn(() => Promise.resolve()),
   checkPostNotificationsPermission: jest.fn(() => Promise.resolve(true)),
+  addListener: jest.fn(),
+  removeListeners: jest.fn(),
+  setServiceEventsEnabled: jest.fn(),
+  getMetrics: jest.fn(() => Promise.resolve({ counters: {}, histograms: {} })),
+  setLogLevel: jest.fn(),
   getConstants: jest.fn(() => ({
     MIN_SDK: 25,
     TARGET_SDK: 34,
@@ -4,10 +4,24 @@ import type {
   StartServiceConfig,
   Task,
   TaskOptions,
+  TaskClassLimits,
+  ConcurrencyLimits,
   NotificationClickEvent,
+  ServiceEvent,
+  LeaseOptions,
+  ServiceLease,
+  ServiceSession,
+  ServiceType,
+  MetricsSnapshot,
+  LogLevel,
   EventListenerCleanup,
 } from './types';
 
+/**
+ * Session of start()/acquire() and of tasks that do not name one
+ */
+const DEFAULT_SESSION = 'default';
+
 /**
  * High-level manager for React Native Foreground Service
  *
@@ -16,17 +30,21 @@ import type {
  *
  * Features:
  * - Task management system with parallel execution
- * - 500ms sampling interval for efficient task scheduling
+ * - Native task loop that sleeps until the next task is due and sends the
+ *   ids of the due tasks, so each tick runs them in one headless invocation.
+ *   JS rounds task delays up to a multiple of 500 ms, and ticks are at
+ *   least 500 ms apart.
  * - Android 13+ POST_NOTIFICATIONS permission checking
  * - Android 14+ service type validation
  * - Event handling for notification interactions
+ * - Named sessions sharing one service, each with its own notification and tasks
  */
 class ForegroundServiceManager {
   private static tasks: Record<string, Task> = {};
   private static serviceRunning = false;
-  private static serviceStarting = false; // Prevent race conditions
-  private static samplingInterval = 500; // milliseconds
+  private static samplingInterval = 500; // milliseconds, minimum time between ticks
   private static eventEmitter = new NativeEventEmitter(NativeModules.ForegroundService);
+  private static serviceEventListenerCount = 0;
 
   /**
    * Register the foreground service task runner
@@ -73,63 +91,205 @@ class ForegroundServiceManager {
       return;
     }
 
-    // Validate and set default service type for Android 14+
-    if (!config.serviceType) {
-      console.warn(
-        'Warning: serviceType not specified. Defaulting to "dataSync". ' +
-          'This is required for Android 14+.'
-      );
-      config.serviceType = 'dataSync';
+    await this.checkStartConfig(config);
+
+    // Convert friendly API to native format. Native checks whether the
+    // service is already starting or running and starts it in one atomic step.
+    const nativeConfig = { ...this.convertToNativeConfig(config), reuseRunning: true };
+
+    const leaseId = await NativeForegroundService.startService(nativeConfig);
+    this.serviceRunning = true;
+
+    if (leaseId === null) {
+      console.log('Foreground service is already running.');
+      return;
     }
 
-    // Check POST_NOTIFICATIONS permission (Android 13+)
-    const hasPermission = await NativeForegroundService.checkPostNotificationsPermission();
-    if (!hasPermission) {
-      throw new Error(
-        'POST_NOTIFICATIONS permission not granted. ' +
-          'Please request this permission before starting the service:\n\n' +
-          'import { PermissionsAndroid, Platform } from "react-native";\n' +
-          'if (Platform.OS === "android" && Platform.Version >= 33) {\n' +
-          '  await PermissionsAndroid.request(\n' +
-          '    PermissionsAndroid.PERMISSIONS.POST_NOTIFICATIONS\n' +
-          '  );\n' +
-          '}'
-      );
+    await this.startTaskRunner();
+  }
+
+  /**
+   * Acquire a lease that keeps the foreground service running
+   *
+   * Use this when several independent features need the service. Each
+   * feature holds its own lease and releases it with release(); releasing
+   * the same lease twice is harmless, so one feature can never stop the
+   * service for the others.
+   *
+   * @param config Service and notification configuration
+   * @param options Lease name and timeout
+   * @returns Opaque lease id, or null on non-Android platforms
+   *
+   * @example
+   * ```typescript
+   * const lease = await ForegroundService.acquire(config, {
+   *   name: 'upload',
+   *   timeoutMs: 30 * 60 * 1000,
+   * });
+   * try {
+   *   await upload();
+   * } finally {
+   *   await ForegroundService.release(lease);
+   * }
+   * ```
+   */
+  static async acquire(config: StartServiceConfig, options: LeaseOptions = {}): Promise<string | null> {
+    if (Platform.OS !== 'android') {
+      console.warn('ForegroundService is only supported on Android');
+      return null;
+    }
+
+    await this.checkStartConfig(config);
+
+    const nativeConfig = {
+      ...this.convertToNativeConfig(config),
+      ...(options.name !== undefined && { leaseName: options.name }),
+      ...(options.timeoutMs !== undefined && { leaseTimeoutMs: options.timeoutMs }),
+    };
+
+    const wasRunning = this.serviceRunning;
+    const leaseId = await NativeForegroundService.startService(nativeConfig);
+    this.serviceRunning = true;
+
+    if (!wasRunning) {
+      await this.startTaskRunner();
+    }
+
+    return leaseId;
+  }
+
+  /**
+   * Release a lease returned by acquire()
+   *
+   * The service stops once no leases (and no start() calls) are left.
+   *
+   * @param leaseId Lease id returned by acquire()
+   * @returns true if the lease was held, false if it was already released or expired
+   */
+  static async release(leaseId: string | null): Promise<boolean> {
+    if (Platform.OS !== 'android' || !leaseId) {
+      return false;
+    }
+
+    const released = await NativeForegroundService.releaseLease(leaseId);
+    if (released) {
+      const nativeRunningCount = await NativeForegroundService.isRunning();
+      if (nativeRunningCount === 0) {
+        this.serviceRunning = false;
+        this.clearTasks();
+      }
+    }
+
+    return released;
+  }
+
+  /**
+   * Get the leases currently keeping the service alive
+   *
+   * @returns Held leases, oldest first
+   */
+  static async get_leases(): Promise<ServiceLease[]> {
+    if (Platform.OS !== 'android') {
+      return [];
+    }
+
+    return (await NativeForegroundService.getLeases()) as ServiceLease[];
+  }
+
+  /**
+   * Retry starts Android deferred because the app was in the background
+   *
+   * On Android 12+, start() / acquire() calls refused in the background stay
+   * pending and are retried natively with backoff and when the app resumes.
+   * Call this when the app is allowed to start a foreground service from the
+   * background again, e.g. from a high-priority FCM message or an exact alarm.
+   */
+  static async retry_deferred_starts(): Promise<void> {
+    if (Platform.OS !== 'android') {
+      return;
     }
 
-    // Prevent race condition: Check if already starting
-    if (this.serviceStarting) {
-      console.log('Service is already starting, please wait...');
+    await NativeForegroundService.retryDeferredStarts();
+  }
+
+  /**
+   * Start a named session on the foreground service
+   *
+   * Sessions share the one service: each has its own notification and its
+   * own tasks (add_task with the same `session`), and the service runs with
+   * the combined service type of all sessions. Starting a session that is
+   * already running only updates its notification.
+   *
+   * @param session Session name, e.g. 'playback'
+   * @param config Service and notification configuration of the session
+   *
+   * @example
+   * ```typescript
+   * await ForegroundService.start_session('playback', {
+   *   id: 1,
+   *   title: 'Now playing',
+   *   serviceType: 'mediaPlayback',
+   * });
+   * await ForegroundService.start_session('sync', {
+   *   id: 2,
+   *   title: 'Syncing library',
+   *   serviceType: 'dataSync',
+   * });
+   * ForegroundService.add_task(syncLibrary, { session: 'sync', delay: 10000 });
+   * ```
+   */
+  static async start_session(session: string, config: StartServiceConfig): Promise<void> {
+    if (Platform.OS !== 'android') {
+      console.warn('ForegroundService is only supported on Android');
       return;
     }
 
-    // Check native service state to sync with actual state
-    const nativeRunningCount = await NativeForegroundService.isRunning();
-    if (nativeRunningCount > 0) {
-      this.serviceRunning = true;
-      console.log('Foreground service is already running.');
+    await this.checkStartConfig(config);
+
+    const nativeConfig = this.convertToNativeConfig({ ...config, session });
+    const leaseId = await NativeForegroundService.startService(nativeConfig);
+    this.serviceRunning = true;
+
+    if (leaseId !== null) {
+      await this.startTaskRunner(session);
+    }
+  }
+
+  /**
+   * Stop a named session
+   *
+   * Removes the session's notification and tasks. The service keeps running
+   * while other sessions remain, with the service type of those sessions.
+   *
+   * @param session Session name given to start_session()
+   */
+  static async stop_session(session: string): Promise<void> {
+    if (Platform.OS !== 'android') {
       return;
     }
 
-    try {
-      this.serviceStarting = true;
+    await NativeForegroundService.stopSession(session);
 
-      // Convert friendly API to native format
-      const nativeConfig = this.convertToNativeConfig(config);
+    this.clearTasks(session);
 
-      await NativeForegroundService.startService(nativeConfig);
-      this.serviceRunning = true;
+    const nativeRunningCount = await NativeForegroundService.isRunning();
+    if (nativeRunningCount === 0) {
+      this.serviceRunning = false;
+      this.clearTasks();
+    }
+  }
 
-      // Start task runner
-      await NativeForegroundService.runTask({
-        taskName: 'myTaskName',
-        delay: this.samplingInterval,
-        loopDelay: this.samplingInterval,
-        onLoop: true,
-      });
-    } finally {
-      this.serviceStarting = false;
+  /**
+   * Get the sessions of the running service
+   *
+   * @returns Active sessions, oldest first
+   */
+  static async get_sessions(): Promise<ServiceSession[]> {
+    if (Platform.OS !== 'android') {
+      return [];
     }
+
+    return (await NativeForegroundService.getSessions()) as ServiceSession[];
   }
 
   /**
@@ -156,6 +316,37 @@ class ForegroundServiceManager {
     await NativeForegroundService.updateNotification(nativeConfig);
   }
 
+  /**
+   * Change the foreground service type without restarting the service
+   *
+   * The running service switches to the new type set in place, keeping its
+   * notification. Permissions for each type are checked natively.
+   *
+   * @param serviceType One type, or several to run with a combined type mask
+   * @param session Session to change (default: the session backing the notification)
+   *
+   * @example
+   * ```typescript
+   * // Navigation phase needs location on top of data sync
+   * await ForegroundService.set_service_type(['dataSync', 'location']);
+   * // ...and back
+   * await ForegroundService.set_service_type('dataSync');
+   * ```
+   */
+  static async set_service_type(
+    serviceType: ServiceType | ServiceType[],
+    session?: string
+  ): Promise<void> {
+    if (Platform.OS !== 'android') {
+      return;
+    }
+
+    await NativeForegroundService.setServiceType(
+      this.toNativeServiceType(serviceType),
+      session ?? null
+    );
+  }
+
   /**
    * Stop the foreground service
    *
@@ -179,7 +370,7 @@ class ForegroundServiceManager {
 
       // Clear tasks if requested or if service fully stopped
       if (options?.clearTasks !== false) {
-        this.tasks = {};
+        this.clearTasks();
         console.log('Service stopped and all tasks cleared');
       }
     }
@@ -196,10 +387,9 @@ class ForegroundServiceManager {
     }
 
     this.serviceRunning = false;
-    this.serviceStarting = false;
 
     // Clear all tasks immediately
-    this.tasks = {};
+    this.clearTasks();
 
     await NativeForegroundService.stopServiceAll();
 
@@ -249,10 +439,16 @@ class ForegroundServiceManager {
         delay: Math.ceil(delay / this.samplingInterval) * this.samplingInterval,
         onLoop,
         taskId,
+        maxDelay: options.maxDelay,
+        session: options.session,
+        throttle: options.throttle,
+        priority: options.priority,
+        group: options.group,
         onSuccess: options.onSuccess || (() => {}),
         onError: options.onError || (() => {}),
         nextExecutionTime: Date.now(),
       };
+      this.scheduleNativeTask(this.tasks[taskId]);
     }
 
     return taskId;
@@ -277,10 +473,16 @@ class ForegroundServiceManager {
       delay: Math.ceil(delay / this.samplingInterval) * this.samplingInterval,
       onLoop,
       taskId: options.taskId,
+      maxDelay: options.maxDelay,
+      session: options.session,
+      throttle: options.throttle,
+      priority: options.priority,
+      group: options.group,
       onSuccess: options.onSuccess || (() => {}),
       onError: options.onError || (() => {}),
       nextExecutionTime: Date.now(),
     };
+    this.scheduleNativeTask(this.tasks[options.taskId]);
 
     return options.taskId;
   }
@@ -292,6 +494,9 @@ class ForegroundServiceManager {
    */
   static remove_task(taskId: string): void {
     delete this.tasks[taskId];
+    if (Platform.OS === 'android') {
+      NativeForegroundService.cancelTask(taskId);
+    }
   }
 
   /**
@@ -304,11 +509,60 @@ class ForegroundServiceManager {
     return !!this.tasks[taskId];
   }
 
+  /**
+   * Set how many due tasks of each priority class one tick dispatches
+   *
+   * Tasks over the limit stay due and run on a following tick, so a burst of
+   * background work cannot crowd out critical tasks.
+   *
+   * @param limits Per-class limits (0 = no limit; default: critical and
+   *   normal unlimited, background 2)
+   *
+   * @example
+   * ```typescript
+   * ForegroundService.set_task_limits({ normal: 4, background: 1 });
+   * ```
+   */
+  static set_task_limits(limits: TaskClassLimits): void {
+    if (Platform.OS !== 'android') {
+      return;
+    }
+
+    NativeForegroundService.setTaskClassLimits(
+      limits.critical ?? 0,
+      limits.normal ?? 0,
+      limits.background ?? 2
+    );
+  }
+
+  /**
+   * Limit how many scheduled task runs are in flight at the same time
+   *
+   * A run holds its permit until the headless invocation that ran it
+   * finishes. Due tasks over a limit wait, oldest first, instead of all
+   * starting in the same burst.
+   *
+   * @param limits Global limit and limits per task group (see
+   *   TaskOptions.group); 0 or missing = no limit
+   *
+   * @example
+   * ```typescript
+   * ForegroundService.set_concurrency_limits({ maxConcurrent: 4, groups: { network: 2 } });
+   * ```
+   */
+  static set_concurrency_limits(limits: ConcurrencyLimits): void {
+    if (Platform.OS !== 'android') {
+      return;
+    }
+
+    NativeForegroundService.setConcurrencyLimits(limits.maxConcurrent ?? 0, limits.groups ?? {});
+  }
+
   /**
    * Remove all tasks from the execution queue
    */
   static remove_all_tasks(): void {
-    this.tasks = {};
+    this.clearTasks();
   }
 
   /**
@@ -345,6 +599,44 @@ class ForegroundServiceManager {
     await NativeForegroundService.cancelNotification(id);
   }
 
+  /**
+   * Get a snapshot of native service metrics
+   *
+   * Includes start-to-foreground latency, notification build time, loop tick
+   * lateness, headless task duration and notification update counters.
+   *
+   * @param reset Reset all metrics after taking the snapshot (default: false)
+   * @returns Metrics snapshot, or null on non-Android platforms
+   *
+   * @example
+   * ```typescript
+   * const metrics = await ForegroundService.get_metrics(true);
+   * telemetry.send('fgs_metrics', metrics);
+   * ```
+   */
+  static async get_metrics(reset: boolean = false): Promise<MetricsSnapshot | null> {
+    if (Platform.OS !== 'android') {
+      return null;
+    }
+
+    return (await NativeForegroundService.getMetrics(reset)) as MetricsSnapshot;
+  }
+
+  /**
+   * Set the native log level
+   *
+   * Messages below this level are dropped natively before any string is built.
+   *
+   * @param level Log level (default: 'warn', or the manifest meta-data value)
+   */
+  static set_log_level(level: LogLevel): void {
+    if (Platform.OS !== 'android') {
+      return;
+    }
+
+    NativeForegroundService.setLogLevel(level);
+  }
+
   /**
    * Listen for notification click events
    *
@@ -375,32 +667,86 @@ class ForegroundServiceManager {
     return () => subscription.remove();
   }
 
+  /**
+   * Listen for service lifecycle and task telemetry events
+   *
+   * Native emission is only enabled while at least one listener is registered.
+   * Events are delivered in batches (at most one batch per frame).
+   *
+   * @param callback Function called with each batch of events
+   * @returns Cleanup function to remove the listener
+   *
+   * @example
+   * ```typescript
+   * const cleanup = ForegroundService.serviceEventListener((events) => {
+   *   events.forEach((event) => {
+   *     if (event.type === 'tick') {
+   *       telemetry.record('tick_lateness', event.latenessMs);
+   *     }
+   *   });
+   * });
+   * ```
+   */
+  static serviceEventListener(callback: (events: ServiceEvent[]) => void): EventListenerCleanup {
+    const subscription = this.eventEmitter.addListener('foregroundServiceEvent', callback);
+
+    this.serviceEventListenerCount += 1;
+    if (this.serviceEventListenerCount === 1 && Platform.OS === 'android') {
+      NativeForegroundService.setServiceEventsEnabled(true);
+    }
+
+    let removed = false;
+    return () => {
+      if (removed) {
+        return;
+      }
+      removed = true;
+      subscription.remove();
+
+      this.serviceEventListenerCount -= 1;
+      if (this.serviceEventListenerCount === 0 && Platform.OS === 'android') {
+        NativeForegroundService.setServiceEventsEnabled(false);
+      }
+    };
+  }
+
   /**
    * Internal task runner - executes tasks at their scheduled times
+   *
+   * The native schedule sends the ids of the tasks due in this tick
+   * (`taskIds`), and exactly those run. Ticks without ids fall back to
+   * finding the due tasks of the session that sent the tick.
    * @private
    */
-  private static taskRunner = async (): Promise<void> => {
+  private static taskRunner = async (data?: {
+    session?: string;
+    taskIds?: string[];
+  }): Promise<void> => {
     try {
       if (!this.serviceRunning) {
         return;
       }
 
       const now = Date.now();
+      const taskIds = data?.taskIds ?? this.findDueTaskIds(data?.session ?? DEFAULT_SESSION, now);
       const promises: Promise<void>[] = [];
 
-      Object.entries(this.tasks).forEach(([taskId, task]) => {
-        if (now >= task.nextExecutionTime) {
-          promises.push(
-            Promise.resolve(task.task())
-              .then(() => task.onSuccess?.())
-              .catch((error) => task.onError?.(error))
-          );
-
-          if (task.onLoop) {
-            task.nextExecutionTime = now + task.delay;
-          } else {
-            delete this.tasks[taskId];
-          }
+      taskIds.forEach((taskId) => {
+        const task = this.tasks[taskId];
+        if (!task) {
+          // Removed after native sent the tick
+          return;
+        }
+        promises.push(
+          Promise.resolve(task.task())
+            .then(() => task.onSuccess?.())
+            .catch((error) => task.onError?.(error))
+        );
+
+        if (task.onLoop) {
+          task.nextExecutionTime = now + task.delay;
+        } else {
+          delete this.tasks[taskId];
         }
       });
 
@@ -410,6 +756,91 @@ class ForegroundServiceManager {
     }
   };
 
+  /**
+   * Ids of the due tasks of a session, for ticks that carry no task ids
+   * @private
+   */
+  private static findDueTaskIds(session: string, now: number): string[] {
+    return Object.keys(this.tasks).filter((taskId) => {
+      const task = this.tasks[taskId];
+      return (task.session ?? DEFAULT_SESSION) === session && now >= task.nextExecutionTime;
+    });
+  }
+
+  /**
+   * Add or replace a task in the native schedule that drives the task loops
+   * @private
+   */
+  private static scheduleNativeTask(task: Task): void {
+    if (Platform.OS !== 'android' || !task.taskId) {
+      return;
+    }
+
+    NativeForegroundService.scheduleTask({
+      taskId: task.taskId,
+      delay: task.delay,
+      ...(task.maxDelay !== undefined && { maxDelay: task.maxDelay }),
+      onLoop: task.onLoop,
+      ...(task.session !== undefined && { session: task.session }),
+      ...(task.throttle !== undefined && { throttle: task.throttle }),
+      ...(task.priority !== undefined && { priority: task.priority }),
+      ...(task.group !== undefined && { group: task.group }),
+    });
+  }
+
+  /**
+   * Remove the tasks of one session, or all tasks, in JS and native
+   * @private
+   */
+  private static clearTasks(session?: string): void {
+    if (session === undefined) {
+      this.tasks = {};
+    } else {
+      Object.entries(this.tasks).forEach(([taskId, task]) => {
+        if (task.session === session) {
+          delete this.tasks[taskId];
+        }
+      });
+    }
+
+    if (Platform.OS === 'android') {
+      NativeForegroundService.cancelTasks(session ?? null);
+    }
+  }
+
+  /**
+   * Default the service type before a start
+   *
+   * POST_NOTIFICATIONS and service type permissions are checked natively by
+   * startService against a cached snapshot, so no extra bridge call is made.
+   * @private
+   */
+  private static async checkStartConfig(config: StartServiceConfig): Promise<void> {
+    // Validate and set default service type for Android 14+
+    if (!config.serviceType) {
+      console.warn(
+        'Warning: serviceType not specified. Defaulting to "dataSync". ' +
+          'This is required for Android 14+.'
+      );
+      config.serviceType = 'dataSync';
+    }
+  }
+
+  /**
+   * Start the native loop that drives taskRunner
+   * @private
+   */
+  private static async startTaskRunner(session?: string): Promise<void> {
+    await NativeForegroundService.runTask({
+      taskName: 'myTaskName',
+      delay: this.samplingInterval,
+      loopDelay: this.samplingInterval,
+      onLoop: true,
+      batchTasks: true,
+      ...(session !== undefined && { session }),
+    });
+  }
+
   /**
    * Generate a random task ID
    * @private
@@ -420,6 +851,17 @@ class ForegroundServiceManager {
     return `task_${timestamp}_${randomPart}`;
   }
 
+  /**
+   * Convert one or more service types to the native '|'-separated form
+   * @private
+   */
+  private static toNativeServiceType(serviceType?: ServiceType | ServiceType[]): string {
+    if (Array.isArray(serviceType)) {
+      return serviceType.length > 0 ? serviceType.join('|') : 'dataSync';
+    }
+    return serviceType || 'dataSync';
+  }
+
   /**
    * Convert friendly API config to native format
    * @private
@@ -448,7 +890,12 @@ class ForegroundServiceManager {
       color: config.color,
       setOnlyAlertOnce: config.setOnlyAlertOnce !== false, // default true
       ongoing: config.ongoing || false,
-      serviceType: config.serviceType || 'dataSync',
+      serviceType: this.toNativeServiceType(config.serviceType),
+      ...(config.stopGraceMs !== undefined && { stopGraceMs: config.stopGraceMs }),
+      ...(config.prewarmReactContext !== undefined && {
+        prewarmReactContext: config.prewarmReactContext,
+      }),
+      ...(config.session !== undefined && { session: config.session }),
     };
   }
 }
@@ -6,14 +6,30 @@
 jest.mock('../../turbomodule-specs/NativeForegroundService', () => ({
   __esModule: true,
   default: {
-    startService: jest.fn(() => Promise.resolve()),
+    startService: jest.fn(() => Promise.resolve('lease-1')),
     stopService: jest.fn(() => Promise.resolve()),
+    releaseLease: jest.fn(() => Promise.resolve(true)),
+    getLeases: jest.fn(() => Promise.resolve([])),
+    retryDeferredStarts: jest.fn(() => Promise.resolve()),
+    stopSession: jest.fn(() => Promise.resolve()),
+    getSessions: jest.fn(() => Promise.resolve([])),
     stopServiceAll: jest.fn(() => Promise.resolve()),
     updateNotification: jest.fn(() => Promise.resolve()),
     isRunning: jest.fn(() => Promise.resolve(0)),
+    setServiceType: jest.fn(() => Promise.resolve()),
     runTask: jest.fn(() => Promise.resolve()),
+    scheduleTask: jest.fn(),
+    cancelTask: jest.fn(),
+    cancelTasks: jest.fn(),
+    setTaskClassLimits: jest.fn(),
+    setConcurrencyLimits: jest.fn(),
     cancelNotification: jest.fn(() => Promise.resolve()),
     checkPostNotificationsPermission: jest.fn(() => Promise.resolve(true)),
+    addListener: jest.fn(),
+    removeListeners: jest.fn(),
+    setServiceEventsEnabled: jest.fn(),
+    getMetrics: jest.fn(() => Promise.resolve({ counters: {}, histograms: {} })),
+    setLogLevel: jest.fn(),
     getConstants: jest.fn(() => ({
       MIN_SDK: 25,
       TARGET_SDK: 34,
@@ -34,7 +50,6 @@ describe('ForegroundServiceManager', () => {
     // Reset internal state
     (ForegroundServiceManager as any).tasks = {};
     (ForegroundServiceManager as any).serviceRunning = false;
-    (ForegroundServiceManager as any).serviceStarting = false;
   });
 
   afterEach(() => {
@@ -110,16 +125,16 @@ describe('ForegroundServiceManager', () => {
       );
     });
 
-    it('should check POST_NOTIFICATIONS permission', async () => {
+    it('should leave the POST_NOTIFICATIONS check to startService', async () => {
       await ForegroundServiceManager.start(basicConfig);
 
-      expect(NativeForegroundService.checkPostNotificationsPermission).toHaveBeenCalled();
+      expect(NativeForegroundService.checkPostNotificationsPermission).not.toHaveBeenCalled();
     });
 
     it('should throw error if POST_NOTIFICATIONS permission denied', async () => {
-      jest
-        .spyOn(NativeForegroundService, 'checkPostNotificationsPermission')
-        .mockResolvedValueOnce(false);
+      (NativeForegroundService.startService as jest.Mock).mockRejectedValueOnce(
+        new Error('POST_NOTIFICATIONS permission not granted')
+      );
 
       await expect(ForegroundServiceManager.start(basicConfig)).rejects.toThrow(
         'POST_NOTIFICATIONS permission not granted'
@@ -134,20 +149,29 @@ describe('ForegroundServiceManager', () => {
         delay: 500,
         loopDelay: 500,
         onLoop: true,
+        batchTasks: true,
       });
     });
 
-    it('should not start service again if already running', async () => {
-      // Mock isRunning to return 1 (service running) on second call
-      (NativeForegroundService.isRunning as jest.Mock)
-        .mockResolvedValueOnce(0) // First call - not running
-        .mockResolvedValueOnce(1); // Second call - already running
+    it('should ask native to reuse a running service', async () => {
+      await ForegroundServiceManager.start(basicConfig);
+
+      expect(NativeForegroundService.startService).toHaveBeenCalledWith(
+        expect.objectContaining({ reuseRunning: true })
+      );
+      expect(NativeForegroundService.isRunning).not.toHaveBeenCalled();
+    });
+
+    it('should not start task runner again if already running', async () => {
+      (NativeForegroundService.startService as jest.Mock)
+        .mockResolvedValueOnce('lease-1') // First call - started
+        .mockResolvedValueOnce(null); // Second call - already running
 
       await ForegroundServiceManager.start(basicConfig);
       await ForegroundServiceManager.start(basicConfig);
 
-      // Should only be called once
-      expect(NativeForegroundService.startService).toHaveBeenCalledTimes(1);
+      expect(NativeForegroundService.runTask).toHaveBeenCalledTimes(1);
+      expect(ForegroundServiceManager.is_running()).toBe(true);
       expect(console.log).toHaveBeenCalledWith('Foreground service is already running.');
     });
 
@@ -233,6 +257,53 @@ describe('ForegroundServiceManager', () => {
     });
   });
 
+  describe('set_service_type()', () => {
+    it('should pass a single type through', async () => {
+      await ForegroundServiceManager.set_service_type('location');
+
+      expect(NativeForegroundService.setServiceType).toHaveBeenCalledWith('location', null);
+    });
+
+    it('should combine several types', async () => {
+      await ForegroundServiceManager.set_service_type(['dataSync', 'location']);
+
+      expect(NativeForegroundService.setServiceType).toHaveBeenCalledWith('dataSync|location', null);
+    });
+
+    it('should pass the session to change', async () => {
+      await ForegroundServiceManager.set_service_type('mediaPlayback', 'playback');
+
+      expect(NativeForegroundService.setServiceType).toHaveBeenCalledWith(
+        'mediaPlayback',
+        'playback'
+      );
+    });
+
+    it('should combine types passed to start()', async () => {
+      await ForegroundServiceManager.start({
+        id: 1,
+        title: 'Test',
+        message: 'Test',
+        serviceType: ['mediaPlayback', 'dataSync'],
+      });
+
+      expect(NativeForegroundService.startService).toHaveBeenCalledWith(
+        expect.objectContaining({ serviceType: 'mediaPlayback|dataSync' })
+      );
+    });
+
+    it('should do nothing on iOS', async () => {
+      (Platform as any).OS = 'ios';
+
+      await ForegroundServiceManager.set_service_type('location');
+
+      expect(NativeForegroundService.setServiceType).not.toHaveBeenCalled();
+
+      // Reset
+      (Platform as any).OS = 'android';
+    });
+  });
+
   describe('stop()', () => {
     it('should stop service', async () => {
       await ForegroundServiceManager.stop();
@@ -290,6 +361,164 @@ describe('ForegroundServiceManager', () => {
     });
   });
 
+  describe('acquire() / release()', () => {
+    const leaseConfig: StartServiceConfig = {
+      id: 1,
+      title: 'Upload',
+      message: 'Uploading',
+      serviceType: 'dataSync',
+    };
+
+    it('should return the native lease id', async () => {
+      const leaseId = await ForegroundServiceManager.acquire(leaseConfig, {
+        name: 'upload',
+        timeoutMs: 60000,
+      });
+
+      expect(leaseId).toBe('lease-1');
+      expect(NativeForegroundService.startService).toHaveBeenCalledWith(
+        expect.objectContaining({ leaseName: 'upload', leaseTimeoutMs: 60000 })
+      );
+      expect(NativeForegroundService.startService).not.toHaveBeenCalledWith(
+        expect.objectContaining({ reuseRunning: true })
+      );
+    });
+
+    it('should start task runner only for the first lease', async () => {
+      (NativeForegroundService.startService as jest.Mock)
+        .mockResolvedValueOnce('lease-1')
+        .mockResolvedValueOnce('lease-2');
+
+      const first = await ForegroundServiceManager.acquire(leaseConfig, { name: 'upload' });
+      const second = await ForegroundServiceManager.acquire(leaseConfig, { name: 'audio' });
+
+      expect(first).not.toBe(second);
+      expect(NativeForegroundService.runTask).toHaveBeenCalledTimes(1);
+    });
+
+    it('should release a lease', async () => {
+      const released = await ForegroundServiceManager.release('lease-1');
+
+      expect(released).toBe(true);
+      expect(NativeForegroundService.releaseLease).toHaveBeenCalledWith('lease-1');
+    });
+
+    it('should report a second release as not held', async () => {
+      (NativeForegroundService.releaseLease as jest.Mock)
+        .mockResolvedValueOnce(true)
+        .mockResolvedValueOnce(false);
+      await ForegroundServiceManager.acquire(leaseConfig);
+
+      expect(await ForegroundServiceManager.release('lease-1')).toBe(true);
+      expect(await ForegroundServiceManager.release('lease-1')).toBe(false);
+      expect(NativeForegroundService.isRunning).toHaveBeenCalledTimes(1);
+    });
+
+    it('should ignore a null lease', async () => {
+      expect(await ForegroundServiceManager.release(null)).toBe(false);
+      expect(NativeForegroundService.releaseLease).not.toHaveBeenCalled();
+    });
+
+    it('should mark service stopped when the last lease is released', async () => {
+      await ForegroundServiceManager.acquire(leaseConfig);
+      expect(ForegroundServiceManager.is_running()).toBe(true);
+
+      await ForegroundServiceManager.release('lease-1');
+
+      expect(ForegroundServiceManager.is_running()).toBe(false);
+    });
+
+    it('should return held leases', async () => {
+      const lease = { id: 'lease-1', name: 'upload', heldMs: 10, timeoutMs: 0, remainingMs: -1 };
+      (NativeForegroundService.getLeases as jest.Mock).mockResolvedValueOnce([lease]);
+
+      expect(await ForegroundServiceManager.get_leases()).toEqual([lease]);
+    });
+
+    it('should do nothing on iOS', async () => {
+      (Platform as any).OS = 'ios';
+
+      expect(await ForegroundServiceManager.acquire(leaseConfig)).toBeNull();
+      expect(await ForegroundServiceManager.get_leases()).toEqual([]);
+      expect(NativeForegroundService.startService).not.toHaveBeenCalled();
+
+      // Reset
+      (Platform as any).OS = 'android';
+    });
+  });
+
+  describe('retry_deferred_starts()', () => {
+    it('should ask native to retry deferred starts', async () => {
+      await ForegroundServiceManager.retry_deferred_starts();
+
+      expect(NativeForegroundService.retryDeferredStarts).toHaveBeenCalled();
+    });
+  });
+
+  describe('start_session() / stop_session()', () => {
+    const sessionConfig: StartServiceConfig = {
+      id: 2,
+      title: 'Sync',
+      message: 'Syncing',
+      serviceType: 'dataSync',
+    };
+
+    it('should start the session with its own task loop', async () => {
+      await ForegroundServiceManager.start_session('sync', sessionConfig);
+
+      expect(NativeForegroundService.startService).toHaveBeenCalledWith(
+        expect.objectContaining({ id: 2, session: 'sync' })
+      );
+      expect(NativeForegroundService.runTask).toHaveBeenCalledWith(
+        expect.objectContaining({ onLoop: true, session: 'sync' })
+      );
+    });
+
+    it('should not start a second loop for a running session', async () => {
+      (NativeForegroundService.startService as jest.Mock).mockResolvedValueOnce(null);
+
+      await ForegroundServiceManager.start_session('sync', sessionConfig);
+
+      expect(NativeForegroundService.runTask).not.toHaveBeenCalled();
+    });
+
+    it('should only run the tasks of the ticking session', async () => {
+      const syncTask = jest.fn();
+      const defaultTask = jest.fn();
+      await ForegroundServiceManager.start_session('sync', sessionConfig);
+      ForegroundServiceManager.add_task(syncTask, { taskId: 'sync-task', session: 'sync' });
+      ForegroundServiceManager.add_task(defaultTask, { taskId: 'default-task' });
+
+      const taskRunner = (ForegroundServiceManager as any).taskRunner;
+      await taskRunner({ session: 'sync' });
+
+      expect(syncTask).toHaveBeenCalled();
+      expect(defaultTask).not.toHaveBeenCalled();
+    });
+
+    it('should remove the tasks of a stopped session', async () => {
+      (NativeForegroundService.isRunning as jest.Mock).mockResolvedValueOnce(1);
+      await ForegroundServiceManager.start_session('sync', sessionConfig);
+      ForegroundServiceManager.add_task(jest.fn(), { taskId: 'sync-task', session: 'sync' });
+      ForegroundServiceManager.add_task(jest.fn(), { taskId: 'default-task' });
+
+      await ForegroundServiceManager.stop_session('sync');
+
+      expect(NativeForegroundService.stopSession).toHaveBeenCalledWith('sync');
+      expect(NativeForegroundService.cancelTasks).toHaveBeenCalledWith('sync');
+      expect(ForegroundServiceManager.get_task('sync-task')).toBeUndefined();
+      expect(ForegroundServiceManager.get_task('default-task')).toBeDefined();
+      expect(ForegroundServiceManager.is_running()).toBe(true);
+    });
+
+    it('should return active sessions', async () => {
+      const session = { name: 'sync', notificationId: 2, serviceType: 'dataSync', foreground: true };
+      (NativeForegroundService.getSessions as jest.Mock).mockResolvedValueOnce([session]);
+
+      expect(await ForegroundServiceManager.get_sessions()).toEqual([session]);
+    });
+  });
+
   describe('is_running()', () => {
     it('should return false initially', () => {
       expect(ForegroundServiceManager.is_running()).toBe(false);
@@ -365,6 +594,66 @@ describe('ForegroundServiceManager', () => {
         expect(task?.delay).toBe(5500); // Math.ceil(5234/500) * 500
       });
 
+      it('should pass the throttle rule to the native schedule', () => {
+        ForegroundServiceManager.add_task(jest.fn(), {
+          taskId: 'analytics',
+          delay: 2000,
+          throttle: 'pause',
+        });
+
+        expect(NativeForegroundService.scheduleTask).toHaveBeenCalledWith({
+          taskId: 'analytics',
+          delay: 2000,
+          onLoop: true,
+          throttle: 'pause',
+        });
+      });
+
+      it('should pass the priority class to the native schedule', () => {
+        ForegroundServiceManager.add_task(jest.fn(), {
+          taskId: 'location',
+          delay: 1000,
+          priority: 'critical',
+        });
+
+        expect(NativeForegroundService.scheduleTask).toHaveBeenCalledWith({
+          taskId: 'location',
+          delay: 1000,
+          onLoop: true,
+          priority: 'critical',
+        });
+      });
+
+      it('should pass the concurrency group to the native schedule', () => {
+        ForegroundServiceManager.add_task(jest.fn(), {
+          taskId: 'upload',
+          delay: 1000,
+          group: 'network',
+        });
+
+        expect(NativeForegroundService.scheduleTask).toHaveBeenCalledWith({
+          taskId: 'upload',
+          delay: 1000,
+          onLoop: true,
+          group: 'network',
+        });
+      });
+
+      it('should pass an elastic period to the native schedule', () => {
+        ForegroundServiceManager.add_task(jest.fn(), {
+          taskId: 'sync',
+          delay: 5000,
+          maxDelay: 60000,
+        });
+
+        expect(NativeForegroundService.scheduleTask).toHaveBeenCalledWith({
+          taskId: 'sync',
+          delay: 5000,
+          maxDelay: 60000,
+          onLoop: true,
+        });
+      });
+
       it('should set onLoop to true by default', () => {
         const mockTask = jest.fn();
 
@@ -438,6 +727,41 @@ describe('ForegroundServiceManager', () => {
           ForegroundServiceManager.remove_task('non-existent');
         }).not.toThrow();
       });
+
+      it('should remove the task from the native schedule', () => {
+        ForegroundServiceManager.add_task(jest.fn(), { taskId: 'test-task', delay: 1200 });
+
+        expect(NativeForegroundService.scheduleTask).toHaveBeenCalledWith({
+          taskId: 'test-task',
+          delay: 1500,
+          onLoop: true,
+        });
+
+        ForegroundServiceManager.remove_task('test-task');
+        expect(NativeForegroundService.cancelTask).toHaveBeenCalledWith('test-task');
+      });
+    });
+
+    describe('set_task_limits()', () => {
+      it('should set native class limits with defaults for missing classes', () => {
+        ForegroundServiceManager.set_task_limits({ normal: 4 });
+
+        expect(NativeForegroundService.setTaskClassLimits).toHaveBeenCalledWith(0, 4, 2);
+      });
+    });
+
+    describe('set_concurrency_limits()', () => {
+      it('should set the native global and group limits', () => {
+        ForegroundServiceManager.set_concurrency_limits({ maxConcurrent: 4, groups: { network: 2 } });
+
+        expect(NativeForegroundService.setConcurrencyLimits).toHaveBeenCalledWith(4, { network: 2 });
+      });
+
+      it('should default to no limits', () => {
+        ForegroundServiceManager.set_concurrency_limits({});
+
+        expect(NativeForegroundService.setConcurrencyLimits).toHaveBeenCalledWith(0, {});
+      });
     });
 
     describe('is_task_running()', () => {
@@ -508,10 +832,36 @@ describe('ForegroundServiceManager', () => {
 
         const tasks = ForegroundServiceManager.get_all_tasks();
         expect(Object.keys(tasks)).toHaveLength(0);
+        expect(NativeForegroundService.cancelTasks).toHaveBeenCalledWith(null);
       });
     });
 
     describe('taskRunner()', () => {
+      it('should run exactly the task ids sent by native', async () => {
+        const dueTask = jest.fn();
+        const otherTask = jest.fn();
+        const onceTask = jest.fn();
+
+        await ForegroundServiceManager.start({
+          id: 1,
+          title: 'Test',
+          message: 'Test',
+          serviceType: 'dataSync',
+        });
+
+        ForegroundServiceManager.add_task(dueTask, { taskId: 'due-task' });
+        ForegroundServiceManager.add_task(otherTask, { taskId: 'other-task' });
+        ForegroundServiceManager.add_task(onceTask, { taskId: 'once-task', onLoop: false });
+
+        const taskRunner = (ForegroundServiceManager as any).taskRunner;
+        await taskRunner({ taskIds: ['due-task', 'once-task', 'removed-task'] });
+
+        expect(dueTask).toHaveBeenCalledTimes(1);
+        expect(onceTask).toHaveBeenCalledTimes(1);
+        expect(otherTask).not.toHaveBeenCalled();
+        expect(ForegroundServiceManager.is_task_running('once-task')).toBe(false);
+      });
+
       it('should execute task when time is reached', async () => {
         const mockTask = jest.fn().mockResolvedValue(undefined);
 
@@ -728,7 +1078,85 @@ describe('ForegroundServiceManager', () => {
     });
   });
 
+  describe('get_metrics()', () => {
+    it('should request a snapshot without reset by default', async () => {
+      await ForegroundServiceManager.get_metrics();
+
+      expect(NativeForegroundService.getMetrics).toHaveBeenCalledWith(false);
+    });
+
+    it('should pass reset flag to native', async () => {
+      const metrics = await ForegroundServiceManager.get_metrics(true);
+
+      expect(NativeForegroundService.getMetrics).toHaveBeenCalledWith(true);
+      expect(metrics).toEqual({ counters: {}, histograms: {} });
+    });
+  });
+
+  describe('serviceEventListener()', () => {
+    beforeEach(() => {
+      (ForegroundServiceManager as any).serviceEventListenerCount = 0;
+    });
+
+    it('should enable native service events for the first listener only', () => {
+      const cleanup1 = ForegroundServiceManager.serviceEventListener(jest.fn());
+      const cleanup2 = ForegroundServiceManager.serviceEventListener(jest.fn());
+
+      expect(NativeForegroundService.setServiceEventsEnabled).toHaveBeenCalledTimes(1);
+      expect(NativeForegroundService.setServiceEventsEnabled).toHaveBeenCalledWith(true);
+
+      cleanup1();
+      cleanup2();
+    });
+
+    it('should disable native service events when the last listener is removed', () => {
+      const cleanup1 = ForegroundServiceManager.serviceEventListener(jest.fn());
+      const cleanup2 = ForegroundServiceManager.serviceEventListener(jest.fn());
+
+      cleanup1();
+      cleanup1(); // Idempotent
+      expect(NativeForegroundService.setServiceEventsEnabled).not.toHaveBeenCalledWith(false);
+
+      cleanup2();
+      expect(NativeForegroundService.setServiceEventsEnabled).toHaveBeenLastCalledWith(false);
+    });
+  });
+
   describe('Config Conversion', () => {
+    it('should pass stopGraceMs only when set', async () => {
+      await ForegroundServiceManager.start({
+        id: 1,
+        message: 'Test',
+        serviceType: 'dataSync',
+        stopGraceMs: 5000,
+      });
+      await ForegroundServiceManager.update({ id: 1, message: 'Test' });
+
+      expect(NativeForegroundService.startService).toHaveBeenCalledWith(
+        expect.objectContaining({ stopGraceMs: 5000 })
+      );
+      expect(
+        (NativeForegroundService.updateNotification as jest.Mock).mock.calls[0][0]
+      ).not.toHaveProperty('stopGraceMs');
+    });
+
+    it('should pass prewarmReactContext only when set', async () => {
+      await ForegroundServiceManager.start({
+        id: 1,
+        message: 'Test',
+        serviceType: 'dataSync',
+        prewarmReactContext: true,
+      });
+      await ForegroundServiceManager.update({ id: 1, message: 'Test' });
+
+      expect(NativeForegroundService.startService).toHaveBeenCalledWith(
+        expect.objectContaining({ prewarmReactContext: true })
+      );
+      expect(
+        (NativeForegroundService.updateNotification as jest.Mock).mock.calls[0][0]
+      ).not.toHaveProperty('prewarmReactContext');
+    });
+
     it('should use title from config', async () => {
       await ForegroundServiceManager.start({
         id: 1,
@@ -20,16 +20,29 @@ export const {
   register,
   start,
   update,
+  set_service_type,
   stop,
   stopAll,
+  acquire,
+  release,
+  get_leases,
+  retry_deferred_starts,
+  start_session,
+  stop_session,
+  get_sessions,
   is_running,
   add_task,
   update_task,
   remove_task,
   is_task_running,
   remove_all_tasks,
+  set_task_limits,
+  set_concurrency_limits,
   get_task,
   get_all_tasks,
   cancel_notification,
+  get_metrics,
+  set_log_level,
   eventListener,
+  serviceEventListener,
 } = ForegroundServiceManager;
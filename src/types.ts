@@ -3,6 +3,11 @@
  */
 export type ServiceType = 'dataSync' | 'location' | 'mediaPlayback';
 
+/**
+ * Native log levels
+ */
+export type LogLevel = 'verbose' | 'debug' | 'info' | 'warn' | 'error' | 'none';
+
 /**
  * Notification visibility levels
  */
@@ -144,9 +149,36 @@ export interface StartServiceConfig {
    * - 'location': For location tracking (requires FOREGROUND_SERVICE_LOCATION permission)
    * - 'mediaPlayback': For media playback (requires FOREGROUND_SERVICE_MEDIA_PLAYBACK permission)
    *
+   * Pass an array to run with several types at once, e.g. ['dataSync', 'location'].
+   *
    * @default 'dataSync'
    */
-  serviceType?: ServiceType;
+  serviceType?: ServiceType | ServiceType[];
+
+  /**
+   * Keep the service in the foreground for this many milliseconds after the
+   * last stop. A start within this window reuses the running service and
+   * its notification instead of creating them again.
+   * @default 0, or the com.kirenpaul.foregroundservice.stop_grace_ms meta-data
+   */
+  stopGraceMs?: number;
+
+  /**
+   * Create the React context for headless tasks as soon as a task is
+   * scheduled, ahead of the first tick, and keep it until memory pressure.
+   * Avoids a multi-second first tick when the service runs without the app UI.
+   * @default false, or the com.kirenpaul.foregroundservice.prewarm_react_context meta-data
+   */
+  prewarmReactContext?: boolean;
+
+  /**
+   * Named session to start or update (see start_session())
+   *
+   * Sessions share the one foreground service; each has its own
+   * notification and task set, and the service runs with the combined
+   * service type of all sessions.
+   */
+  session?: string;
 }
 
 /**
@@ -159,6 +191,14 @@ export interface TaskOptions {
    */
   delay?: number;
 
+  /**
+   * Longest delay between runs, making the period elastic: the service runs
+   * the task every `delay` while charging, every `maxDelay` in battery saver
+   * or at 15% battery and below, and in between as the battery drains
+   * @default delay (fixed period)
+   */
+  maxDelay?: number;
+
   /**
    * Whether task should repeat
    * @default true
@@ -171,6 +211,38 @@ export interface TaskOptions {
    */
   taskId?: string;
 
+  /**
+   * Session whose task loop runs this task (see start_session())
+   * @default the default session, driven by start()/acquire()
+   */
+  session?: string;
+
+  /**
+   * What happens to the task while the device is thermally throttled:
+   * - 'stretch': runs 2x/4x/8x less often at moderate/severe/critical levels
+   * - 'pause': does not run until throttling ends, nor under memory pressure
+   *   (for low-priority work)
+   * - 'none': keeps its period (for safety-critical work)
+   * @default 'stretch'
+   */
+  throttle?: TaskThrottleRule;
+
+  /**
+   * Priority class. Each tick dispatches due critical tasks first, then
+   * normal, then background ones, each class up to its limit (see
+   * set_task_limits()). Background tasks also wait, for up to 30 seconds,
+   * while the previous tick's tasks are still running.
+   * @default 'normal'
+   */
+  priority?: TaskPriority;
+
+  /**
+   * Concurrency group. At most the group's limit of tasks in the group
+   * (see set_concurrency_limits()) run at the same time; due tasks over the
+   * limit wait, oldest first, until a run finishes.
+   */
+  group?: string;
+
   /**
    * Callback called when task completes successfully
    */
@@ -182,6 +254,65 @@ export interface TaskOptions {
   onError?: (error: Error) => void;
 }
 
+/**
+ * Task behaviour under thermal throttling (see TaskOptions.throttle)
+ */
+export type TaskThrottleRule = 'stretch' | 'pause' | 'none';
+
+/**
+ * Task priority class (see TaskOptions.priority)
+ */
+export type TaskPriority = 'critical' | 'normal' | 'background';
+
+/**
+ * Limits on scheduled task runs in flight at the same time (0 = no limit)
+ */
+export interface ConcurrencyLimits {
+  /**
+   * Limit across all tasks
+   * @default 0
+   */
+  maxConcurrent?: number;
+
+  /**
+   * Limit per task group (see TaskOptions.group)
+   */
+  groups?: { [group: string]: number };
+}
+
+/**
+ * Per-tick dispatch limits of the task priority classes (0 = no limit)
+ */
+export interface TaskClassLimits {
+  /**
+   * @default 0
+   */
+  critical?: number;
+
+  /**
+   * @default 0
+   */
+  normal?: number;
+
+  /**
+   * @default 2
+   */
+  background?: number;
+}
+
+/**
+ * Thermal throttle level: 0 none, 1 moderate, 2 severe, 3 critical
+ */
+export type ThrottleLevel = 0 | 1 | 2 | 3;
+
+/**
+ * Load shedding tier of a 'memoryTrim' event, each including the ones before it:
+ * - 'moderate': notification caches dropped
+ * - 'low': low-priority ('pause') tasks paused, idle prewarmed React context released
+ * - 'critical': native event queue shrunk
+ */
+export type MemoryTier = 'moderate' | 'low' | 'critical';
+
 /**
  * Internal task representation
  * @internal
@@ -225,6 +356,409 @@ export interface NotificationClickEvent {
   button2?: string;
 }
 
+/**
+ * Service lifecycle and task telemetry event types
+ */
+export type ServiceEventType =
+  | 'started'
+  | 'stopped'
+  | 'tick'
+  | 'taskDropped'
+  | 'restarted'
+  | 'restored'
+  | 'leaseExpired'
+  | 'serviceTypeChanged'
+  | 'throttleChanged'
+  | 'memoryTrim';
+
+/**
+ * Service lifecycle or task telemetry event emitted by the native service
+ */
+export interface ServiceEvent {
+  /**
+   * Event type
+   */
+  type: ServiceEventType;
+
+  /**
+   * Monotonic timestamp in milliseconds (Android SystemClock.elapsedRealtime)
+   */
+  timestamp: number;
+
+  /**
+   * Notification ID ('started')
+   */
+  notificationId?: number;
+
+  /**
+   * Foreground service type, '|'-separated when combined ('started', 'serviceTypeChanged')
+   */
+  serviceType?: string;
+
+  /**
+   * Native start counter after the event ('started', 'restored')
+   */
+  running?: number;
+
+  /**
+   * Sessions brought back after process death ('restored')
+   */
+  sessions?: number;
+
+  /**
+   * Whether the stop was forced via stopAll ('stopped')
+   */
+  forced?: boolean;
+
+  /**
+   * Headless task name ('tick', 'taskDropped')
+   */
+  taskName?: string;
+
+  /**
+   * How late the loop tick fired, in milliseconds ('tick')
+   */
+  latenessMs?: number;
+
+  /**
+   * Why the task was dropped ('taskDropped')
+   */
+  reason?: string;
+
+  /**
+   * Intent action that was redelivered ('restarted')
+   */
+  action?: string;
+
+  /**
+   * true if the OS redelivered the intent, false if it retried ('restarted')
+   */
+  redelivery?: boolean;
+
+  /**
+   * Lease that expired ('leaseExpired')
+   */
+  leaseId?: string;
+
+  /**
+   * Lease name, if one was given ('leaseExpired')
+   */
+  name?: string;
+
+  /**
+   * How long the lease was held, in milliseconds ('leaseExpired')
+   */
+  heldMs?: number;
+
+  /**
+   * Thermal throttle level ('throttleChanged'): 0 none, 1 moderate, 2 severe, 3 critical
+   */
+  throttleLevel?: ThrottleLevel;
+
+  /**
+   * Android PowerManager.THERMAL_STATUS_* value behind the level ('throttleChanged')
+   */
+  thermalStatus?: number;
+
+  /**
+   * How much load the service shed ('memoryTrim'); shed your own state accordingly
+   */
+  memoryTier?: MemoryTier;
+
+  /**
+   * Android ComponentCallbacks2.TRIM_MEMORY_* level behind the tier ('memoryTrim')
+   */
+  trimLevel?: number;
+}
+
+/**
+ * Options for acquire()
+ */
+export interface LeaseOptions {
+  /**
+   * Holder name shown by get_leases(), e.g. 'upload' or 'navigation'
+   */
+  name?: string;
+
+  /**
+   * Release the lease automatically after this many milliseconds
+   * (guards against holders that never call release())
+   */
+  timeoutMs?: number;
+}
+
+/**
+ * A start lease keeping the foreground service alive
+ */
+export interface ServiceLease {
+  /**
+   * Opaque lease id returned by acquire()
+   */
+  id: string;
+
+  /**
+   * Holder name, if one was given
+   */
+  name?: string | null;
+
+  /**
+   * How long the lease has been held, in milliseconds
+   */
+  heldMs: number;
+
+  /**
+   * Lease timeout in milliseconds (0 if none)
+   */
+  timeoutMs: number;
+
+  /**
+   * Milliseconds until the lease expires (-1 if it has no timeout)
+   */
+  remainingMs: number;
+}
+
+/**
+ * A foreground session of the running service
+ */
+export interface ServiceSession {
+  /**
+   * Session name ('default' for start()/acquire())
+   */
+  name: string;
+
+  /**
+   * Notification id of the session
+   */
+  notificationId: number;
+
+  /**
+   * Service type of the session (several combined as 'dataSync|location')
+   */
+  serviceType: string;
+
+  /**
+   * Whether the session's notification backs the foreground service
+   */
+  foreground: boolean;
+}
+
+/**
+ * Latency histogram summary (all durations in milliseconds)
+ */
+export interface HistogramSnapshot {
+  count: number;
+  meanMs: number;
+  maxMs: number;
+  p50Ms: number;
+  p90Ms: number;
+  p99Ms: number;
+}
+
+/**
+ * Snapshot of native service metrics returned by get_metrics()
+ */
+export interface MetricsSnapshot {
+  counters: {
+    serviceStarts: number;
+    serviceStartFailures: number;
+    notificationUpdateRequests: number;
+    notifyCalls: number;
+    /**
+     * Share of notification update requests that did not result in a notify() call
+     */
+    notifyCoalescingRate: number;
+    ticks: number;
+    tasksDropped: number;
+    serviceRestarts: number;
+    leasesExpired: number;
+    /**
+     * Lease releases ignored because the lease was already released
+     */
+    leaseDuplicateReleases: number;
+    leasesHeld: number;
+    /**
+     * Starts that arrived during the stop grace period
+     */
+    stopGraceReuses: number;
+    /**
+     * Starts that reused the previously built notification
+     */
+    notificationReuses: number;
+    serviceTypeChanges: number;
+    serviceTypeChangeFailures: number;
+    /**
+     * Permission lookups that missed the cached snapshot (checkSelfPermission calls)
+     */
+    permissionChecks: number;
+    /**
+     * Starts refused in the background and deferred for retry (Android 12+)
+     */
+    deferredStarts: number;
+    deferredStartRetries: number;
+    deferredStartSuccesses: number;
+    /**
+     * Deferred starts that gave up or were cancelled
+     */
+    deferredStartFailures: number;
+    /**
+     * Cold starts that went foreground with a placeholder notification first
+     */
+    placeholderNotifications: number;
+    /**
+     * Service state snapshots written to disk (saves made while a write is
+     * queued coalesce into one write)
+     */
+    stateWrites: number;
+    /**
+     * Times the service restored its saved state after process death
+     */
+    stateRestores: number;
+    /**
+     * Headless task dispatches that had to wait for the React context to be created
+     */
+    headlessColdDispatches: number;
+    /**
+     * Headless task dispatches that found the React context ready
+     */
+    headlessWarmDispatches: number;
+    /**
+     * React contexts created ahead of time by prewarmReactContext
+     */
+    reactContextPrewarms: number;
+    /**
+     * Idle prewarmed React contexts destroyed under memory pressure
+     */
+    reactContextReleases: number;
+    /**
+     * Ticks that sent a batch of due task ids to JS in one headless invocation
+     */
+    batchedDispatches: number;
+    /**
+     * Task runs sent in batches (batchedTasks / batchedDispatches = tasks per batch)
+     */
+    batchedTasks: number;
+    /**
+     * Ticks with no task due, which started no headless invocation
+     */
+    idleTicks: number;
+    /**
+     * Alarms set for long-period tasks (one pending at a time)
+     */
+    taskAlarmsSet: number;
+    /**
+     * Alarm wakeups that ran long-period tasks
+     */
+    taskAlarmWakeups: number;
+    /**
+     * Tasks run by alarm wakeups (taskAlarmTasks / taskAlarmWakeups = tasks per wakeup)
+     */
+    taskAlarmTasks: number;
+    /**
+     * Effective task loop interval: the shortest time a loop sleeps before
+     * its pending tick, the later of the next due task and loopDelay after
+     * the last tick (0 if no loop has a tick pending). Not reset.
+     */
+    tickIntervalMs: number;
+    /**
+     * Thermal throttle level changes
+     */
+    thermalThrottleChanges: number;
+    /**
+     * Notification updates held back while throttled (only the newest held one is posted)
+     */
+    throttledNotificationUpdates: number;
+    /**
+     * Current thermal throttle level (not reset)
+     */
+    thermalThrottleLevel: ThrottleLevel;
+    /**
+     * Power state changes that moved elastic task periods
+     */
+    powerPolicyChanges: number;
+    /**
+     * Where elastic tasks currently run in their period range: 0 = delay
+     * (charging), 100 = maxDelay (battery saver or low battery). Not reset.
+     */
+    elasticPercent: number;
+    /**
+     * onTrimMemory calls at the 'moderate' tier (RUNNING_MODERATE, BACKGROUND)
+     */
+    memoryTrimsModerate: number;
+    /**
+     * onTrimMemory calls at the 'low' tier (RUNNING_LOW, MODERATE)
+     */
+    memoryTrimsLow: number;
+    /**
+     * onTrimMemory calls at the 'critical' tier (RUNNING_CRITICAL, COMPLETE)
+     */
+    memoryTrimsCritical: number;
+    /**
+     * Due tasks held for a later tick because their priority class reached its limit
+     */
+    tasksQueued: number;
+    /**
+     * Due background tasks held back because the previous tick's tasks were still running
+     */
+    backgroundDeferrals: number;
+    /**
+     * Due tasks held because a concurrency limit was reached (counted once per wait)
+     */
+    concurrencyHeld: number;
+    /**
+     * Concurrency permits taken back because their headless task never finished
+     */
+    permitsExpired: number;
+    /**
+     * Scheduled task runs currently holding a concurrency permit (not reset)
+     */
+    tasksInFlight: number;
+    /**
+     * Due tasks waiting for a concurrency permit at the last tick (not reset)
+     */
+    concurrencyQueueDepth: number;
+  };
+  histograms: {
+    /**
+     * Time from the startService() call to startForeground()
+     */
+    startToForeground: HistogramSnapshot;
+    /**
+     * Time from the startService() call to startForeground() when the
+     * service was not yet in the foreground (the deadline-bound path)
+     */
+    coldStartToForeground: HistogramSnapshot;
+    buildNotification: HistogramSnapshot;
+    tickLateness: HistogramSnapshot;
+    headlessTaskDuration: HistogramSnapshot;
+    /**
+     * Time from native dispatch to the headless task starting, when the
+     * React context had to be created first
+     */
+    headlessColdDispatch: HistogramSnapshot;
+    /**
+     * Time from native dispatch to the headless task starting, with the
+     * React context ready
+     */
+    headlessWarmDispatch: HistogramSnapshot;
+    /**
+     * Time from a critical task coming due to its dispatch
+     */
+    taskDelayCritical: HistogramSnapshot;
+    /**
+     * Time from a normal task coming due to its dispatch
+     */
+    taskDelayNormal: HistogramSnapshot;
+    /**
+     * Time from a background task coming due to its dispatch (includes deferral under load)
+     */
+    taskDelayBackground: HistogramSnapshot;
+    /**
+     * Time a due task waited for a concurrency permit (only tasks that were held)
+     */
+    concurrencyWait: HistogramSnapshot;
+  };
+}
+
 /**
  * Event listener cleanup function
  */
@@ -30,9 +30,60 @@ export interface NotificationConfig {
   /**
    * Service type for Android 14+ (API 34+)
    * Required for Android 14 and above
+   * 'dataSync', 'location' or 'mediaPlayback', or several combined as 'dataSync|location'
    * @default 'dataSync'
    */
-  serviceType?: 'dataSync' | 'location' | 'mediaPlayback';
+  serviceType?: string;
+  /**
+   * Do not dispatch a new start if the service is already starting or running.
+   * The check and the start are one atomic native state transition.
+   * @default false
+   */
+  reuseRunning?: boolean;
+  /**
+   * Name of the start lease, shown by getLeases()
+   */
+  leaseName?: string;
+  /**
+   * Release the start lease automatically after this many milliseconds
+   */
+  leaseTimeoutMs?: number;
+  /**
+   * Keep the service in the foreground this long after the last stop
+   * @default 0
+   */
+  stopGraceMs?: number;
+  /**
+   * Create the React context for headless tasks ahead of the first tick
+   * @default false
+   */
+  prewarmReactContext?: boolean;
+  /**
+   * Named session to start or update; sessions share the service, each with
+   * its own notification and task loop
+   */
+  session?: string;
+}
+
+/**
+ * A start lease keeping the service alive
+ */
+export interface Lease {
+  id: string;
+  name?: string | null;
+  heldMs: number;
+  timeoutMs: number;
+  remainingMs: number;
+}
+
+/**
+ * A foreground session of the running service
+ */
+export interface Session {
+  name: string;
+  notificationId: number;
+  serviceType: string;
+  foreground: boolean;
 }
 
 /**
@@ -42,12 +93,67 @@ export interface TaskConfig {
   taskName: string;
   delay: number;
   loopDelay?: number;
+  /**
+   * Longest loop delay the power policy may stretch loopDelay to, e.g. on
+   * battery saver (elastic period)
+   * @default loopDelay
+   */
+  maxLoopDelay?: number;
   onLoop?: boolean;
   /**
    * Task timeout in milliseconds
    * @default 60000 (60 seconds)
    */
   timeout?: number;
+  /**
+   * Session whose task loop this is
+   * @default 'default'
+   */
+  session?: string;
+  /**
+   * Send the ids of the session's due tasks (see scheduleTask) with each
+   * tick, and skip ticks with nothing due
+   * @default false
+   */
+  batchTasks?: boolean;
+}
+
+/**
+ * A JS task in the native task schedule
+ */
+export interface ScheduledTask {
+  taskId: string;
+  /**
+   * Time between runs in milliseconds
+   */
+  delay: number;
+  /**
+   * Longest time between runs the power policy may stretch delay to
+   * @default delay
+   */
+  maxDelay?: number;
+  /**
+   * @default true
+   */
+  onLoop?: boolean;
+  /**
+   * @default 'default'
+   */
+  session?: string;
+  /**
+   * Rule under thermal throttling: 'stretch', 'pause' or 'none'
+   * @default 'stretch'
+   */
+  throttle?: string;
+  /**
+   * Priority class: 'critical', 'normal' or 'background'
+   * @default 'normal'
+   */
+  priority?: string;
+  /**
+   * Concurrency group whose limit applies to the task
+   */
+  group?: string;
 }
 
 /**
@@ -64,9 +170,19 @@ export interface Spec extends TurboModule {
    * Start the foreground service with a notification
    *
    * @param config Notification configuration
-   * @returns Promise that resolves when service starts successfully
+   * @returns Promise that resolves to the start's lease id, or null when
+   * `reuseRunning` is set and the service was already active, or when the
+   * named `session` was already running (its notification is updated instead)
    * @throws Error if configuration is invalid or permissions are missing
    *
+   * @note On Android 12+, a start refused because the app is in the background
+   * is deferred: the promise stays pending while the start is retried with
+   * backoff and on app resume, and rejects with ERROR_START_NOT_ALLOWED if no
+   * retry succeeds. Releasing the lease cancels the deferred start
+   *
+   * @note Before lease handles, this promise resolved to nothing; it now
+   * resolves to the lease id (string) or null
+   *
    * @example
    * ```typescript
    * await ForegroundService.startService({
@@ -77,7 +193,7 @@ export interface Spec extends TurboModule {
    * });
    * ```
    */
-  startService(config: NotificationConfig): Promise<void>;
+  startService(config: NotificationConfig): Promise<string | null>;
 
   /**
    * Stop the foreground service (decrements internal counter)
@@ -85,10 +201,56 @@ export interface Spec extends TurboModule {
    * @returns Promise that resolves when service stops
    *
    * @note If start() was called multiple times, stop() must be called
-   * the same number of times to fully stop the service
+   * the same number of times to fully stop the service. Releases the most
+   * recently acquired lease; prefer releaseLease() when holding a lease id
    */
   stopService(): Promise<void>;
 
+  /**
+   * Release a start lease
+   *
+   * @param leaseId Lease id returned by startService
+   * @returns Promise that resolves to true if the lease was held, false if it
+   * was already released or expired (releasing twice is harmless)
+   */
+  releaseLease(leaseId: string): Promise<boolean>;
+
+  /**
+   * Get the leases currently keeping the service alive
+   *
+   * @returns Promise that resolves to the held leases, oldest first
+   */
+  getLeases(): Promise<Lease[]>;
+
+  /**
+   * Retry starts deferred because the app was in the background
+   *
+   * Call when the app may start a foreground service again, e.g. from a
+   * high-priority FCM message or an exact alarm
+   *
+   * @returns Promise that resolves when the retry is scheduled
+   */
+  retryDeferredStarts(): Promise<void>;
+
+  /**
+   * Stop a named session
+   *
+   * Removes the session's notification and task loop and releases its start.
+   * If it backed the foreground notification, the oldest remaining session
+   * takes over, and the service type narrows to the remaining sessions.
+   *
+   * @param session Session name given to startService
+   * @returns Promise that resolves when the stop is dispatched
+   */
+  stopSession(session: string): Promise<void>;
+
+  /**
+   * Get the sessions of the running service
+   *
+   * @returns Promise that resolves to the active sessions, oldest first
+   */
+  getSessions(): Promise<Session[]>;
+
   /**
    * Force stop the foreground service regardless of start counter
    *
@@ -124,6 +286,21 @@ export interface Spec extends TurboModule {
    */
   isRunning(): Promise<number>;
 
+  /**
+   * Change the foreground service type of the running service
+   *
+   * Calls startForeground again with the new type mask and the current
+   * notification, so there is no restart and no notification flicker.
+   *
+   * @param serviceType 'dataSync', 'location' or 'mediaPlayback', or several
+   * combined as 'dataSync|location'
+   * @param session Session to change, or null for the session backing the
+   * notification. The service runs with the OR of all session types
+   * @returns Promise that resolves when the change is dispatched
+   * @throws Error if the service is not running or a type permission is missing
+   */
+  setServiceType(serviceType: string, session: string | null): Promise<void>;
+
   /**
    * Run a headless task in the background
    *
@@ -135,6 +312,49 @@ export interface Spec extends TurboModule {
    */
   runTask(config: TaskConfig): Promise<void>;
 
+  /**
+   * Add or replace a JS task in the native task schedule
+   *
+   * A batching task loop (batchTasks) computes which tasks are due in each
+   * tick and passes their ids to the headless task as `taskIds`, so a tick
+   * starts one headless invocation for all due tasks, or none.
+   * The task is first due right away.
+   *
+   * @param task Task schedule
+   */
+  scheduleTask(task: ScheduledTask): void;
+
+  /**
+   * Remove a JS task from the native task schedule
+   *
+   * @param taskId Task id
+   */
+  cancelTask(taskId: string): void;
+
+  /**
+   * Remove the JS tasks of a session from the native task schedule
+   *
+   * @param session Session name, or null for all tasks
+   */
+  cancelTasks(session: string | null): void;
+
+  /**
+   * Set how many due tasks of each priority class one tick dispatches
+   *
+   * @param critical Limit for critical tasks (0 = no limit)
+   * @param normal Limit for normal tasks (0 = no limit)
+   * @param background Limit for background tasks (0 = no limit)
+   */
+  setTaskClassLimits(critical: number, normal: number, background: number): void;
+
+  /**
+   * Set the limits on scheduled task runs in flight at the same time
+   *
+   * @param maxConcurrent Limit across all tasks (0 = no limit)
+   * @param groupLimits Limit per task group name
+   */
+  setConcurrencyLimits(maxConcurrent: number, groupLimits: Object): void;
+
   /**
    * Cancel a specific notification by ID
    *
@@ -165,6 +385,42 @@ export interface Spec extends TurboModule {
    */
   checkPostNotificationsPermission(): Promise<boolean>;
 
+  /**
+   * Register an event listener (required by NativeEventEmitter)
+   *
+   * @note Native skips building event payloads while no listeners are registered
+   */
+  addListener(eventName: string): void;
+
+  /**
+   * Unregister event listeners (required by NativeEventEmitter)
+   */
+  removeListeners(count: number): void;
+
+  /**
+   * Enable or disable service lifecycle and task telemetry events
+   *
+   * @param enabled Whether native emits 'foregroundServiceEvent' batches
+   */
+  setServiceEventsEnabled(enabled: boolean): void;
+
+  /**
+   * Get a snapshot of native metrics (counters and latency histograms)
+   *
+   * @param reset Whether to reset all metrics after taking the snapshot
+   * @returns Promise that resolves to the metrics snapshot
+   */
+  getMetrics(reset: boolean): Promise<Object>;
+
+  /**
+   * Set the native log level
+   *
+   * @param level 'verbose' | 'debug' | 'info' | 'warn' | 'error' | 'none'
+   * @note Can also be set with the com.kirenpaul.foregroundservice.log_level
+   * meta-data in AndroidManifest.xml. Default: 'warn'
+   */
+  setLogLevel(level: string): void;
+
   /**
    * Get module constants
    *